@@ -2,6 +2,9 @@ package org.swtp15.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * Properties specific to Test.
  * <p>
@@ -10,4 +13,110 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  */
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
 public class ApplicationProperties {
+
+    private final Models models = new Models();
+
+    public Models getModels() {
+        return models;
+    }
+
+    /**
+     * Properties of the feature models of the loaded systems.
+     */
+    public static class Models {
+
+        /**
+         * Names of the systems whose feature models are compiled into a binary decision diagram.
+         */
+        private Set<String> compiledSystems = new HashSet<>();
+
+        /**
+         * Maximal amount of nodes of a compiled feature model.
+         */
+        private int bddNodeLimit = 1 << 22;
+
+        /**
+         * Maximal amount of solvers per feature model leased concurrently for validity checks and for decision
+         * propagation each.
+         */
+        private int solverPoolSize = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Names of the systems whose models are enumerated by a portfolio of differently configured solvers.
+         */
+        private Set<String> portfolioSystems = new HashSet<>();
+
+        /**
+         * Maximal amount of valid configurations of a feature model which are enumerated into memory. Larger
+         * configuration spaces are only queried by solvers.
+         */
+        private int enumerationLimit = 100000;
+
+        /**
+         * Time budget in milliseconds of the single solver counting the valid configurations of a feature model when
+         * it is loaded. Larger configuration spaces are enumerated in parallel afterwards.
+         */
+        private long probeMillis = 2000;
+
+        /**
+         * Maximal amount of evaluation results cached per system.
+         */
+        private long evaluationCacheSize = 10000;
+
+        public Set<String> getCompiledSystems() {
+            return compiledSystems;
+        }
+
+        public void setCompiledSystems(Set<String> compiledSystems) {
+            this.compiledSystems = compiledSystems;
+        }
+
+        public int getBddNodeLimit() {
+            return bddNodeLimit;
+        }
+
+        public void setBddNodeLimit(int bddNodeLimit) {
+            this.bddNodeLimit = bddNodeLimit;
+        }
+
+        public int getSolverPoolSize() {
+            return solverPoolSize;
+        }
+
+        public void setSolverPoolSize(int solverPoolSize) {
+            this.solverPoolSize = solverPoolSize;
+        }
+
+        public Set<String> getPortfolioSystems() {
+            return portfolioSystems;
+        }
+
+        public void setPortfolioSystems(Set<String> portfolioSystems) {
+            this.portfolioSystems = portfolioSystems;
+        }
+
+        public int getEnumerationLimit() {
+            return enumerationLimit;
+        }
+
+        public void setEnumerationLimit(int enumerationLimit) {
+            this.enumerationLimit = enumerationLimit;
+        }
+
+        public long getProbeMillis() {
+            return probeMillis;
+        }
+
+        public void setProbeMillis(long probeMillis) {
+            this.probeMillis = probeMillis;
+        }
+
+        public long getEvaluationCacheSize() {
+            return evaluationCacheSize;
+        }
+
+        public void setEvaluationCacheSize(long evaluationCacheSize) {
+            this.evaluationCacheSize = evaluationCacheSize;
+        }
+    }
 }
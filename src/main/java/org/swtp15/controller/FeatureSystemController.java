@@ -6,11 +6,14 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.swtp15.models.FeatureConfiguration;
+import org.swtp15.models.FeatureModel;
 import org.swtp15.models.FeatureSystem;
 import org.swtp15.parser.FeatureConfigurationParser;
 import org.swtp15.parser.SystemParser;
 import org.swtp15.system.SystemCache;
 
+import java.util.Set;
+
 
 @RestController
 @RequestMapping(value = "/featuremodel")
@@ -61,21 +64,48 @@ public class FeatureSystemController {
         }
     }
 
+    /**
+     * Derives the features which are forced on or off by the decisions made so far, so impossible choices can be
+     * disabled right away.
+     *
+     * @param json JSON representation of a feature configuration containing only the decided binary features
+     *
+     * @return a ResponseEntity containing whether the decisions are satisfiable and the forced features as JSON
+     */
+    @PostMapping("/propagate")
+    public ResponseEntity<String> propagateDecisions(@RequestBody String json) {
+        try {
+            FeatureConfiguration partialConfiguration = FeatureConfigurationParser.parseConfiguration(json);
+            return new ResponseEntity<>(SystemParser.parsePropagationToJson(
+                    systemCache.propagateDecisions(partialConfiguration)), HttpStatus.OK);
+        } catch (ParseException e) {
+            return new ResponseEntity<>("Invalid FeatureConfiguration JSON in Body: " + e.getMessage(),
+                                        HttpStatus.BAD_REQUEST);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (InterruptedException e) {
+            return new ResponseEntity<>("Propagation was interrupted.", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
 
     /**
      * Returns a valid, alternative and preferable similar {@link FeatureConfiguration} for a given configuration.
      *
-     * @param json A String containing the JSON representation of a configuration, for which the alternative should be
-     *             searched for
+     * @param json        A String containing the JSON representation of a configuration, for which the alternative
+     *                    should be searched for
+     * @param approximate Whether the alternative may be searched among the valid configurations found so far, instead
+     *                    of waiting for all to be enumerated
      *
      * @return A ResponseEntity containing the alternative configuration as JSON or the exception message, if errors
      * occurred
      */
     @PostMapping("/alternative")
-    public ResponseEntity<String> alternativeConfiguration(@RequestBody String json) {
+    public ResponseEntity<String> alternativeConfiguration(@RequestBody String json,
+                                                           @RequestParam(defaultValue = "false") boolean approximate) {
         try {
             FeatureConfiguration featureConfiguration = FeatureConfigurationParser.parseConfiguration(json);
-            FeatureConfiguration alternative = systemCache.getAlternativeConfiguration(featureConfiguration);
+            FeatureConfiguration alternative = systemCache.getAlternativeConfiguration(featureConfiguration,
+                                                                                       approximate);
             return new ResponseEntity<>(alternative.toString(), HttpStatus.OK);
         } catch (ParseException e) {
             return new ResponseEntity<>("Invalid FeatureConfiguration JSON in Body: " + e.getMessage(),
@@ -89,6 +119,64 @@ public class FeatureSystemController {
         }
     }
 
+    /**
+     * Repairs a configuration to the valid configuration with the fewest flipped binary features, solved as a single
+     * MaxSAT optimization.
+     *
+     * @param json   A String containing the JSON representation of the configuration to repair
+     * @param pinned Names of binary features whose value should only be flipped if no repair keeps it
+     *
+     * @return A ResponseEntity containing the repaired configuration and the flipped features as JSON or the exception
+     * message, if errors occurred
+     */
+    @PostMapping("/repair")
+    public ResponseEntity<String> repairConfiguration(@RequestBody String json,
+                                                      @RequestParam(required = false) Set<String> pinned) {
+        try {
+            FeatureConfiguration featureConfiguration = FeatureConfigurationParser.parseConfiguration(json);
+            FeatureConfiguration repaired = systemCache.repairConfiguration(featureConfiguration,
+                                                                            pinned == null ? Set.of() : pinned);
+            return new ResponseEntity<>(SystemParser.parseRepairToJson(featureConfiguration, repaired),
+                                        HttpStatus.OK);
+        } catch (ParseException e) {
+            return new ResponseEntity<>("Invalid FeatureConfiguration JSON in Body: " + e.getMessage(),
+                                        HttpStatus.BAD_REQUEST);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.NO_CONTENT);
+        } catch (InterruptedException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Explains why the decided binary features of a configuration can not be extended to a valid configuration, by a
+     * minimal subset of the decisions and the constraints of the feature model they violate.
+     *
+     * @param json   A String containing the JSON representation of the configuration holding the decided features
+     * @param budget Time in milliseconds after which the explanation is returned without further minimization
+     *
+     * @return A ResponseEntity containing the validity of the decisions and the explanation as JSON or the exception
+     * message, if errors occurred
+     */
+    @PostMapping("/explain")
+    public ResponseEntity<String> explainConfiguration(@RequestBody String json,
+                                                       @RequestParam(defaultValue = "1000") long budget) {
+        try {
+            FeatureConfiguration featureConfiguration = FeatureConfigurationParser.parseConfiguration(json);
+            return new ResponseEntity<>(SystemParser.parseExplanationToJson(
+                    systemCache.explainConfiguration(featureConfiguration, budget)), HttpStatus.OK);
+        } catch (ParseException e) {
+            return new ResponseEntity<>("Invalid FeatureConfiguration JSON in Body: " + e.getMessage(),
+                                        HttpStatus.BAD_REQUEST);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (InterruptedException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     /**
      * Returns the minimal valid configuration of a system.
      *
@@ -104,4 +192,80 @@ public class FeatureSystemController {
                                                                 HttpStatus.OK) :
                                                                 new ResponseEntity<>(HttpStatus.NOT_FOUND);
     }
+
+    /**
+     * Returns the progress of the enumeration of all valid configurations of a system.
+     *
+     * @param name The name of the system
+     *
+     * @return The progress as JSON string.
+     */
+    @GetMapping("/enumeration")
+    public @ResponseBody
+    ResponseEntity<String> getEnumerationProgress(@RequestParam String name) {
+        FeatureSystem featureSystem = systemCache.getFeatureSystemByName(name);
+        return featureSystem != null ? new ResponseEntity<>(SystemParser.parseEnumerationProgressToJson(
+                featureSystem.getFeatureModel().getEnumerationJob().getProgress()), HttpStatus.OK) :
+               new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+
+    /**
+     * Cancels the enumeration of all valid configurations of a system. Configurations found so far stay available.
+     *
+     * @param name The name of the system
+     *
+     * @return The progress at the time of the cancellation as JSON string.
+     */
+    @DeleteMapping("/enumeration")
+    public @ResponseBody
+    ResponseEntity<String> cancelEnumeration(@RequestParam String name) {
+        FeatureSystem featureSystem = systemCache.getFeatureSystemByName(name);
+        if (featureSystem == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        featureSystem.getFeatureModel().cancelModelCalculation();
+        return this.getEnumerationProgress(name);
+    }
+
+    /**
+     * Compiles the feature model of a system if necessary and returns the size and compile time of the compiled
+     * formulas together with the amount of valid configurations.
+     *
+     * @param name The name of the system
+     *
+     * @return The compilation metrics as JSON string.
+     */
+    @GetMapping("/compilation")
+    public @ResponseBody
+    ResponseEntity<String> getCompilation(@RequestParam String name) {
+        FeatureSystem featureSystem = systemCache.getFeatureSystemByName(name);
+        if (featureSystem == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        try {
+            FeatureModel featureModel = featureSystem.getFeatureModel();
+            return new ResponseEntity<>(SystemParser.parseCompilationToJson(featureModel, featureModel.getDiagram()),
+                                        HttpStatus.OK);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.NO_CONTENT);
+        }
+    }
+
+    /**
+     * Returns the core features, dead features and classes of equivalent features of a system, computed when its
+     * feature model was loaded.
+     *
+     * @param name The name of the system
+     *
+     * @return The analysis as JSON string.
+     */
+    @GetMapping("/analysis")
+    public @ResponseBody
+    ResponseEntity<String> getAnalysis(@RequestParam String name) {
+        FeatureSystem featureSystem = systemCache.getFeatureSystemByName(name);
+        if (featureSystem == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(SystemParser.parseAnalysisToJson(featureSystem.getFeatureModel()), HttpStatus.OK);
+    }
 }
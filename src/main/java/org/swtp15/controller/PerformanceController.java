@@ -8,27 +8,56 @@ import org.springframework.web.bind.annotation.*;
 import org.swtp15.models.FeatureConfiguration;
 import org.swtp15.models.FeatureSystem;
 import org.swtp15.parser.FeatureConfigurationParser;
+import org.swtp15.parser.SystemParser;
 import org.swtp15.system.SystemCache;
 import org.swtp15.system.SystemExceptions;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
 @RestController
 @RequestMapping(value = "/performance")
 public class PerformanceController {
 
+    /**
+     * Media type of newline-delimited JSON, one JSON document per line.
+     */
+    public static final String NDJSON = "application/x-ndjson";
+
+    /**
+     * Amount of lines of a batch which are parsed, evaluated and written together.
+     */
+    private static final int LINES_PER_CHUNK = 16384;
+
     @Autowired
     private SystemCache systemCache;
 
     /**
-     * Evaluates a Configuration given as a JSON in the RequestBody of the Http request.
+     * Evaluates a Configuration given as a JSON in the RequestBody of the Http request. The property values are broken
+     * down into the applying influences only if requested, as `dissectedProperties` of the response.
      *
      * @param configurationJSON The Configuration to be evaluated.
+     * @param dissect           Whether the dissected properties should be part of the response
+     * @param top               Maximal amount of dissected influences, all if not positive
+     * @param threshold         Minimal absolute contribution to any property a dissected influence needs
      *
      * @return The Configuration with evaluated values.
      */
     @PostMapping
     public @ResponseBody
     ResponseEntity<String> getPropertiesForFeatureConfiguration
-    (@RequestBody String configurationJSON) {
+    (@RequestBody String configurationJSON,
+     @RequestParam(defaultValue = "false") boolean dissect,
+     @RequestParam(defaultValue = "0") int top,
+     @RequestParam(defaultValue = "0") double threshold) {
         try {
             FeatureConfiguration configuration = FeatureConfigurationParser.parseConfiguration(configurationJSON);
             FeatureSystem relatedSystem =
@@ -38,7 +67,8 @@ public class PerformanceController {
                                             HttpStatus.BAD_REQUEST);
             }
             relatedSystem.evaluateFeatureConfiguration(configuration);
-            return new ResponseEntity<>(configuration.toString(), HttpStatus.OK);
+            return new ResponseEntity<>(dissect ? configuration.toDissectedString(top, threshold) :
+                                        configuration.toString(), HttpStatus.OK);
 
         } catch (ParseException e) {
             return new ResponseEntity<>("Invalid FeatureConfiguration JSON in Body: " + e.getMessage(),
@@ -46,6 +76,98 @@ public class PerformanceController {
         }
     }
 
+    /**
+     * Evaluates a stream of configurations given as newline-delimited JSON in the RequestBody of the Http request.
+     * Every line holds a configuration in the format of {@link #getPropertiesForFeatureConfiguration} or a list of
+     * configurations under the `featureConfigurations` key. The evaluated configurations are streamed back in the same
+     * order, one per line, while the request is still being read. Lines which can not be evaluated are answered by a
+     * line holding their line number and an error message.
+     * <p>
+     * The lines are processed in chunks: a chunk is parsed in parallel, evaluated as a batch per system and written,
+     * before the next chunk is read, so the body is never buffered as a whole.
+     *
+     * @param request  The Http request whose body holds the configurations
+     * @param response The Http response the evaluated configurations are written to
+     *
+     * @throws IOException If reading the request or writing the response failed
+     */
+    @PostMapping(value = "/batch", produces = NDJSON)
+    public void evaluateFeatureConfigurations(HttpServletRequest request, HttpServletResponse response)
+    throws IOException {
+        if (request.getCharacterEncoding() == null) {
+            request.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        }
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        BufferedReader input = request.getReader();
+        Writer output = response.getWriter();
+        List<String> lines = new ArrayList<>();
+        long firstLine = 1;
+        String line;
+        while ((line = input.readLine()) != null) {
+            lines.add(line);
+            if (lines.size() == LINES_PER_CHUNK) {
+                writeEvaluatedChunk(lines, firstLine, output);
+                firstLine += lines.size();
+                lines.clear();
+            }
+        }
+        writeEvaluatedChunk(lines, firstLine, output);
+    }
+
+    /**
+     * Parses, evaluates and writes a chunk of lines of a batch. Blank lines are skipped.
+     *
+     * @param lines     The lines of the chunk
+     * @param firstLine Number of the first line of the chunk in the batch
+     * @param output    Writer receiving one line per evaluated configuration or error
+     *
+     * @throws IOException If writing failed
+     */
+    private void writeEvaluatedChunk(List<String> lines, long firstLine, Writer output) throws IOException {
+        List<List<FeatureConfiguration>> parsedLines = lines.parallelStream().map(line -> {
+            if (line.isBlank()) {
+                return List.<FeatureConfiguration>of();
+            }
+            try {
+                return FeatureConfigurationParser.parseConfigurations(line);
+            } catch (IllegalArgumentException | ClassCastException e) {
+                return null;
+            }
+        }).collect(Collectors.toList());
+        List<FeatureConfiguration> configurations = new ArrayList<>();
+        List<Long> lineOfConfiguration = new ArrayList<>();
+        for (int i = 0; i < parsedLines.size(); i++) {
+            if (parsedLines.get(i) == null) {
+                continue;
+            }
+            for (FeatureConfiguration parsed : parsedLines.get(i)) {
+                configurations.add(parsed);
+                lineOfConfiguration.add(firstLine + i);
+            }
+        }
+        boolean[] evaluated = systemCache.evaluateConfigurations(configurations);
+
+        // serializing the configurations is as expensive as evaluating them, so it runs in parallel as well
+        List<String> results = IntStream.range(0, configurations.size()).parallel().mapToObj(
+                i -> evaluated[i] ? configurations.get(i).toString() : SystemParser.parseBatchErrorToJson(
+                        lineOfConfiguration.get(i), "Given FeatureConfiguration has non-existing FeatureModelName"))
+                .collect(Collectors.toList());
+        int configuration = 0;
+        for (int i = 0; i < parsedLines.size(); i++) {
+            if (parsedLines.get(i) == null) {
+                output.write(SystemParser.parseBatchErrorToJson(firstLine + i, "Invalid FeatureConfiguration JSON"));
+                output.write('\n');
+                continue;
+            }
+            for (int j = 0; j < parsedLines.get(i).size(); j++) {
+                output.write(results.get(configuration++));
+                output.write('\n');
+            }
+        }
+        output.flush();
+    }
+
     /**
      * Returns the global near-optimum of a feature system in relation to the given Property.
      *
@@ -71,6 +193,8 @@ public class PerformanceController {
      * @param property          The name of the property, which is to optimize
      * @param maxDifference     Number of features that can be different
      * @param configurationJSON JSON representation of {@link FeatureConfiguration} that should be optimized
+     * @param approximate       Whether only the valid configurations found so far should be considered, instead of
+     *                          waiting for all to be enumerated
      *
      * @return optimized {@link FeatureConfiguration} for property
      */
@@ -78,7 +202,8 @@ public class PerformanceController {
     public @ResponseBody
     ResponseEntity<String> getLocalOptimum(@RequestParam String property,
                                            @RequestParam int maxDifference,
-                                           @RequestBody String configurationJSON) {
+                                           @RequestBody String configurationJSON,
+                                           @RequestParam(defaultValue = "false") boolean approximate) {
         try {
             FeatureConfiguration featureConfiguration = FeatureConfigurationParser
                     .parseConfiguration(configurationJSON);
@@ -87,7 +212,8 @@ public class PerformanceController {
                                             HttpStatus.BAD_REQUEST);
             }
             FeatureConfiguration localOptimum = systemCache.findLocalOptimumForConfiguration(featureConfiguration,
-                                                                                             property, maxDifference);
+                                                                                             property, maxDifference,
+                                                                                             approximate);
             return new ResponseEntity<>(localOptimum.toString(), HttpStatus.OK);
         } catch (ParseException e) {
             return new ResponseEntity<>("Invalid FeatureConfiguration JSON in Body: " + e.getMessage(),
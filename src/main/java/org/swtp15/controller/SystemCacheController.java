@@ -12,6 +12,7 @@ import org.swtp15.models.FeatureSystem;
 import org.swtp15.parser.SystemParser;
 import org.swtp15.system.SystemCache;
 
+import java.util.Map;
 import java.util.Set;
 
 @RestController
@@ -22,14 +23,15 @@ public class SystemCacheController {
     private SystemCache systemCache;
 
     /**
-     * Returns the system names of systems currently known by the system cache.
+     * Returns the system names of systems currently known by the system cache, together with the execution mode and
+     * the probed amount of valid configurations of every system.
      *
-     * @return ResponseEntity containing JSON containing Array of system names
+     * @return ResponseEntity containing JSON containing Array of system names and the metadata per system
      */
     @GetMapping
     public ResponseEntity<String> getAllSystems() {
-        Set<String> systems = systemCache.getCurrentlyKnownSystems().keySet();
-        return new ResponseEntity<>(SystemParser.parseSystemNamesToJson(systems), HttpStatus.OK);
+        Map<String, FeatureSystem> systems = systemCache.getCurrentlyKnownSystems();
+        return new ResponseEntity<>(SystemParser.parseSystemsToJson(systems), HttpStatus.OK);
     }
 
     /**
@@ -0,0 +1,647 @@
+package org.swtp15.models;
+
+import lombok.Getter;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * Reduced ordered binary decision diagram of a formula in conjunctive normal form.
+ * <p>
+ * The diagram is compiled once by conjoining the diagrams of all clauses. Afterwards every node knows the amount of
+ * models below it, so the models can be counted and drawn exactly uniformly in time linear in the amount of variables,
+ * without enumerating them. Validity, conditional counts, per-variable counts and linear cost optimization take a
+ * single pass over the nodes, so their time is linear in the compiled size.
+ * <p>
+ * Nodes are kept in flat arrays and identified by their index, where {@code 0} and {@code 1} are the terminals. A node
+ * is always created after its children, so the indices are a topological order. After the compilation, nodes not
+ * reachable from the root are dropped together with the tables only needed for compiling.
+ */
+public class BinaryDecisionDiagram {
+
+    /**
+     * Default maximal amount of nodes, about 100 MB of node and table arrays.
+     */
+    public static final int DEFAULT_NODE_LIMIT = 1 << 22;
+
+    private static final int FALSE = 0;
+    private static final int TRUE  = 1;
+
+    private static final int CACHE_SIZE             = 1 << 18;
+    private static final int ORDERING_ITERATIONS    = 20;
+    private static final int INITIAL_NODE_CAPACITY  = 1 << 10;
+
+    private final int amountOfVariables;
+    private final int nodeLimit;
+
+    /**
+     * The variable tested at every level and the level of every variable.
+     */
+    private final int[] variableAtLevel;
+    private final int[] levelOfVariable;
+
+    private int[] level;
+    private int[] low;
+    private int[] high;
+    private int   nodeCount;
+
+    private int[] uniqueTable;
+
+    private int[] cacheLeft;
+    private int[] cacheRight;
+    private int[] cacheResult;
+
+    private int root;
+
+    /**
+     * Amount of models of the variables from the level of a node downwards, per node index.
+     */
+    private BigInteger[] counts;
+
+    /**
+     * Time the compilation took in milliseconds.
+     */
+    @Getter
+    private final long compileMillis;
+
+    /**
+     * Compiles the diagram of the given clauses.
+     *
+     * @param formulas          Set of clauses, where every clause is a set of literals
+     * @param amountOfVariables Amount of variables of the formula
+     * @param nodeLimit         Maximal amount of nodes the compilation may create
+     *
+     * @throws ModelExceptions#BDD_NODE_LIMIT_EXCEEDED If the compilation needs more nodes than allowed
+     */
+    public BinaryDecisionDiagram(Set<Set<Integer>> formulas, int amountOfVariables, int nodeLimit) {
+        long startTime = System.currentTimeMillis();
+        this.amountOfVariables = amountOfVariables;
+        this.nodeLimit         = nodeLimit;
+        this.level             = new int[INITIAL_NODE_CAPACITY];
+        this.low               = new int[INITIAL_NODE_CAPACITY];
+        this.high              = new int[INITIAL_NODE_CAPACITY];
+        this.uniqueTable       = new int[INITIAL_NODE_CAPACITY * 2];
+        this.cacheLeft         = new int[CACHE_SIZE];
+        this.cacheRight        = new int[CACHE_SIZE];
+        this.cacheResult       = new int[CACHE_SIZE];
+
+        List<int[]> clauses = new ArrayList<>();
+        for (Set<Integer> clause : formulas) {
+            if (clause.stream().noneMatch(literal -> clause.contains(-literal))) {
+                clauses.add(clause.stream().mapToInt(Integer::intValue).toArray());
+            }
+        }
+        this.variableAtLevel = orderVariables(clauses, amountOfVariables);
+        this.levelOfVariable = new int[amountOfVariables + 1];
+        for (int l = 0; l < amountOfVariables; l++) {
+            this.levelOfVariable[this.variableAtLevel[l]] = l;
+        }
+
+        this.level[FALSE] = amountOfVariables;
+        this.level[TRUE]  = amountOfVariables;
+        this.nodeCount    = 2;
+        this.root         = this.conjoin(clauses);
+        this.compact();
+        this.compileMillis = System.currentTimeMillis() - startTime;
+    }
+
+    /**
+     * Drops all nodes not reachable from the root and releases the tables used while compiling.
+     */
+    private void compact() {
+        boolean[] reachable = new boolean[this.nodeCount];
+        reachable[FALSE] = true;
+        reachable[TRUE]  = true;
+        reachable[this.root] = true;
+        for (int node = this.root; node > TRUE; node--) {
+            if (reachable[node]) {
+                reachable[this.low[node]]  = true;
+                reachable[this.high[node]] = true;
+            }
+        }
+        int[] newIndex = new int[this.nodeCount];
+        int size = 0;
+        for (int node = 0; node < this.nodeCount; node++) {
+            if (reachable[node]) {
+                newIndex[node] = size++;
+            }
+        }
+        int[] newLevel = new int[size];
+        int[] newLow = new int[size];
+        int[] newHigh = new int[size];
+        for (int node = 0; node < this.nodeCount; node++) {
+            if (reachable[node]) {
+                newLevel[newIndex[node]] = this.level[node];
+                newLow[newIndex[node]]   = newIndex[this.low[node]];
+                newHigh[newIndex[node]]  = newIndex[this.high[node]];
+            }
+        }
+        this.level       = newLevel;
+        this.low         = newLow;
+        this.high        = newHigh;
+        this.root        = newIndex[this.root];
+        this.nodeCount   = size;
+        this.uniqueTable = null;
+        this.cacheLeft   = null;
+        this.cacheRight  = null;
+        this.cacheResult = null;
+    }
+
+    /**
+     * Orders the variables with the FORCE heuristic: every variable is repeatedly moved to the average center of the
+     * clauses it occurs in, which keeps the variables of a clause close together and the diagram small.
+     *
+     * @param clauses           The non-tautological clauses
+     * @param amountOfVariables Amount of variables
+     *
+     * @return The variable of every level
+     */
+    private static int[] orderVariables(List<int[]> clauses, int amountOfVariables) {
+        double[] position = new double[amountOfVariables + 1];
+        for (int variable = 1; variable <= amountOfVariables; variable++) {
+            position[variable] = variable;
+        }
+        Integer[] order = new Integer[amountOfVariables];
+        int[] bestOrder = null;
+        long bestSpan = Long.MAX_VALUE;
+        for (int iteration = 0; iteration < ORDERING_ITERATIONS; iteration++) {
+            double[] centerSum = new double[amountOfVariables + 1];
+            int[] occurrences = new int[amountOfVariables + 1];
+            long span = 0;
+            for (int[] clause : clauses) {
+                double center = 0;
+                double min = Double.MAX_VALUE;
+                double max = 0;
+                for (int literal : clause) {
+                    double p = position[Math.abs(literal)];
+                    center += p;
+                    min = Math.min(min, p);
+                    max = Math.max(max, p);
+                }
+                span += (long) (max - min);
+                center /= clause.length;
+                for (int literal : clause) {
+                    centerSum[Math.abs(literal)] += center;
+                    occurrences[Math.abs(literal)]++;
+                }
+            }
+            if (span < bestSpan || bestOrder == null) {
+                bestSpan  = span;
+                bestOrder = new int[amountOfVariables];
+                for (int variable = 1; variable <= amountOfVariables; variable++) {
+                    bestOrder[(int) position[variable] - 1] = variable;
+                }
+            } else {
+                break;
+            }
+            for (int variable = 1; variable <= amountOfVariables; variable++) {
+                order[variable - 1] = variable;
+                if (occurrences[variable] > 0) {
+                    position[variable] = centerSum[variable] / occurrences[variable];
+                }
+            }
+            Arrays.sort(order, Comparator.comparingDouble(variable -> position[variable]));
+            for (int rank = 0; rank < amountOfVariables; rank++) {
+                position[order[rank]] = rank + 1;
+            }
+        }
+        return bestOrder;
+    }
+
+    /**
+     * Conjoins the diagrams of all clauses, starting with the clauses whose variables are at the bottom.
+     *
+     * @param clauses The non-tautological clauses
+     *
+     * @return The root of the conjunction
+     */
+    private int conjoin(List<int[]> clauses) {
+        List<int[]> sorted = new ArrayList<>(clauses);
+        for (int[] clause : sorted) {
+            sortByLevelDescending(clause);
+        }
+        sorted.sort(Comparator.comparingInt((int[] clause) -> this.levelOfVariable[Math.abs(clause[clause.length - 1])])
+                            .reversed());
+        int result = TRUE;
+        for (int[] clause : sorted) {
+            result = this.and(result, this.clause(clause));
+            if (result == FALSE) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sorts the literals of a clause so that the literal with the deepest level comes first.
+     *
+     * @param clause The clause to sort in place
+     */
+    private void sortByLevelDescending(int[] clause) {
+        for (int i = 1; i < clause.length; i++) {
+            int literal = clause[i];
+            int j = i - 1;
+            while (j >= 0 && this.levelOfVariable[Math.abs(clause[j])] < this.levelOfVariable[Math.abs(literal)]) {
+                clause[j + 1] = clause[j];
+                j--;
+            }
+            clause[j + 1] = literal;
+        }
+    }
+
+    /**
+     * Creates the diagram of a single clause.
+     *
+     * @param clause The literals of the clause, deepest level first
+     *
+     * @return The root of the clause
+     */
+    private int clause(int[] clause) {
+        int node = FALSE;
+        for (int literal : clause) {
+            int l = this.levelOfVariable[Math.abs(literal)];
+            node = literal > 0 ? this.mk(l, node, TRUE) : this.mk(l, TRUE, node);
+        }
+        return node;
+    }
+
+    /**
+     * Conjoins two diagrams.
+     *
+     * @param a Root of the first diagram
+     * @param b Root of the second diagram
+     *
+     * @return Root of the conjunction
+     */
+    private int and(int a, int b) {
+        if (a == FALSE || b == FALSE) {
+            return FALSE;
+        }
+        if (a == TRUE || a == b) {
+            return b;
+        }
+        if (b == TRUE) {
+            return a;
+        }
+        if (a > b) {
+            int swap = a;
+            a = b;
+            b = swap;
+        }
+        int slot = hash(a, b, 0) & (CACHE_SIZE - 1);
+        if (this.cacheLeft[slot] == a && this.cacheRight[slot] == b) {
+            return this.cacheResult[slot];
+        }
+        int levelA = this.level[a];
+        int levelB = this.level[b];
+        int l = Math.min(levelA, levelB);
+        int lowResult = this.and(levelA == l ? this.low[a] : a, levelB == l ? this.low[b] : b);
+        int highResult = this.and(levelA == l ? this.high[a] : a, levelB == l ? this.high[b] : b);
+        int result = this.mk(l, lowResult, highResult);
+        this.cacheLeft[slot]   = a;
+        this.cacheRight[slot]  = b;
+        this.cacheResult[slot] = result;
+        return result;
+    }
+
+    /**
+     * Returns the unique node testing the given level with the given children, creating it if necessary.
+     *
+     * @param l         Level of the node
+     * @param lowChild  Child if the variable is false
+     * @param highChild Child if the variable is true
+     *
+     * @return Index of the node
+     *
+     * @throws ModelExceptions#BDD_NODE_LIMIT_EXCEEDED If a new node is needed but the limit is reached
+     */
+    private int mk(int l, int lowChild, int highChild) {
+        if (lowChild == highChild) {
+            return lowChild;
+        }
+        int mask = this.uniqueTable.length - 1;
+        int slot = hash(l, lowChild, highChild) & mask;
+        while (this.uniqueTable[slot] != 0) {
+            int node = this.uniqueTable[slot];
+            if (this.level[node] == l && this.low[node] == lowChild && this.high[node] == highChild) {
+                return node;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (this.nodeCount >= this.nodeLimit) {
+            throw ModelExceptions.BDD_NODE_LIMIT_EXCEEDED;
+        }
+        if (this.nodeCount == this.level.length) {
+            int capacity = this.level.length * 2;
+            this.level = Arrays.copyOf(this.level, capacity);
+            this.low   = Arrays.copyOf(this.low, capacity);
+            this.high  = Arrays.copyOf(this.high, capacity);
+        }
+        int node = this.nodeCount++;
+        this.level[node] = l;
+        this.low[node]   = lowChild;
+        this.high[node]  = highChild;
+        this.uniqueTable[slot] = node;
+        if (this.nodeCount * 2 > this.uniqueTable.length) {
+            this.rehash();
+        }
+        return node;
+    }
+
+    /**
+     * Doubles the unique table and inserts all nodes again.
+     */
+    private void rehash() {
+        this.uniqueTable = new int[this.uniqueTable.length * 2];
+        int mask = this.uniqueTable.length - 1;
+        for (int node = 2; node < this.nodeCount; node++) {
+            int slot = hash(this.level[node], this.low[node], this.high[node]) & mask;
+            while (this.uniqueTable[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            this.uniqueTable[slot] = node;
+        }
+    }
+
+    private static int hash(int a, int b, int c) {
+        int h = a * 0x9E3779B1 + b;
+        h = h * 0x85EBCA6B + c;
+        return h ^ (h >>> 15);
+    }
+
+    /**
+     * Returns the amount of nodes of the diagram, including both terminals.
+     *
+     * @return Amount of nodes
+     */
+    public int getNodeCount() {
+        return this.nodeCount;
+    }
+
+    /**
+     * Estimates the memory held by the diagram, excluding the lazily computed model counts.
+     *
+     * @return Estimated size in bytes
+     */
+    public long getMemoryBytes() {
+        return 12L * this.nodeCount + 8L * (this.amountOfVariables + 1);
+    }
+
+    /**
+     * Checks whether an assignment is a model of the formula.
+     *
+     * @param activeVariables The variables which are true, all others are false
+     *
+     * @return Whether the assignment satisfies the formula
+     */
+    public boolean isModel(Set<Integer> activeVariables) {
+        int node = this.root;
+        while (node > TRUE) {
+            node = activeVariables.contains(this.variableAtLevel[this.level[node]]) ? this.high[node] : this.low[node];
+        }
+        return node == TRUE;
+    }
+
+    /**
+     * Counts the models of the formula.
+     *
+     * @return Amount of models
+     */
+    public BigInteger countModels() {
+        return this.weight(this.root, 0);
+    }
+
+    /**
+     * Counts the models of the formula which agree with a partial assignment.
+     *
+     * @param assumptions Values of the fixed variables, all other variables are free
+     *
+     * @return Amount of models extending the partial assignment
+     */
+    public BigInteger countModels(Map<Integer, Boolean> assumptions) {
+        int[] freeFrom = new int[this.amountOfVariables + 1];
+        for (int l = this.amountOfVariables - 1; l >= 0; l--) {
+            freeFrom[l] = freeFrom[l + 1] + (assumptions.containsKey(this.variableAtLevel[l]) ? 0 : 1);
+        }
+        BigInteger[] nodeCounts = new BigInteger[this.nodeCount];
+        nodeCounts[FALSE] = BigInteger.ZERO;
+        nodeCounts[TRUE]  = BigInteger.ONE;
+        for (int node = 2; node < this.nodeCount; node++) {
+            int l = this.level[node];
+            int lowChild = this.low[node];
+            int highChild = this.high[node];
+            Boolean value = assumptions.get(this.variableAtLevel[l]);
+            BigInteger lowCount = Boolean.TRUE.equals(value) ? BigInteger.ZERO :
+                                  nodeCounts[lowChild].shiftLeft(freeFrom[l + 1] - freeFrom[this.level[lowChild]]);
+            BigInteger highCount = Boolean.FALSE.equals(value) ? BigInteger.ZERO :
+                                   nodeCounts[highChild].shiftLeft(freeFrom[l + 1] - freeFrom[this.level[highChild]]);
+            nodeCounts[node] = lowCount.add(highCount);
+        }
+        return nodeCounts[this.root].shiftLeft(freeFrom[0] - freeFrom[this.level[this.root]]);
+    }
+
+    /**
+     * Counts for every variable the models in which it is true, all in one pass: the amount of paths reaching every
+     * node is propagated from the root downwards, so every edge knows how many models run through it. Variables
+     * skipped by an edge are true in exactly half of these models.
+     *
+     * @return Amount of models per variable, indexed by the variable
+     */
+    public BigInteger[] countModelsPerVariable() {
+        BigInteger[] trueCounts = new BigInteger[this.amountOfVariables + 1];
+        BigInteger[] skipped = new BigInteger[this.amountOfVariables + 1];
+        Arrays.fill(trueCounts, BigInteger.ZERO);
+        Arrays.fill(skipped, BigInteger.ZERO);
+        BigInteger total = this.countModels();
+        if (total.signum() == 0) {
+            return trueCounts;
+        }
+        addSkipped(skipped, 0, this.level[this.root], total.shiftRight(1));
+        BigInteger[] paths = new BigInteger[this.nodeCount];
+        Arrays.fill(paths, BigInteger.ZERO);
+        paths[this.root] = BigInteger.ONE.shiftLeft(this.level[this.root]);
+        for (int node = this.root; node > TRUE; node--) {
+            if (paths[node].signum() == 0) {
+                continue;
+            }
+            int l = this.level[node];
+            for (int child : new int[]{this.low[node], this.high[node]}) {
+                BigInteger models = paths[node].multiply(this.weight(child, l + 1));
+                if (models.signum() == 0) {
+                    continue;
+                }
+                if (child == this.high[node]) {
+                    trueCounts[this.variableAtLevel[l]] = trueCounts[this.variableAtLevel[l]].add(models);
+                }
+                addSkipped(skipped, l + 1, this.level[child], models.shiftRight(1));
+                if (child > TRUE) {
+                    paths[child] = paths[child].add(paths[node].shiftLeft(this.level[child] - l - 1));
+                }
+            }
+        }
+        BigInteger running = BigInteger.ZERO;
+        for (int l = 0; l < this.amountOfVariables; l++) {
+            running = running.add(skipped[l]);
+            trueCounts[this.variableAtLevel[l]] = trueCounts[this.variableAtLevel[l]].add(running);
+        }
+        return trueCounts;
+    }
+
+    /**
+     * Adds a value to every level in a range of a difference array.
+     *
+     * @param skipped Difference array over the levels
+     * @param from    First level of the range
+     * @param to      Level after the range
+     * @param value   Value to add
+     */
+    private static void addSkipped(BigInteger[] skipped, int from, int to, BigInteger value) {
+        if (from < to) {
+            skipped[from] = skipped[from].add(value);
+            skipped[to]   = skipped[to].subtract(value);
+        }
+    }
+
+    /**
+     * Finds a model with minimal total cost, where every true variable adds its cost. The cheapest completion of every
+     * node is computed bottom-up, variables skipped by an edge are set to true exactly if their cost is negative.
+     *
+     * @param costs Cost of every variable, indexed by the variable
+     *
+     * @return The active variables of a cheapest model
+     *
+     * @throws ModelExceptions#MODEL_HAS_NO_VALID_CONFIGURATIONS If the formula has no models
+     */
+    public Set<Integer> minimizeCost(double[] costs) {
+        if (this.root == FALSE) {
+            throw ModelExceptions.MODEL_HAS_NO_VALID_CONFIGURATIONS;
+        }
+        double[] freeCostFrom = new double[this.amountOfVariables + 1];
+        for (int l = this.amountOfVariables - 1; l >= 0; l--) {
+            freeCostFrom[l] = freeCostFrom[l + 1] + Math.min(0, costs[this.variableAtLevel[l]]);
+        }
+        double[] best = new double[this.nodeCount];
+        boolean[] takeHigh = new boolean[this.nodeCount];
+        best[FALSE] = Double.POSITIVE_INFINITY;
+        best[TRUE]  = 0;
+        for (int node = 2; node < this.nodeCount; node++) {
+            int l = this.level[node];
+            double lowCost = best[this.low[node]] + freeCostFrom[l + 1] - freeCostFrom[this.level[this.low[node]]];
+            double highCost = costs[this.variableAtLevel[l]] + best[this.high[node]] + freeCostFrom[l + 1]
+                              - freeCostFrom[this.level[this.high[node]]];
+            takeHigh[node] = highCost < lowCost;
+            best[node]     = Math.min(lowCost, highCost);
+        }
+        Set<Integer> active = new HashSet<>();
+        int node = this.root;
+        for (int l = 0; l < this.amountOfVariables; l++) {
+            int variable = this.variableAtLevel[l];
+            if (this.level[node] > l) {
+                if (costs[variable] < 0) {
+                    active.add(variable);
+                }
+            } else if (takeHigh[node]) {
+                active.add(variable);
+                node = this.high[node];
+            } else {
+                node = this.low[node];
+            }
+        }
+        return active;
+    }
+
+    /**
+     * Draws models exactly uniformly: a random number below the model count is picked and the path of the model with
+     * this rank is followed from the root, going to the child whose models contain the rank.
+     *
+     * @param amount Amount of models to draw
+     * @param rand   Source of randomness
+     *
+     * @return List of models, each given as the set of active variables
+     *
+     * @throws ModelExceptions#MODEL_HAS_NO_VALID_CONFIGURATIONS If the formula has no models
+     */
+    public List<Set<Integer>> sample(int amount, Random rand) {
+        BigInteger total = this.countModels();
+        if (total.signum() == 0) {
+            throw ModelExceptions.MODEL_HAS_NO_VALID_CONFIGURATIONS;
+        }
+        List<Set<Integer>> samples = new ArrayList<>(amount);
+        for (int i = 0; i < amount; i++) {
+            BigInteger rank;
+            do {
+                rank = new BigInteger(total.bitLength(), rand);
+            } while (rank.compareTo(total) >= 0);
+            samples.add(this.modelAt(rank));
+        }
+        return samples;
+    }
+
+    /**
+     * Returns the model with the given rank, where models are ordered by their assignment from the top level down and
+     * false comes before true.
+     *
+     * @param rank Rank of the model, below the model count
+     *
+     * @return The active variables of the model
+     */
+    private Set<Integer> modelAt(BigInteger rank) {
+        Set<Integer> active = new HashSet<>();
+        int node = this.root;
+        for (int l = 0; l < this.amountOfVariables; l++) {
+            boolean value;
+            if (this.level[node] > l) {
+                BigInteger half = this.weight(node, l + 1);
+                value = rank.compareTo(half) >= 0;
+                if (value) {
+                    rank = rank.subtract(half);
+                }
+            } else {
+                BigInteger lowWeight = this.weight(this.low[node], l + 1);
+                value = rank.compareTo(lowWeight) >= 0;
+                if (value) {
+                    rank = rank.subtract(lowWeight);
+                    node = this.high[node];
+                } else {
+                    node = this.low[node];
+                }
+            }
+            if (value) {
+                active.add(this.variableAtLevel[l]);
+            }
+        }
+        return active;
+    }
+
+    /**
+     * Amount of models of the variables from the given level downwards, if the node is reached at this level.
+     *
+     * @param node      Index of the node
+     * @param fromLevel Level the node is reached at, not below the level of the node
+     *
+     * @return Amount of models
+     */
+    private BigInteger weight(int node, int fromLevel) {
+        return this.getCounts()[node].shiftLeft(this.level[node] - fromLevel);
+    }
+
+    /**
+     * Returns the model counts of all nodes, computing them on first call.
+     *
+     * @return Model count per node index
+     */
+    private synchronized BigInteger[] getCounts() {
+        if (this.counts == null) {
+            BigInteger[] nodeCounts = new BigInteger[this.nodeCount];
+            nodeCounts[FALSE] = BigInteger.ZERO;
+            nodeCounts[TRUE]  = BigInteger.ONE;
+            for (int node = 2; node < this.nodeCount; node++) {
+                int childLevel = this.level[node] + 1;
+                nodeCounts[node] = nodeCounts[this.low[node]].shiftLeft(this.level[this.low[node]] - childLevel)
+                        .add(nodeCounts[this.high[node]].shiftLeft(this.level[this.high[node]] - childLevel));
+            }
+            this.counts = nodeCounts;
+        }
+        return this.counts;
+    }
+}
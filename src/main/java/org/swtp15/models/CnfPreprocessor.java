@@ -0,0 +1,514 @@
+package org.swtp15.models;
+
+import lombok.Getter;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Simplifies the formulas of a {@link FeatureModel} before they are loaded into a solver, keeping everything needed to
+ * map the models of the simplified formula back to the original features.
+ * <p>
+ * The pipeline fixes the core and dead features of the {@link FeatureModelAnalysis}, replaces every feature by the
+ * representative of its equivalence class, removes duplicate and subsumed clauses and finally eliminates variables by
+ * resolution as long as this does not increase the amount of clauses. The remaining variables are numbered from
+ * {@code 1} again, so the solver only knows the variables which are still constrained.
+ * <p>
+ * Every model of the simplified formula extends to at least one model of the original formula. The eliminated
+ * variables are restored in reverse order of their elimination, trying both values against the clauses they were
+ * eliminated from, so enumerating the simplified formula and extending its models yields every original model exactly
+ * once. Results are cached by the fingerprint of the formulas.
+ */
+public class CnfPreprocessor {
+
+    private static final FingerprintCache<CnfPreprocessor> CACHE = new FingerprintCache<>();
+
+    /**
+     * Variables whose elimination would create longer clauses are kept.
+     */
+    private static final int MAX_RESOLVENT_LENGTH = 16;
+
+    /**
+     * Variables with more pairs of clauses to resolve are kept, so that preprocessing stays fast on big models.
+     */
+    private static final int MAX_RESOLUTION_PAIRS = 256;
+
+    private static final int MAX_ELIMINATION_ROUNDS = 3;
+
+    private final int originalAmountOfVariables;
+
+    /**
+     * Simplified clauses over the renumbered variables.
+     */
+    @Getter
+    private final Set<Set<Integer>> formulas;
+
+    /**
+     * Amount of variables of the simplified clauses.
+     */
+    @Getter
+    private final int amountOfVariables;
+
+    /**
+     * Original variable of every renumbered variable.
+     */
+    private final int[] originalVariables;
+
+    private final int[] fixedLiterals;
+
+    /**
+     * Literal every original variable is equivalent to, the variable itself if it is not replaced.
+     */
+    private final int[] representative;
+
+    /**
+     * Eliminated original variables in order of their elimination.
+     */
+    private final List<Integer> eliminatedVariables;
+
+    /**
+     * Clauses every eliminated variable occurred in when it was eliminated, parallel to {@link
+     * #eliminatedVariables}.
+     */
+    private final List<int[][]> eliminatedClauses;
+
+    /**
+     * Simplifies the given formulas.
+     *
+     * @param formulas          Set of clauses, where every clause is a set of literals
+     * @param amountOfVariables Amount of variables of the formula
+     * @param analysis          Analysis of the formulas, supplying the backbone and the equivalence classes
+     */
+    public CnfPreprocessor(Set<Set<Integer>> formulas, int amountOfVariables, FeatureModelAnalysis analysis) {
+        this.originalAmountOfVariables = amountOfVariables;
+        this.representative            = new int[amountOfVariables + 1];
+        this.eliminatedVariables       = new ArrayList<>();
+        this.eliminatedClauses         = new ArrayList<>();
+
+        // an unsatisfiable formula is passed on unchanged, so that the solver reports the contradiction
+        boolean simplify = analysis.isSatisfiable();
+        this.fixedLiterals = simplify ? analysis.getBackboneLiterals() : new int[0];
+        boolean[] fixed = new boolean[amountOfVariables + 1];
+        for (int literal : this.fixedLiterals) {
+            fixed[Math.abs(literal)] = true;
+        }
+        for (int variable = 1; variable <= amountOfVariables; variable++) {
+            this.representative[variable] = simplify ? analysis.getRepresentative(variable) : variable;
+        }
+
+        Set<Integer> fixedLiteralSet = Arrays.stream(this.fixedLiterals).boxed().collect(Collectors.toSet());
+        boolean[] eliminated = new boolean[amountOfVariables + 1];
+        ClauseDatabase database = new ClauseDatabase(amountOfVariables);
+        for (Set<Integer> clause : formulas) {
+            int[] simplified = this.substitute(clause, fixedLiteralSet);
+            if (simplified != null) {
+                database.add(simplified);
+            }
+        }
+        if (simplify) {
+            database.removeSubsumed();
+            this.eliminateVariables(database, fixed, eliminated);
+            database.removeSubsumed();
+        }
+
+        boolean[] occurring = new boolean[amountOfVariables + 1];
+        for (int[] clause : database.aliveClauses()) {
+            for (int literal : clause) {
+                occurring[Math.abs(literal)] = true;
+            }
+        }
+        int[] renumbered = new int[amountOfVariables + 1];
+        List<Integer> kept = new ArrayList<>();
+        for (int variable = 1; variable <= amountOfVariables; variable++) {
+            if (fixed[variable] || this.representative[variable] != variable || eliminated[variable]) {
+                continue;
+            }
+            if (occurring[variable] || !simplify) {
+                kept.add(variable);
+                renumbered[variable] = kept.size();
+            } else {
+                // unconstrained variables take both values without asking the solver
+                this.eliminatedVariables.add(variable);
+                this.eliminatedClauses.add(new int[0][]);
+            }
+        }
+        this.amountOfVariables = kept.size();
+        this.originalVariables = new int[kept.size() + 1];
+        for (int i = 0; i < kept.size(); i++) {
+            this.originalVariables[i + 1] = kept.get(i);
+        }
+        this.formulas = database.aliveClauses().stream().map(clause -> Arrays.stream(clause).map(
+                literal -> literal > 0 ? renumbered[literal] : -renumbered[-literal]).boxed()
+                .collect(Collectors.toSet())).collect(Collectors.toSet());
+    }
+
+    /**
+     * Returns the simplification of the given formulas, simplifying them on the calling thread if they are not cached.
+     *
+     * @param fingerprint       Fingerprint of the formulas, used as cache key
+     * @param formulas          Set of clauses, where every clause is a set of literals
+     * @param amountOfVariables Amount of variables of the formula
+     * @param analysis          Analysis of the formulas
+     *
+     * @return The simplified formulas
+     */
+    static CnfPreprocessor of(long fingerprint, Set<Set<Integer>> formulas, int amountOfVariables,
+                              FeatureModelAnalysis analysis) {
+        return CACHE.get(fingerprint, () -> new CnfPreprocessor(formulas, amountOfVariables, analysis));
+    }
+
+    /**
+     * Applies the backbone and replaces every variable by its representative.
+     *
+     * @param clause The original clause
+     * @param fixed  Literals of the backbone
+     *
+     * @return The sorted literals of the simplified clause, {@code null} if it is always satisfied
+     */
+    private int[] substitute(Set<Integer> clause, Set<Integer> fixed) {
+        TreeSet<Integer> literals = new TreeSet<>();
+        for (int literal : clause) {
+            if (fixed.contains(literal)) {
+                return null;
+            }
+            if (fixed.contains(-literal)) {
+                continue;
+            }
+            int replaced = this.representative[Math.abs(literal)];
+            int substituted = literal > 0 ? replaced : -replaced;
+            if (literals.contains(-substituted)) {
+                return null;
+            }
+            literals.add(substituted);
+        }
+        return literals.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Eliminates variables by resolution, starting with the variables occurring in the fewest pairs of clauses. A
+     * variable is only eliminated if the amount of non-tautological resolvents does not exceed the amount of clauses
+     * it occurs in.
+     *
+     * @param database   The current clauses
+     * @param fixed      Variables which are part of the backbone
+     * @param eliminated Variables eliminated so far, extended in place
+     */
+    private void eliminateVariables(ClauseDatabase database, boolean[] fixed, boolean[] eliminated) {
+        for (int round = 0; round < MAX_ELIMINATION_ROUNDS; round++) {
+            List<Integer> candidates = new ArrayList<>();
+            for (int variable = 1; variable <= this.originalAmountOfVariables; variable++) {
+                if (!fixed[variable] && !eliminated[variable] && this.representative[variable] == variable) {
+                    candidates.add(variable);
+                }
+            }
+            int[] pairs = new int[this.originalAmountOfVariables + 1];
+            for (int variable : candidates) {
+                pairs[variable] = database.occurrences(variable).size() * database.occurrences(-variable).size();
+            }
+            candidates.sort(Comparator.comparingInt(variable -> pairs[variable]));
+            boolean changed = false;
+            for (int variable : candidates) {
+                if (this.tryEliminate(database, variable)) {
+                    eliminated[variable] = true;
+                    changed              = true;
+                }
+            }
+            if (!changed) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Eliminates a variable if its resolvents do not grow the formula.
+     *
+     * @param database The current clauses
+     * @param variable The variable to eliminate
+     *
+     * @return Whether the variable has been eliminated
+     */
+    private boolean tryEliminate(ClauseDatabase database, int variable) {
+        List<Integer> positive = database.occurrences(variable);
+        List<Integer> negative = database.occurrences(-variable);
+        if (positive.isEmpty() && negative.isEmpty()) {
+            return false;
+        }
+        if (positive.size() * negative.size() > MAX_RESOLUTION_PAIRS) {
+            return false;
+        }
+        List<int[]> resolvents = new ArrayList<>();
+        for (int p : positive) {
+            for (int n : negative) {
+                int[] resolvent = resolve(database.clause(p), database.clause(n), variable);
+                if (resolvent == null) {
+                    continue;
+                }
+                if (resolvent.length == 0 || resolvent.length > MAX_RESOLVENT_LENGTH
+                    || resolvents.size() == positive.size() + negative.size()) {
+                    return false;
+                }
+                resolvents.add(resolvent);
+            }
+        }
+        List<int[]> removed = new ArrayList<>();
+        for (int c : positive) {
+            removed.add(database.clause(c));
+            database.remove(c);
+        }
+        for (int c : negative) {
+            removed.add(database.clause(c));
+            database.remove(c);
+        }
+        resolvents.forEach(database::add);
+        this.eliminatedVariables.add(variable);
+        this.eliminatedClauses.add(removed.toArray(new int[0][]));
+        return true;
+    }
+
+    /**
+     * Resolves two sorted clauses on a variable.
+     *
+     * @param positive Clause containing the variable
+     * @param negative Clause containing the negated variable
+     * @param variable The variable to resolve on
+     *
+     * @return The sorted literals of the resolvent, {@code null} if it is a tautology
+     */
+    private static int[] resolve(int[] positive, int[] negative, int variable) {
+        TreeSet<Integer> literals = new TreeSet<>();
+        for (int[] clause : new int[][]{positive, negative}) {
+            for (int literal : clause) {
+                if (Math.abs(literal) == variable) {
+                    continue;
+                }
+                if (literals.contains(-literal)) {
+                    return null;
+                }
+                literals.add(literal);
+            }
+        }
+        return literals.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Extends a model of the simplified formula to all models of the original formula agreeing with it.
+     *
+     * @param reducedModel Literals of a model of {@link #getFormulas()}
+     * @param consumer     Receives every extended model as literals over the original variables and returns whether
+     *                     further models should be extended
+     */
+    public void forEachExtension(int[] reducedModel, Predicate<int[]> consumer) {
+        boolean[] values = new boolean[this.originalAmountOfVariables + 1];
+        for (int literal : reducedModel) {
+            int variable = Math.abs(literal);
+            if (variable <= this.amountOfVariables) {
+                values[this.originalVariables[variable]] = literal > 0;
+            }
+        }
+        for (int literal : this.fixedLiterals) {
+            values[Math.abs(literal)] = literal > 0;
+        }
+        int amountEliminated = this.eliminatedVariables.size();
+        // values tried so far for every eliminated variable: 0 none, 1 false, 2 both
+        int[] tried = new int[amountEliminated];
+        int position = amountEliminated - 1;
+        while (position < amountEliminated) {
+            if (position < 0) {
+                if (!consumer.test(this.toOriginalModel(values))) {
+                    return;
+                }
+                position = 0;
+                continue;
+            }
+            if (tried[position] == 2) {
+                tried[position] = 0;
+                position++;
+                continue;
+            }
+            values[this.eliminatedVariables.get(position)] = tried[position]++ == 1;
+            if (satisfiesAll(this.eliminatedClauses.get(position), values)) {
+                position--;
+            }
+        }
+    }
+
+    /**
+     * Completes the values of the replaced variables and converts the assignment to literals.
+     *
+     * @param values Values of all variables except the replaced ones
+     *
+     * @return Literals of the complete model
+     */
+    private int[] toOriginalModel(boolean[] values) {
+        int[] model = new int[this.originalAmountOfVariables];
+        for (int variable = 1; variable <= this.originalAmountOfVariables; variable++) {
+            int literal = this.representative[variable];
+            boolean value = literal > 0 ? values[literal] : !values[-literal];
+            model[variable - 1] = value ? variable : -variable;
+        }
+        return model;
+    }
+
+    private static boolean satisfiesAll(int[][] clauses, boolean[] values) {
+        for (int[] clause : clauses) {
+            boolean satisfied = false;
+            for (int literal : clause) {
+                if (values[Math.abs(literal)] == literal > 0) {
+                    satisfied = true;
+                    break;
+                }
+            }
+            if (!satisfied) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether a complete assignment satisfies all clauses removed by variable elimination. Together with the
+     * backbone, the equivalences and {@link #getFormulas()}, these clauses are equivalent to the original formula.
+     *
+     * @param activeVariables The original variables which are true, all others are false
+     *
+     * @return Whether all eliminated clauses are satisfied
+     */
+    public boolean satisfiesEliminatedClauses(Set<Integer> activeVariables) {
+        boolean[] values = new boolean[this.originalAmountOfVariables + 1];
+        activeVariables.stream().filter(variable -> variable <= this.originalAmountOfVariables)
+                .forEach(variable -> values[variable] = true);
+        return this.eliminatedClauses.stream().allMatch(clauses -> satisfiesAll(clauses, values));
+    }
+
+    /**
+     * Converts a complete assignment of the original variables to assumptions over the renumbered variables.
+     *
+     * @param activeVariables The original variables which are true, all others are false
+     *
+     * @return One literal per variable of {@link #getFormulas()}
+     */
+    public int[] toReducedAssumptions(Set<Integer> activeVariables) {
+        int[] assumptions = new int[this.amountOfVariables];
+        for (int variable = 1; variable <= this.amountOfVariables; variable++) {
+            assumptions[variable - 1] = activeVariables.contains(this.originalVariables[variable]) ? variable :
+                                        -variable;
+        }
+        return assumptions;
+    }
+
+    /**
+     * Mutable set of sorted clauses with occurrence lists, used while simplifying.
+     */
+    private static class ClauseDatabase {
+
+        private final List<int[]> clauses = new ArrayList<>();
+        private final List<Boolean> alive = new ArrayList<>();
+        private final Set<List<Integer>> contained = new HashSet<>();
+        private final List<List<Integer>> occurrences;
+
+        ClauseDatabase(int amountOfVariables) {
+            this.occurrences = new ArrayList<>(2 * amountOfVariables + 2);
+            for (int i = 0; i < 2 * amountOfVariables + 2; i++) {
+                this.occurrences.add(new ArrayList<>());
+            }
+        }
+
+        private static int literalIndex(int literal) {
+            return literal > 0 ? 2 * literal : -2 * literal + 1;
+        }
+
+        private static List<Integer> key(int[] clause) {
+            return Arrays.stream(clause).boxed().collect(Collectors.toList());
+        }
+
+        void add(int[] clause) {
+            if (!this.contained.add(key(clause))) {
+                return;
+            }
+            int index = this.clauses.size();
+            this.clauses.add(clause);
+            this.alive.add(true);
+            for (int literal : clause) {
+                this.occurrences.get(literalIndex(literal)).add(index);
+            }
+        }
+
+        void remove(int index) {
+            if (this.alive.get(index)) {
+                this.alive.set(index, false);
+                this.contained.remove(key(this.clauses.get(index)));
+            }
+        }
+
+        int[] clause(int index) {
+            return this.clauses.get(index);
+        }
+
+        /**
+         * Returns the alive clauses containing a literal and drops removed clauses from its occurrence list.
+         */
+        List<Integer> occurrences(int literal) {
+            List<Integer> list = this.occurrences.get(literalIndex(literal));
+            list.removeIf(index -> !this.alive.get(index));
+            return new ArrayList<>(list);
+        }
+
+        List<int[]> aliveClauses() {
+            List<int[]> result = new ArrayList<>();
+            for (int i = 0; i < this.clauses.size(); i++) {
+                if (this.alive.get(i)) {
+                    result.add(this.clauses.get(i));
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Removes every clause which contains all literals of a shorter or equally long other clause.
+         */
+        void removeSubsumed() {
+            List<Integer> order = new ArrayList<>();
+            for (int i = 0; i < this.clauses.size(); i++) {
+                if (this.alive.get(i)) {
+                    order.add(i);
+                }
+            }
+            order.sort(Comparator.comparingInt(i -> this.clauses.get(i).length));
+            for (int c : order) {
+                if (!this.alive.get(c)) {
+                    continue;
+                }
+                int[] clause = this.clauses.get(c);
+                if (clause.length == 0) {
+                    continue;
+                }
+                int rarest = clause[0];
+                for (int literal : clause) {
+                    if (this.occurrences.get(literalIndex(literal)).size()
+                        < this.occurrences.get(literalIndex(rarest)).size()) {
+                        rarest = literal;
+                    }
+                }
+                for (int d : this.occurrences(rarest)) {
+                    if (d != c && isSubset(clause, this.clauses.get(d))) {
+                        this.remove(d);
+                    }
+                }
+            }
+        }
+
+        private static boolean isSubset(int[] smaller, int[] larger) {
+            int j = 0;
+            for (int literal : smaller) {
+                while (j < larger.length && larger[j] < literal) {
+                    j++;
+                }
+                if (j == larger.length || larger[j] != literal) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
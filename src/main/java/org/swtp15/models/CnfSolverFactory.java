@@ -0,0 +1,114 @@
+package org.swtp15.models;
+
+import org.sat4j.core.VecInt;
+import org.sat4j.minisat.SolverFactory;
+import org.sat4j.pb.IPBSolver;
+import org.sat4j.pb.OptToPBSATAdapter;
+import org.sat4j.pb.PseudoOptDecorator;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.ISolver;
+import org.sat4j.specs.TimeoutException;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Creates sat4j solvers which are loaded with the clauses of a {@link FeatureModel}, and runs the pseudo-boolean
+ * optimizations over them.
+ */
+final class CnfSolverFactory {
+
+    /**
+     * Timeout of a single solver call in seconds.
+     */
+    static final int SOLVER_TIMEOUT = 60;
+
+    private CnfSolverFactory() {
+    }
+
+    /**
+     * Creates a new default solver containing all given clauses.
+     *
+     * @param formulas          Set of clauses, where every clause is a set of literals
+     * @param amountOfVariables Amount of variables the solver has to know
+     *
+     * @return The loaded solver
+     *
+     * @throws ContradictionException If the clauses are trivially unsatisfiable
+     */
+    static ISolver newSolver(Set<Set<Integer>> formulas, int amountOfVariables) throws ContradictionException {
+        return load(SolverFactory.newDefault(), formulas, amountOfVariables);
+    }
+
+    /**
+     * Creates a new default pseudo-boolean solver containing all given clauses, which also accepts weighted
+     * constraints.
+     *
+     * @param formulas          Set of clauses, where every clause is a set of literals
+     * @param amountOfVariables Amount of variables the solver has to know
+     *
+     * @return The loaded solver
+     *
+     * @throws ContradictionException If the clauses are trivially unsatisfiable
+     */
+    static IPBSolver newPseudoBooleanSolver(Set<Set<Integer>> formulas, int amountOfVariables)
+    throws ContradictionException {
+        IPBSolver solver = org.sat4j.pb.SolverFactory.newDefault();
+        load(solver, formulas, amountOfVariables);
+        return solver;
+    }
+
+    /**
+     * Loads all given clauses into a freshly created solver of any configuration.
+     *
+     * @param solver            The empty solver
+     * @param formulas          Set of clauses, where every clause is a set of literals
+     * @param amountOfVariables Amount of variables the solver has to know
+     *
+     * @return The loaded solver
+     *
+     * @throws ContradictionException If the clauses are trivially unsatisfiable
+     */
+    static ISolver load(ISolver solver, Set<Set<Integer>> formulas, int amountOfVariables)
+    throws ContradictionException {
+        solver.setTimeout(SOLVER_TIMEOUT);
+        solver.newVar(amountOfVariables);
+        solver.setExpectedNumberOfClauses(formulas.size());
+        for (Set<Integer> clause : formulas) {
+            solver.addClause(new VecInt(clause.stream().mapToInt(Integer::intValue).toArray()));
+        }
+        return solver;
+    }
+
+    /**
+     * Finds an optimal model of a pseudo-boolean optimization problem.
+     *
+     * @param optimizer         Decorator holding the constraints and the objective function to minimize
+     * @param amountOfVariables Amount of variables of the formula, auxiliary variables beyond are left out
+     *
+     * @return The true variables of an optimal model, empty if the constraints have no model
+     *
+     * @throws TimeoutException If the solver did not prove the optimum in time
+     */
+    static Optional<Set<Integer>> optimize(PseudoOptDecorator optimizer, int amountOfVariables)
+    throws TimeoutException {
+        OptToPBSATAdapter solver = new OptToPBSATAdapter(optimizer);
+        solver.setTimeout(SOLVER_TIMEOUT);
+        if (!solver.isSatisfiable()) {
+            return Optional.empty();
+        }
+        // the adapter only improves the first solution to the optimum when asked for the model
+        int[] model = solver.model();
+        if (!solver.isOptimal()) {
+            throw new TimeoutException("Optimum not proven within the timeout");
+        }
+        Set<Integer> active = new HashSet<>();
+        for (int literal : model) {
+            if (literal > 0 && literal <= amountOfVariables) {
+                active.add(literal);
+            }
+        }
+        return Optional.of(active);
+    }
+}
@@ -0,0 +1,578 @@
+package org.swtp15.models;
+
+import lombok.Getter;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * A {@link PerformanceInfluenceModel} compiled into primitive arrays, so a configuration is evaluated without creating
+ * any objects.
+ * <p>
+ * Every feature occurring in an influence gets an index. A configuration is packed into a bitset of {@code long} words,
+ * where bit {@code i} is set if the feature with index {@code i} is active, and an {@code int} array holding the values
+ * of the numeric features. Each influence is compiled into a bitmask of its required features, the indices of its
+ * numeric features and a row of the coefficient matrix, with one column per property. An influence applies if its
+ * bitmask is contained in the packed configuration, and then adds its row multiplied by the product of its numeric
+ * values.
+ * <p>
+ * For sparse evaluation an inverted index lists the influences mentioning each feature. Walking the postings of the
+ * active features counts the active features of every touched influence, and an influence applies once its counter
+ * reaches its amount of features. The cost then scales with the postings of the active features instead of the total
+ * amount of influences.
+ * <p>
+ * Many configurations are evaluated column by column as a {@link ConfigurationBatch}. The batch is split into chunks
+ * evaluated in parallel on the common ForkJoin pool. Per chunk and influence, the feature columns are combined by
+ * bitwise and. An influence without numeric features adds its coefficients for every set bit. Otherwise the bits are
+ * unpacked into a weight per configuration, multiplied by the numeric columns and added to the result columns of the
+ * properties, in loops over plain arrays without branches, which the JIT can compile to SIMD instructions.
+ */
+public class CompiledPerformanceModel {
+
+    /**
+     * Amount of {@code long} words of the feature columns evaluated together, 4096 configurations.
+     */
+    private static final int WORDS_PER_CHUNK = 64;
+
+    /**
+     * Properties in the order of the columns of the coefficient matrix.
+     */
+    @Getter
+    private final List<Property> properties;
+
+    /**
+     * Influences in the order of the rows of the coefficient matrix.
+     */
+    @Getter
+    private final List<FeatureInfluence> influences;
+
+    /**
+     * Number of {@code long} words of a packed configuration and of the bitmask of an influence.
+     */
+    @Getter
+    private final int wordsPerConfiguration;
+
+    private final Map<String, Integer> featureIndices;
+    private final Map<Property, Integer> propertyIndices;
+    private final boolean[] numericFeatures;
+
+    /**
+     * Bitmasks of the required features, {@link #wordsPerConfiguration} words per influence.
+     */
+    private final long[] requiredFeatures;
+    private final int[][] numericFeatureIndices;
+    private final double[][] coefficients;
+
+    /**
+     * Inverted index from every feature to the rows of the influences mentioning it.
+     */
+    private final int[][] influencesByFeature;
+
+    /**
+     * Distinct indices of the features of every influence.
+     */
+    private final int[][] featuresOfInfluence;
+
+    /**
+     * Rows of the influences without features, which apply to every configuration.
+     */
+    private final int[] unconditionalInfluences;
+
+    /**
+     * Scratch counters of the sparse evaluation per thread, one per influence, which are zero between evaluations.
+     */
+    private final ThreadLocal<int[]> counters;
+
+    /**
+     * Scratch rows of the applying influences per thread, one entry per influence.
+     */
+    private final ThreadLocal<int[]> applying;
+
+    /**
+     * Compiles the influences of a performance model.
+     *
+     * @param properties The properties of the model
+     * @param influences The influences of the model
+     */
+    public CompiledPerformanceModel(Set<Property> properties, Set<FeatureInfluence> influences) {
+        this.properties      = List.copyOf(properties);
+        this.influences      = List.copyOf(influences);
+        this.featureIndices  = new HashMap<>();
+        this.propertyIndices = new HashMap<>();
+        for (int i = 0; i < this.properties.size(); i++) {
+            this.propertyIndices.put(this.properties.get(i), i);
+        }
+        List<Feature> features = new ArrayList<>();
+        for (FeatureInfluence influence : this.influences) {
+            for (Feature feature : influence.getActiveFeatures()) {
+                if (!this.featureIndices.containsKey(feature.getName())) {
+                    this.featureIndices.put(feature.getName(), features.size());
+                    features.add(feature);
+                }
+            }
+        }
+        this.wordsPerConfiguration = (features.size() >> 6) + 1;
+        this.numericFeatures       = new boolean[features.size()];
+        for (int i = 0; i < features.size(); i++) {
+            this.numericFeatures[i] = !features.get(i).isBinary();
+        }
+
+        this.requiredFeatures      = new long[this.influences.size() * this.wordsPerConfiguration];
+        this.numericFeatureIndices = new int[this.influences.size()][];
+        this.coefficients          = new double[this.influences.size()][this.properties.size()];
+        for (int row = 0; row < this.influences.size(); row++) {
+            FeatureInfluence influence = this.influences.get(row);
+            int offset = row * this.wordsPerConfiguration;
+            for (Feature feature : influence.getActiveFeatures()) {
+                int index = this.featureIndices.get(feature.getName());
+                this.requiredFeatures[offset + (index >> 6)] |= 1L << index;
+            }
+            this.numericFeatureIndices[row] = influence.getActiveFeatures().stream()
+                    .mapToInt(feature -> this.featureIndices.get(feature.getName()))
+                    .filter(index -> this.numericFeatures[index]).toArray();
+            for (Map.Entry<Property, Double> entry : influence.getPropertyInfluence().entrySet()) {
+                this.coefficients[row][this.propertyIndices.get(entry.getKey())] += entry.getValue();
+            }
+        }
+
+        List<List<Integer>> postings = new ArrayList<>();
+        features.forEach(feature -> postings.add(new ArrayList<>()));
+        List<Integer> unconditional = new ArrayList<>();
+        this.featuresOfInfluence = new int[this.influences.size()][];
+        for (int row = 0; row < this.influences.size(); row++) {
+            Set<Integer> required = new HashSet<>();
+            for (Feature feature : this.influences.get(row).getActiveFeatures()) {
+                required.add(this.featureIndices.get(feature.getName()));
+            }
+            this.featuresOfInfluence[row] = required.stream().mapToInt(Integer::intValue).toArray();
+            if (required.isEmpty()) {
+                unconditional.add(row);
+            }
+            for (int index : required) {
+                postings.get(index).add(row);
+            }
+        }
+        this.influencesByFeature     = postings.stream()
+                .map(rows -> rows.stream().mapToInt(Integer::intValue).toArray()).toArray(int[][]::new);
+        this.unconditionalInfluences = unconditional.stream().mapToInt(Integer::intValue).toArray();
+        this.counters                = ThreadLocal.withInitial(() -> new int[this.influences.size()]);
+        this.applying                = ThreadLocal.withInitial(() -> new int[this.influences.size()]);
+    }
+
+    /**
+     * Returns the amount of features occurring in the influences, which is the length of the array of numeric values.
+     *
+     * @return The amount of indexed features
+     */
+    public int getAmountOfFeatures() {
+        return this.numericFeatures.length;
+    }
+
+    /**
+     * Checks whether a feature is numeric.
+     *
+     * @param feature Index of the feature
+     *
+     * @return Whether the feature is numeric
+     */
+    public boolean isNumeric(int feature) {
+        return this.numericFeatures[feature];
+    }
+
+    /**
+     * Returns the index of a property in the arrays of evaluated values.
+     *
+     * @param property The property
+     *
+     * @return The index of the property or {@code -1} if it is not part of the model
+     */
+    public int indexOf(Property property) {
+        return this.propertyIndices.getOrDefault(property, -1);
+    }
+
+    /**
+     * Returns the index of a feature in packed configurations.
+     *
+     * @param featureName Name of the feature
+     *
+     * @return The index of the feature or {@code -1} if it does not occur in any influence
+     */
+    public int indexOf(String featureName) {
+        return this.featureIndices.getOrDefault(featureName, -1);
+    }
+
+    /**
+     * Packs a configuration into caller-supplied arrays. Active binary features and all numeric features of the
+     * configuration are set in the bitset. Features which do not occur in any influence are ignored.
+     *
+     * @param configuration  The configuration to pack
+     * @param activeFeatures Bitset of {@link #wordsPerConfiguration} words receiving the active features
+     * @param numericValues  Array of {@link #getAmountOfFeatures()} values receiving the numeric values
+     */
+    public void pack(FeatureConfiguration configuration, long[] activeFeatures, int[] numericValues) {
+        Arrays.fill(activeFeatures, 0L);
+        configuration.getBinaryFeatures().forEach((name, active) -> {
+            Integer index = this.featureIndices.get(name);
+            if (index != null && active) {
+                activeFeatures[index >> 6] |= 1L << index;
+            }
+        });
+        configuration.getNumericFeatures().forEach((name, value) -> {
+            Integer index = this.featureIndices.get(name);
+            if (index != null) {
+                activeFeatures[index >> 6] |= 1L << index;
+                numericValues[index] = value;
+            }
+        });
+    }
+
+    /**
+     * Checks whether an influence applies to a packed configuration.
+     *
+     * @param influence      Row of the influence
+     * @param activeFeatures Bitset of the active features
+     *
+     * @return Whether all features of the influence are active
+     */
+    public boolean applies(int influence, long[] activeFeatures) {
+        int offset = influence * this.wordsPerConfiguration;
+        for (int word = 0; word < this.wordsPerConfiguration; word++) {
+            long required = this.requiredFeatures[offset + word];
+            if ((activeFeatures[word] & required) != required) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Calculates the factor of an influence as the product of the values of its numeric features.
+     *
+     * @param influence     Row of the influence
+     * @param numericValues Values of the numeric features
+     *
+     * @return The factor, 1 if the influence has no numeric features
+     */
+    public int factor(int influence, int[] numericValues) {
+        int factor = 1;
+        for (int index : this.numericFeatureIndices[influence]) {
+            factor *= numericValues[index];
+        }
+        return factor;
+    }
+
+    /**
+     * Returns the coefficient of an influence on a property.
+     *
+     * @param influence Row of the influence
+     * @param property  Column of the property
+     *
+     * @return The value the influence adds to the property per unit of its factor
+     */
+    public double coefficient(int influence, int property) {
+        return this.coefficients[influence][property];
+    }
+
+    /**
+     * Evaluates a packed configuration into a caller-supplied array without allocating.
+     *
+     * @param activeFeatures Bitset of the active features
+     * @param numericValues  Values of the numeric features
+     * @param values         Array of one value per property, in the order of {@link #properties}, which is overwritten
+     *                       with the evaluated values
+     */
+    public void evaluate(long[] activeFeatures, int[] numericValues, double[] values) {
+        Arrays.fill(values, 0.0);
+        for (int row = 0; row < this.coefficients.length; row++) {
+            if (!this.applies(row, activeFeatures)) {
+                continue;
+            }
+            int factor = this.factor(row, numericValues);
+            double[] coefficientRow = this.coefficients[row];
+            for (int column = 0; column < coefficientRow.length; column++) {
+                values[column] += factor * coefficientRow[column];
+            }
+        }
+    }
+
+    /**
+     * Switches a feature of a packed configuration on or off and updates its evaluated values in place, by adding or
+     * removing only the influences mentioning the feature.
+     *
+     * @param feature        Index of the feature
+     * @param active         Whether the feature becomes active
+     * @param activeFeatures Bitset of the active features, updated in place
+     * @param numericValues  Values of the numeric features
+     * @param values         Evaluated values of the configuration, updated in place
+     */
+    public void setFeature(int feature, boolean active, long[] activeFeatures, int[] numericValues, double[] values) {
+        long bit = 1L << feature;
+        if (((activeFeatures[feature >> 6] & bit) != 0) == active) {
+            return;
+        }
+        activeFeatures[feature >> 6] |= bit;
+        double sign = active ? 1.0 : -1.0;
+        for (int row : this.influencesByFeature[feature]) {
+            if (this.applies(row, activeFeatures)) {
+                int factor = this.factor(row, numericValues);
+                double[] coefficientRow = this.coefficients[row];
+                for (int column = 0; column < coefficientRow.length; column++) {
+                    values[column] += sign * factor * coefficientRow[column];
+                }
+            }
+        }
+        if (!active) {
+            activeFeatures[feature >> 6] &= ~bit;
+        }
+    }
+
+    /**
+     * Changes the value of a numeric feature of a packed configuration and updates its evaluated values in place, by
+     * replacing the contribution of the applying influences mentioning the feature. A numeric feature missing from
+     * the configuration becomes active.
+     *
+     * @param feature        Index of the numeric feature
+     * @param value          The new value of the feature
+     * @param activeFeatures Bitset of the active features, updated in place
+     * @param numericValues  Values of the numeric features, updated in place
+     * @param values         Evaluated values of the configuration, updated in place
+     */
+    public void setNumericValue(int feature, int value, long[] activeFeatures, int[] numericValues, double[] values) {
+        if ((activeFeatures[feature >> 6] & 1L << feature) == 0) {
+            numericValues[feature] = value;
+            this.setFeature(feature, true, activeFeatures, numericValues, values);
+            return;
+        }
+        int previous = numericValues[feature];
+        for (int row : this.influencesByFeature[feature]) {
+            if (this.applies(row, activeFeatures)) {
+                int previousFactor = this.factor(row, numericValues);
+                numericValues[feature] = value;
+                int factor = this.factor(row, numericValues);
+                numericValues[feature] = previous;
+                double[] coefficientRow = this.coefficients[row];
+                for (int column = 0; column < coefficientRow.length; column++) {
+                    values[column] += factor * coefficientRow[column] - previousFactor * coefficientRow[column];
+                }
+            }
+        }
+        numericValues[feature] = value;
+    }
+
+    /**
+     * Changes a packed configuration into another one and updates its evaluated values in place, touching only the
+     * influences mentioning a feature which differs between both.
+     *
+     * @param targetFeatures Bitset of the active features of the other configuration
+     * @param targetValues   Values of the numeric features of the other configuration
+     * @param activeFeatures Bitset of the active features, updated in place
+     * @param numericValues  Values of the numeric features, updated in place
+     * @param values         Evaluated values of the configuration, updated in place
+     */
+    public void update(long[] targetFeatures, int[] targetValues, long[] activeFeatures, int[] numericValues,
+                       double[] values) {
+        for (int word = 0; word < this.wordsPerConfiguration; word++) {
+            for (long bits = activeFeatures[word] & targetFeatures[word]; bits != 0; bits &= bits - 1) {
+                int feature = (word << 6) + Long.numberOfTrailingZeros(bits);
+                if (this.numericFeatures[feature] && numericValues[feature] != targetValues[feature]) {
+                    this.setNumericValue(feature, targetValues[feature], activeFeatures, numericValues, values);
+                }
+            }
+            for (long bits = activeFeatures[word] ^ targetFeatures[word]; bits != 0; bits &= bits - 1) {
+                int feature = (word << 6) + Long.numberOfTrailingZeros(bits);
+                boolean active = (targetFeatures[word] & 1L << feature) != 0;
+                if (active) {
+                    numericValues[feature] = targetValues[feature];
+                }
+                this.setFeature(feature, active, activeFeatures, numericValues, values);
+            }
+        }
+    }
+
+    /**
+     * Finds the influences applying to a packed configuration through the inverted index, touching only the postings
+     * of the active features.
+     *
+     * @param activeFeatures Bitset of the active features
+     * @param counters       Scratch array of one counter per influence, which must be zero and is left zero
+     * @param applying       Array of one entry per influence receiving the rows of the applying influences
+     *
+     * @return The amount of applying influences written to the start of {@code applying}
+     */
+    public int findApplyingInfluences(long[] activeFeatures, int[] counters, int[] applying) {
+        int amount = 0;
+        for (int row : this.unconditionalInfluences) {
+            applying[amount++] = row;
+        }
+        for (int word = 0; word < this.wordsPerConfiguration; word++) {
+            for (long bits = activeFeatures[word]; bits != 0; bits &= bits - 1) {
+                for (int row : this.influencesByFeature[(word << 6) + Long.numberOfTrailingZeros(bits)]) {
+                    if (++counters[row] == this.featuresOfInfluence[row].length) {
+                        applying[amount++] = row;
+                    }
+                }
+            }
+        }
+        for (int word = 0; word < this.wordsPerConfiguration; word++) {
+            for (long bits = activeFeatures[word]; bits != 0; bits &= bits - 1) {
+                for (int row : this.influencesByFeature[(word << 6) + Long.numberOfTrailingZeros(bits)]) {
+                    counters[row] = 0;
+                }
+            }
+        }
+        return amount;
+    }
+
+    /**
+     * Finds the influences applying to a packed configuration through the inverted index, using the scratch arrays of
+     * the calling thread.
+     *
+     * @param activeFeatures Bitset of the active features
+     *
+     * @return The rows of the applying influences
+     */
+    public int[] findApplyingInfluences(long[] activeFeatures) {
+        int[] rows = this.applying.get();
+        int amount = this.findApplyingInfluences(activeFeatures, this.counters.get(), rows);
+        return Arrays.copyOf(rows, amount);
+    }
+
+    /**
+     * Breaks a packed configuration down into the influences applying to it.
+     *
+     * @param activeFeatures Bitset of the active features
+     * @param numericValues  Values of the numeric features
+     *
+     * @return Map from the applying influences to their factor
+     */
+    public Map<FeatureInfluence, Integer> breakdown(long[] activeFeatures, int[] numericValues) {
+        int[] rows = this.findApplyingInfluences(activeFeatures);
+        Map<FeatureInfluence, Integer> breakdown = new HashMap<>(rows.length * 4 / 3 + 1);
+        for (int row : rows) {
+            breakdown.put(this.influences.get(row), this.factor(row, numericValues));
+        }
+        return breakdown;
+    }
+
+    /**
+     * Evaluates a packed configuration through the inverted index into a caller-supplied array, using the scratch
+     * arrays of the calling thread instead of allocating.
+     *
+     * @param activeFeatures Bitset of the active features
+     * @param numericValues  Values of the numeric features
+     * @param values         Array of one value per property, in the order of {@link #properties}, which is overwritten
+     *                       with the evaluated values
+     */
+    public void evaluateSparse(long[] activeFeatures, int[] numericValues, double[] values) {
+        int[] rows = this.applying.get();
+        int amount = this.findApplyingInfluences(activeFeatures, this.counters.get(), rows);
+        this.evaluate(rows, amount, numericValues, values);
+    }
+
+    /**
+     * Evaluates the given applying influences into a caller-supplied array without allocating.
+     *
+     * @param applying      Rows of the applying influences, as found by {@link #findApplyingInfluences}
+     * @param amount        Amount of applying influences at the start of {@code applying}
+     * @param numericValues Values of the numeric features
+     * @param values        Array of one value per property, in the order of {@link #properties}, which is overwritten
+     *                      with the evaluated values
+     */
+    public void evaluate(int[] applying, int amount, int[] numericValues, double[] values) {
+        Arrays.fill(values, 0.0);
+        for (int i = 0; i < amount; i++) {
+            int row = applying[i];
+            int factor = this.factor(row, numericValues);
+            double[] coefficientRow = this.coefficients[row];
+            for (int column = 0; column < coefficientRow.length; column++) {
+                values[column] += factor * coefficientRow[column];
+            }
+        }
+    }
+
+    /**
+     * Evaluates a batch of configurations column by column, splitting it into chunks which are evaluated in parallel.
+     *
+     * @param batch The configurations to evaluate
+     *
+     * @return The evaluated values as matrix of one column per property, the value of property {@code p} for
+     * configuration {@code c} is at index {@code p * batch.getSize() + c}
+     *
+     * @throws IllegalArgumentException If the batch was packed for another compiled model
+     */
+    public double[] evaluate(ConfigurationBatch batch) throws IllegalArgumentException {
+        if (batch.getModel() != this) {
+            throw ModelExceptions.BATCH_OF_OTHER_MODEL;
+        }
+        double[] values = new double[this.properties.size() * batch.getSize()];
+        int chunks = (batch.getWordsPerFeature() + WORDS_PER_CHUNK - 1) / WORDS_PER_CHUNK;
+        IntStream.range(0, chunks).parallel().forEach(chunk -> this.evaluateChunk(batch, chunk, values));
+        return values;
+    }
+
+    /**
+     * Evaluates a chunk of the configurations of a batch. Only writes the values of the configurations in the chunk,
+     * so chunks can be evaluated concurrently.
+     *
+     * @param batch  The configurations to evaluate
+     * @param chunk  Index of the chunk
+     * @param values The result matrix of one column per property
+     */
+    private void evaluateChunk(ConfigurationBatch batch, int chunk, double[] values) {
+        int firstWord = chunk * WORDS_PER_CHUNK;
+        int words = Math.min(WORDS_PER_CHUNK, batch.getWordsPerFeature() - firstWord);
+        int first = firstWord << 6;
+        int size = Math.min(words << 6, batch.getSize() - first);
+        long[] applying = new long[words];
+        double[] weights = new double[size];
+        for (int row = 0; row < this.coefficients.length; row++) {
+            Arrays.fill(applying, -1L);
+            long any = 0;
+            for (int feature : this.featuresOfInfluence[row]) {
+                int offset = feature * batch.getWordsPerFeature() + firstWord;
+                for (int word = 0; word < words; word++) {
+                    applying[word] &= batch.featureColumns[offset + word];
+                }
+            }
+            if ((size & 63) != 0) {
+                applying[words - 1] &= (1L << size) - 1;
+            }
+            for (int word = 0; word < words; word++) {
+                any |= applying[word];
+            }
+            if (any == 0) {
+                continue;
+            }
+            if (this.numericFeatureIndices[row].length == 0) {
+                double[] coefficientRow = this.coefficients[row];
+                for (int property = 0; property < coefficientRow.length; property++) {
+                    double coefficient = coefficientRow[property];
+                    int offset = property * batch.getSize() + first;
+                    for (int word = 0; word < words; word++) {
+                        for (long bits = applying[word]; bits != 0; bits &= bits - 1) {
+                            values[offset + (word << 6) + Long.numberOfTrailingZeros(bits)] += coefficient;
+                        }
+                    }
+                }
+                continue;
+            }
+            for (int c = 0; c < size; c++) {
+                weights[c] = (applying[c >> 6] >>> c) & 1L;
+            }
+            for (int feature : this.numericFeatureIndices[row]) {
+                int[] column = batch.numericColumns[feature];
+                for (int c = 0; c < size; c++) {
+                    weights[c] *= column[first + c];
+                }
+            }
+            double[] coefficientRow = this.coefficients[row];
+            for (int property = 0; property < coefficientRow.length; property++) {
+                double coefficient = coefficientRow[property];
+                int offset = property * batch.getSize() + first;
+                for (int c = 0; c < size; c++) {
+                    values[offset + c] += coefficient * weights[c];
+                }
+            }
+        }
+    }
+}
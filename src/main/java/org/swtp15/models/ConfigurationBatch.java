@@ -0,0 +1,138 @@
+package org.swtp15.models;
+
+import lombok.Getter;
+
+/**
+ * Many configurations packed column by column for the batch evaluation of a {@link CompiledPerformanceModel}.
+ * <p>
+ * Every feature of the model owns a column, which is a bitset over the configurations of the batch: bit {@code c} of
+ * the column of feature {@code f} is set if {@code f} is active in configuration {@code c}. Numeric features
+ * additionally own a column holding their value per configuration. Whether an influence applies to a range of
+ * configurations is then the bitwise and of the columns of its features.
+ */
+public class ConfigurationBatch {
+
+    /**
+     * The compiled model whose feature indices are used for the columns.
+     */
+    @Getter
+    private final CompiledPerformanceModel model;
+
+    /**
+     * Amount of configurations in the batch.
+     */
+    @Getter
+    private final int size;
+
+    /**
+     * Number of {@code long} words of every feature column.
+     */
+    @Getter
+    private final int wordsPerFeature;
+
+    /**
+     * Feature columns, {@link #wordsPerFeature} words per feature.
+     */
+    final long[] featureColumns;
+
+    /**
+     * Value columns of the numeric features, {@code null} for binary features.
+     */
+    final int[][] numericColumns;
+
+    /**
+     * Instantiates a batch of configurations in which no feature is active.
+     *
+     * @param model The compiled model the batch will be evaluated by
+     * @param size  Amount of configurations
+     */
+    public ConfigurationBatch(CompiledPerformanceModel model, int size) {
+        this.model           = model;
+        this.size            = size;
+        this.wordsPerFeature = (size + 63) >> 6;
+        this.featureColumns  = new long[model.getAmountOfFeatures() * this.wordsPerFeature];
+        this.numericColumns  = new int[model.getAmountOfFeatures()][];
+        for (int feature = 0; feature < model.getAmountOfFeatures(); feature++) {
+            if (model.isNumeric(feature)) {
+                this.numericColumns[feature] = new int[size];
+            }
+        }
+    }
+
+    /**
+     * Packs a configuration into the batch. Active binary features and all numeric features of the configuration are
+     * set. Features which do not occur in any influence are ignored.
+     *
+     * @param configuration Index of the configuration in the batch
+     * @param features      The configuration to pack
+     */
+    public void set(int configuration, FeatureConfiguration features) {
+        features.getBinaryFeatures().forEach((name, active) -> {
+            int feature = this.model.indexOf(name);
+            if (feature >= 0) {
+                this.setFeature(configuration, feature, active);
+            }
+        });
+        features.getNumericFeatures().forEach((name, value) -> {
+            int feature = this.model.indexOf(name);
+            if (feature >= 0 && this.model.isNumeric(feature)) {
+                this.setNumericValue(configuration, feature, value);
+            } else if (feature >= 0) {
+                this.setFeature(configuration, feature, true);
+            }
+        });
+    }
+
+    /**
+     * Copies a configuration packed by {@link CompiledPerformanceModel#pack} into the batch.
+     *
+     * @param configuration  Index of the configuration in the batch
+     * @param activeFeatures Bitset of the active features
+     * @param numericValues  Values of the numeric features
+     */
+    void set(int configuration, long[] activeFeatures, int[] numericValues) {
+        for (int word = 0; word < activeFeatures.length; word++) {
+            for (long bits = activeFeatures[word]; bits != 0; bits &= bits - 1) {
+                this.setFeature(configuration, (word << 6) + Long.numberOfTrailingZeros(bits), true);
+            }
+        }
+        for (int feature = 0; feature < this.numericColumns.length; feature++) {
+            if (this.numericColumns[feature] != null) {
+                this.numericColumns[feature][configuration] = numericValues[feature];
+            }
+        }
+    }
+
+    /**
+     * Sets whether a feature is active in a configuration.
+     *
+     * @param configuration Index of the configuration in the batch
+     * @param feature       Index of the feature in the compiled model
+     * @param active        Whether the feature is active
+     */
+    public void setFeature(int configuration, int feature, boolean active) {
+        int word = feature * this.wordsPerFeature + (configuration >> 6);
+        if (active) {
+            this.featureColumns[word] |= 1L << configuration;
+        } else {
+            this.featureColumns[word] &= ~(1L << configuration);
+        }
+    }
+
+    /**
+     * Sets the value of a numeric feature in a configuration, which makes the feature active.
+     *
+     * @param configuration Index of the configuration in the batch
+     * @param feature       Index of the numeric feature in the compiled model
+     * @param value         The value of the feature
+     *
+     * @throws UnsupportedOperationException If the feature is not numeric
+     */
+    public void setNumericValue(int configuration, int feature, int value) throws UnsupportedOperationException {
+        if (this.numericColumns[feature] == null) {
+            throw ModelExceptions.FEATURE_NOT_A_NUMERIC_FEATURE;
+        }
+        this.numericColumns[feature][configuration] = value;
+        this.setFeature(configuration, feature, true);
+    }
+}
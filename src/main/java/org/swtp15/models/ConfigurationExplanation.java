@@ -0,0 +1,45 @@
+package org.swtp15.models;
+
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Explanation why the selections of a configuration can not be extended to a valid configuration of a
+ * {@link FeatureModel}.
+ */
+public class ConfigurationExplanation {
+
+    /**
+     * Selected values of the binary features which conflict with each other.
+     */
+    @Getter
+    private final Map<String, Boolean> selections;
+
+    /**
+     * Constraints of the feature model conflicting with the selections, every clause as map from the feature names to
+     * the value satisfying the clause.
+     */
+    @Getter
+    private final List<Map<String, Boolean>> clauses;
+
+    /**
+     * Whether no selection and no clause can be left out, false if the time budget ran out before.
+     */
+    @Getter
+    private final boolean minimal;
+
+    /**
+     * Instantiates a ConfigurationExplanation.
+     *
+     * @param selections Conflicting values of the binary features
+     * @param clauses    Clauses conflicting with the selections
+     * @param minimal    Whether the explanation is minimal
+     */
+    ConfigurationExplanation(Map<String, Boolean> selections, List<Map<String, Boolean>> clauses, boolean minimal) {
+        this.selections = selections;
+        this.clauses    = clauses;
+        this.minimal    = minimal;
+    }
+}
@@ -0,0 +1,66 @@
+package org.swtp15.models;
+
+import org.sat4j.core.VecInt;
+import org.sat4j.maxsat.WeightedMaxSatDecorator;
+import org.sat4j.pb.PseudoOptDecorator;
+import org.sat4j.pb.SolverFactory;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Repairs a configuration by finding the valid configuration which changes it the least, as a weighted partial MaxSAT
+ * problem solved with sat4j-maxsat.
+ * <p>
+ * The clauses of the feature model are hard, while keeping the value of every variable is a soft unit clause. Its
+ * weight is the cost of flipping the variable, so a single optimization yields the repair with the fewest flips, or
+ * with the fewest flips of heavily weighted variables first.
+ */
+public class ConfigurationRepair {
+
+    private final Set<Set<Integer>> formulas;
+    private final int amountOfVariables;
+
+    /**
+     * Instantiates a repair against the models of the given formulas.
+     *
+     * @param formulas          Set of clauses, where every clause is a set of literals
+     * @param amountOfVariables Amount of variables of the formula
+     */
+    public ConfigurationRepair(Set<Set<Integer>> formulas, int amountOfVariables) {
+        this.formulas          = formulas;
+        this.amountOfVariables = amountOfVariables;
+    }
+
+    /**
+     * Finds a model minimizing the total weight of the variables whose value differs from the configuration.
+     *
+     * @param activeVariables Variables which are true in the configuration
+     * @param weights         Cost of flipping a variable, variables without a weight cost 1
+     *
+     * @return The true variables of an optimal repair, empty if the formulas have no model
+     *
+     * @throws TimeoutException If the solver did not prove the optimum in time
+     */
+    public Optional<Set<Integer>> repair(Set<Integer> activeVariables, Map<Integer, Integer> weights)
+    throws TimeoutException {
+        WeightedMaxSatDecorator maxSat = new WeightedMaxSatDecorator(SolverFactory.newDefault());
+        maxSat.newVar(this.amountOfVariables);
+        maxSat.setExpectedNumberOfClauses(this.formulas.size() + this.amountOfVariables);
+        try {
+            for (Set<Integer> clause : this.formulas) {
+                maxSat.addHardClause(new VecInt(clause.stream().mapToInt(Integer::intValue).toArray()));
+            }
+            for (int variable = 1; variable <= this.amountOfVariables; variable++) {
+                int literal = activeVariables.contains(variable) ? variable : -variable;
+                maxSat.addSoftClause(weights.getOrDefault(variable, 1), new VecInt(new int[]{literal}));
+            }
+        } catch (ContradictionException e) {
+            return Optional.empty();
+        }
+        return CnfSolverFactory.optimize(new PseudoOptDecorator(maxSat), this.amountOfVariables);
+    }
+}
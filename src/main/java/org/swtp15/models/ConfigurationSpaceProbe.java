@@ -0,0 +1,95 @@
+package org.swtp15.models;
+
+import lombok.Getter;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Bounded enumeration estimating the size of the configuration space of a {@link FeatureModel} when it is loaded.
+ * <p>
+ * The probe is the first phase of a {@link ModelEnumerationJob}: the models of the simplified formulas, including all
+ * extensions to the eliminated variables, are counted by a single solver until either all of them are found, the limit
+ * is exceeded or the time budget is used up. In the first case the job is complete right away, in the second the
+ * configuration space is queried by solvers. If only the budget is used up, the probe is a lower bound and the job
+ * goes on enumerating in parallel, until it either finds every model or exceeds the limit, and then publishes the
+ * final probe. Final probes are cached by the fingerprint of the formulas and the limit, so reloading an unchanged
+ * feature model does not probe it again.
+ */
+public class ConfigurationSpaceProbe {
+
+    /**
+     * Default maximal amount of valid configurations of a model which is enumerated.
+     */
+    public static final int DEFAULT_ENUMERATION_LIMIT = 100000;
+
+    /**
+     * Default time budget of the single solver counting the configurations in milliseconds.
+     */
+    public static final long DEFAULT_PROBE_MILLIS = 2000;
+
+    private static final FingerprintCache<ConfigurationSpaceProbe> CACHE = new FingerprintCache<>();
+
+    /**
+     * Maximal amount of configurations counted.
+     */
+    @Getter
+    private final int limit;
+
+    /**
+     * Amount of configurations counted, a lower bound of the size of the space unless {@link #exhausted}.
+     */
+    @Getter
+    private final long configurationsFound;
+
+    /**
+     * Whether all valid configurations have been counted.
+     */
+    @Getter
+    private final boolean exhausted;
+
+    /**
+     * Time spent counting in milliseconds.
+     */
+    @Getter
+    private final long probeMillis;
+
+    /**
+     * Instantiates the result of a probe.
+     *
+     * @param limit               Maximal amount of configurations counted
+     * @param configurationsFound Amount of configurations counted
+     * @param exhausted           Whether all valid configurations have been counted
+     * @param probeMillis         Time spent counting in milliseconds
+     */
+    ConfigurationSpaceProbe(int limit, long configurationsFound, boolean exhausted, long probeMillis) {
+        this.limit               = limit;
+        this.configurationsFound = configurationsFound;
+        this.exhausted           = exhausted;
+        this.probeMillis         = probeMillis;
+    }
+
+    /**
+     * Returns the probe of the given formulas with the given limit if it is cached or still running. Otherwise the
+     * given pending probe is cached, which the caller then has to complete, or complete exceptionally if it is stopped.
+     *
+     * @param fingerprint Fingerprint of the formulas, used as cache key
+     * @param limit       Maximal amount of configurations to count
+     * @param pending     Probe of the caller, not completed yet
+     *
+     * @return The cached probe, or {@code pending} if the caller has to probe the formulas
+     */
+    static CompletableFuture<ConfigurationSpaceProbe> claim(long fingerprint, int limit,
+                                                           CompletableFuture<ConfigurationSpaceProbe> pending) {
+        return CACHE.claim(fingerprint ^ Hashing.mix(limit), pending);
+    }
+
+    /**
+     * Selects how the configuration space is queried, by solvers only if more configurations than the limit have been
+     * counted. A space which is not exhausted within the limit is still being enumerated.
+     *
+     * @return The execution mode suited to the size of the space
+     */
+    public ExecutionMode getExecutionMode() {
+        return this.configurationsFound > this.limit ? ExecutionMode.SOLVER : ExecutionMode.ENUMERATED;
+    }
+}
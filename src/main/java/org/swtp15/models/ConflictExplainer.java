@@ -0,0 +1,270 @@
+package org.swtp15.models;
+
+import lombok.Getter;
+import org.sat4j.core.VecInt;
+import org.sat4j.minisat.SolverFactory;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.IConstr;
+import org.sat4j.specs.IVecInt;
+import org.sat4j.specs.TimeoutException;
+import org.sat4j.tools.xplain.QuickXplainStrategy;
+import org.sat4j.tools.xplain.Xplain;
+
+import java.util.*;
+
+/**
+ * Explains why selections of feature values can not be extended to a valid configuration.
+ * <p>
+ * The explanation is computed in two steps. First the selections are minimized with QuickXplain, checking subsets of
+ * them as assumptions on a warm solver leased from a {@link SolverPool}, starting from the selections the solver
+ * reports as involved in the conflict. Then the clauses of the formula conflicting with the minimal selections are
+ * minimized by sat4j's {@link Xplain}, which is loaded once and guards every clause by a selector variable. Both steps
+ * share a time budget. If it runs out, the selections reported by the solver are returned without minimization.
+ */
+public class ConflictExplainer {
+
+    private final Set<Set<Integer>> formulas;
+    private final int amountOfVariables;
+    private final SolverPool solvers;
+
+    /**
+     * Solver explaining conflicts in terms of clauses, loaded on first use. sat4j 2.3.1 is compiled without generics,
+     * so the decorator is used as raw type.
+     */
+    private Xplain clauseExplainer;
+    private Map<IConstr, Set<Integer>> clausesByConstraint;
+
+    /**
+     * Instantiates an explainer of conflicts with the given formulas.
+     *
+     * @param formulas          Set of clauses, where every clause is a set of literals
+     * @param amountOfVariables Amount of variables of the formula
+     * @param solvers           Pool of solvers loaded with the same formulas
+     */
+    public ConflictExplainer(Set<Set<Integer>> formulas, int amountOfVariables, SolverPool solvers) {
+        this.formulas          = formulas;
+        this.amountOfVariables = amountOfVariables;
+        this.solvers           = solvers;
+    }
+
+    /**
+     * Explains why the selections conflict with the formulas.
+     *
+     * @param selections   Literals of the selected feature values
+     * @param budgetMillis Time in milliseconds after which the explanation is returned without further minimization
+     *
+     * @return The explanation, empty if the selections can be extended to a model
+     *
+     * @throws TimeoutException     If the solver could not even decide within the budget whether the selections
+     *                              conflict
+     * @throws InterruptedException If the thread was interrupted while waiting for a solver
+     */
+    public Optional<Conflict> explain(int[] selections, long budgetMillis)
+    throws TimeoutException, InterruptedException {
+        long deadline = System.currentTimeMillis() + budgetMillis;
+        List<Integer> core;
+        boolean minimal = true;
+        try (SolverPool.Lease lease = this.solvers.lease()) {
+            // every solver call of the explanation, including the first check, is bounded by the budget
+            lease.getSolver().setTimeoutMs(Math.max(1, budgetMillis));
+            try {
+                if (lease.isSatisfiable(new VecInt(selections))) {
+                    return Optional.empty();
+                }
+                core = this.involvedSelections(selections, lease.getSolver().unsatExplanation());
+                try {
+                    core = this.quickXplain(lease, new ArrayList<>(), core, deadline);
+                } catch (TimeoutException e) {
+                    minimal = false;
+                }
+            } finally {
+                lease.getSolver().setTimeout(CnfSolverFactory.SOLVER_TIMEOUT);
+            }
+        } catch (ContradictionException e) {
+            return Optional.of(new Conflict(new int[0], new ArrayList<>(), false));
+        }
+        int[] conflictingSelections = core.stream().mapToInt(Integer::intValue).toArray();
+        List<Set<Integer>> clauses = new ArrayList<>();
+        if (minimal) {
+            try {
+                clauses = this.explainClauses(conflictingSelections, deadline);
+            } catch (TimeoutException e) {
+                minimal = false;
+            }
+        }
+        return Optional.of(new Conflict(conflictingSelections, clauses, minimal));
+    }
+
+    /**
+     * Restricts the selections to the ones the solver reported as involved in the conflict.
+     *
+     * @param selections  Literals of the selected feature values
+     * @param explanation Assumption literals reported by the solver, may be {@code null} or empty if unknown
+     *
+     * @return The involved selections, all of them if the solver did not report any
+     */
+    private List<Integer> involvedSelections(int[] selections, IVecInt explanation) {
+        List<Integer> involved = new ArrayList<>();
+        if (explanation == null || explanation.isEmpty()) {
+            Arrays.stream(selections).forEach(involved::add);
+            return involved;
+        }
+        Set<Integer> variables = new HashSet<>();
+        for (int i = 0; i < explanation.size(); i++) {
+            variables.add(Math.abs(explanation.get(i)));
+        }
+        Arrays.stream(selections).filter(literal -> variables.contains(Math.abs(literal))).forEach(involved::add);
+        return involved;
+    }
+
+    /**
+     * Finds a minimal subset of the candidates conflicting with the formulas together with the background, following
+     * Junker's QuickXplain. The background is only tested once something has been added to it.
+     *
+     * @param lease      The leased solver
+     * @param background Selections which are part of the explanation
+     * @param candidates Selections to minimize, conflicting with the formulas together with the background
+     * @param deadline   Time in milliseconds after which the minimization is aborted
+     *
+     * @return The minimal subset of the candidates
+     *
+     * @throws TimeoutException If the deadline passed or the solver timed out
+     */
+    private List<Integer> quickXplain(SolverPool.Lease lease, List<Integer> background, List<Integer> candidates,
+                                      long deadline) throws TimeoutException {
+        if (candidates.size() <= 1) {
+            return candidates;
+        }
+        if (System.currentTimeMillis() > deadline) {
+            throw new TimeoutException("Time budget of the explanation exceeded");
+        }
+        List<Integer> first = candidates.subList(0, candidates.size() / 2);
+        List<Integer> second = candidates.subList(candidates.size() / 2, candidates.size());
+        List<Integer> secondConflict = this.minimize(lease, background, first, second, deadline);
+        List<Integer> firstConflict = this.minimize(lease, background, secondConflict, first, deadline);
+        List<Integer> conflict = new ArrayList<>(firstConflict);
+        conflict.addAll(secondConflict);
+        return conflict;
+    }
+
+    /**
+     * Minimizes the candidates after adding other selections to the background. If the extended background already
+     * conflicts with the formulas, none of the candidates is needed.
+     *
+     * @param lease      The leased solver
+     * @param background Selections which are part of the explanation
+     * @param added      Selections added to the background
+     * @param candidates Selections to minimize
+     * @param deadline   Time in milliseconds after which the minimization is aborted
+     *
+     * @return The minimal subset of the candidates
+     *
+     * @throws TimeoutException If the deadline passed or the solver timed out
+     */
+    private List<Integer> minimize(SolverPool.Lease lease, List<Integer> background, List<Integer> added,
+                                   List<Integer> candidates, long deadline) throws TimeoutException {
+        List<Integer> extended = new ArrayList<>(background);
+        extended.addAll(added);
+        if (!added.isEmpty() && !lease.isSatisfiable(new VecInt(extended.stream().mapToInt(Integer::intValue)
+                                                                        .toArray()))) {
+            return new ArrayList<>();
+        }
+        if (candidates.size() == 1) {
+            return new ArrayList<>(candidates);
+        }
+        return this.quickXplain(lease, extended, candidates, deadline);
+    }
+
+    /**
+     * Finds a minimal set of clauses conflicting with the selections.
+     *
+     * @param selections Literals of the selected feature values, conflicting with the formulas
+     * @param deadline   Time in milliseconds after which the minimization is aborted
+     *
+     * @return The conflicting clauses
+     *
+     * @throws TimeoutException If the deadline passed or the solver timed out
+     */
+    private synchronized List<Set<Integer>> explainClauses(int[] selections, long deadline) throws TimeoutException {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+            throw new TimeoutException("Time budget of the explanation exceeded");
+        }
+        if (this.clauseExplainer == null) {
+            this.loadClauseExplainer();
+        }
+        this.clauseExplainer.setTimeoutMs(remaining);
+        if (this.clauseExplainer.isSatisfiable(new VecInt(selections))) {
+            return new ArrayList<>();
+        }
+        List<Set<Integer>> clauses = new ArrayList<>();
+        for (Object constraint : this.clauseExplainer.explain()) {
+            clauses.add(this.clausesByConstraint.get((IConstr) constraint));
+        }
+        return clauses;
+    }
+
+    /**
+     * Loads the formulas into the clause explainer, remembering the clause of every constraint. Tautologies can not
+     * take part in a conflict and are skipped.
+     */
+    private void loadClauseExplainer() {
+        Xplain explainer = new Xplain(SolverFactory.newDefault());
+        explainer.setMinimizationStrategy(new QuickXplainStrategy());
+        explainer.newVar(this.amountOfVariables);
+        Map<IConstr, Set<Integer>> constraints = new HashMap<>();
+        for (Set<Integer> clause : this.formulas) {
+            if (clause.stream().anyMatch(literal -> clause.contains(-literal))) {
+                continue;
+            }
+            try {
+                IConstr constraint = explainer.addClause(new VecInt(clause.stream().mapToInt(Integer::intValue)
+                                                                            .toArray()));
+                if (constraint != null) {
+                    constraints.put(constraint, clause);
+                }
+            } catch (ContradictionException e) {
+                // a clause contradicting the others alone is guarded by its selector, so it does not occur
+            }
+        }
+        this.clauseExplainer     = explainer;
+        this.clausesByConstraint = constraints;
+    }
+
+    /**
+     * Selections conflicting with the formulas and the clauses they conflict with.
+     */
+    public static class Conflict {
+
+        /**
+         * Literals of the conflicting selections.
+         */
+        @Getter
+        private final int[] selections;
+
+        /**
+         * Clauses of the formulas conflicting with the selections, empty if they could not be determined in time.
+         */
+        @Getter
+        private final List<Set<Integer>> clauses;
+
+        /**
+         * Whether the selections and clauses are minimal, false if the time budget ran out.
+         */
+        @Getter
+        private final boolean minimal;
+
+        /**
+         * Instantiates a Conflict.
+         *
+         * @param selections Literals of the conflicting selections
+         * @param clauses    Clauses conflicting with the selections
+         * @param minimal    Whether the selections and clauses are minimal
+         */
+        Conflict(int[] selections, List<Set<Integer>> clauses, boolean minimal) {
+            this.selections = selections;
+            this.clauses    = clauses;
+            this.minimal    = minimal;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package org.swtp15.models;
+
+import org.sat4j.core.VecInt;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+import java.util.*;
+
+/**
+ * Derives the features forced on or off by a partial configuration, so that impossible choices can be shown before
+ * they are made.
+ * <p>
+ * Decisions are first extended by unit propagation over the clauses. The remaining features are checked on a warm
+ * solver leased from a {@link SolverPool}: a feature is forced exactly if flipping its value in a model of the
+ * decisions is unsatisfiable. Every model found on the way rules out all features whose value differs from the first
+ * model, so most features are settled without a solver call of their own.
+ */
+public class DecisionPropagator {
+
+    private static final byte UNASSIGNED = 0;
+    private static final byte TRUE       = 1;
+    private static final byte FALSE      = -1;
+
+    private final int amountOfVariables;
+    private final int[][] clauses;
+
+    /**
+     * Literals known to be true in every model, assigned before propagating instead of being checked again.
+     */
+    private final int[] backbone;
+
+    /**
+     * Indices of the clauses containing a literal, indexed by {@link #literalIndex(int)}.
+     */
+    private final int[][] occurrences;
+
+    /**
+     * Solvers loaded with the clauses, leased for the backbone checks.
+     */
+    private final SolverPool solvers;
+
+    /**
+     * Instantiates a propagator with a pool of a single solver.
+     *
+     * @param formulas          Set of clauses, where every clause is a set of literals
+     * @param amountOfVariables Amount of variables of the formula
+     */
+    public DecisionPropagator(Set<Set<Integer>> formulas, int amountOfVariables) {
+        this(formulas, amountOfVariables, new int[0],
+             new SolverPool(formulas, amountOfVariables, 1, "propagation", () -> "none"));
+    }
+
+    /**
+     * Instantiates a propagator which starts from an already known backbone, for example the one of a
+     * {@link FeatureModelAnalysis}.
+     *
+     * @param formulas          Set of clauses, where every clause is a set of literals
+     * @param amountOfVariables Amount of variables of the formula
+     * @param backbone          Literals true in every model of the formula
+     * @param solvers           Pool of solvers loaded with the same clauses
+     */
+    public DecisionPropagator(Set<Set<Integer>> formulas, int amountOfVariables, int[] backbone,
+                              SolverPool solvers) {
+        this.amountOfVariables = amountOfVariables;
+        this.backbone          = backbone;
+        this.solvers           = solvers;
+        this.clauses           = formulas.stream().filter(clause -> clause.stream().noneMatch(
+                literal -> clause.contains(-literal))).map(clause -> clause.stream().mapToInt(Integer::intValue)
+                .toArray()).toArray(int[][]::new);
+        int[] occurrenceCounts = new int[2 * amountOfVariables + 2];
+        for (int[] clause : this.clauses) {
+            for (int literal : clause) {
+                occurrenceCounts[literalIndex(literal)]++;
+            }
+        }
+        this.occurrences = new int[occurrenceCounts.length][];
+        for (int i = 0; i < occurrenceCounts.length; i++) {
+            this.occurrences[i] = new int[occurrenceCounts[i]];
+            occurrenceCounts[i] = 0;
+        }
+        for (int c = 0; c < this.clauses.length; c++) {
+            for (int literal : this.clauses[c]) {
+                int index = literalIndex(literal);
+                this.occurrences[index][occurrenceCounts[index]++] = c;
+            }
+        }
+    }
+
+    private static int literalIndex(int literal) {
+        return literal > 0 ? 2 * literal : -2 * literal + 1;
+    }
+
+    /**
+     * Derives all variables forced by the given decisions.
+     *
+     * @param decisions Values of the decided variables
+     *
+     * @return The forced values of all undecided variables which have the same value in every model extending the
+     * decisions, empty if no model extends the decisions
+     *
+     * @throws TimeoutException     If a solver call timed out
+     * @throws InterruptedException If the thread was interrupted while waiting for a solver
+     */
+    public Optional<Map<Integer, Boolean>> propagate(Map<Integer, Boolean> decisions)
+    throws TimeoutException, InterruptedException {
+        byte[] values = new byte[this.amountOfVariables + 1];
+        Deque<Integer> trail = new ArrayDeque<>();
+        for (int[] clause : this.clauses) {
+            if (clause.length == 1 && !assign(values, trail, clause[0])) {
+                return Optional.empty();
+            }
+        }
+        for (int literal : this.backbone) {
+            if (!assign(values, trail, literal)) {
+                return Optional.empty();
+            }
+        }
+        for (Map.Entry<Integer, Boolean> decision : decisions.entrySet()) {
+            int literal = decision.getValue() ? decision.getKey() : -decision.getKey();
+            if (!assign(values, trail, literal)) {
+                return Optional.empty();
+            }
+        }
+        if (!this.unitPropagate(values, trail)) {
+            return Optional.empty();
+        }
+
+        VecInt assumptions = new VecInt();
+        for (int variable = 1; variable <= this.amountOfVariables; variable++) {
+            if (values[variable] != UNASSIGNED) {
+                assumptions.push(values[variable] == TRUE ? variable : -variable);
+            }
+        }
+        try (SolverPool.Lease lease = this.solvers.lease()) {
+            return this.findBackbone(lease, values, assumptions, decisions);
+        } catch (ContradictionException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Finds the variables which have the same value in every model satisfying the assumptions.
+     *
+     * @param lease       Lease of a solver loaded with the clauses
+     * @param values      Values assigned by unit propagation, extended in place by the found backbone
+     * @param assumptions Literals of all assigned variables
+     * @param decisions   Values of the decided variables, which are left out of the result
+     *
+     * @return The forced values of all undecided variables, empty if no model satisfies the assumptions
+     *
+     * @throws TimeoutException If a solver call timed out
+     */
+    private Optional<Map<Integer, Boolean>> findBackbone(SolverPool.Lease lease, byte[] values, VecInt assumptions,
+                                                         Map<Integer, Boolean> decisions)
+    throws TimeoutException {
+        if (!lease.isSatisfiable(assumptions)) {
+            return Optional.empty();
+        }
+        boolean[] candidate = new boolean[this.amountOfVariables + 1];
+        boolean[] modelValue = new boolean[this.amountOfVariables + 1];
+        for (int variable = 1; variable <= this.amountOfVariables; variable++) {
+            candidate[variable]  = values[variable] == UNASSIGNED;
+            modelValue[variable] = lease.getSolver().model(variable);
+        }
+        for (int variable = 1; variable <= this.amountOfVariables; variable++) {
+            if (!candidate[variable]) {
+                continue;
+            }
+            int flipped = modelValue[variable] ? -variable : variable;
+            assumptions.push(flipped);
+            boolean flippable = lease.isSatisfiable(assumptions);
+            assumptions.pop();
+            if (flippable) {
+                for (int other = variable; other <= this.amountOfVariables; other++) {
+                    if (candidate[other] && lease.getSolver().model(other) != modelValue[other]) {
+                        candidate[other] = false;
+                    }
+                }
+            } else {
+                values[variable] = modelValue[variable] ? TRUE : FALSE;
+                assumptions.push(-flipped);
+            }
+        }
+
+        Map<Integer, Boolean> forced = new HashMap<>();
+        for (int variable = 1; variable <= this.amountOfVariables; variable++) {
+            if (values[variable] != UNASSIGNED && !decisions.containsKey(variable)) {
+                forced.put(variable, values[variable] == TRUE);
+            }
+        }
+        return Optional.of(forced);
+    }
+
+    /**
+     * Assigns a literal if its variable is unassigned.
+     *
+     * @param values  Current values of all variables
+     * @param trail   Literals assigned but not propagated yet
+     * @param literal The literal to make true
+     *
+     * @return Whether the literal is true afterwards, false if its variable already had the opposite value
+     */
+    private static boolean assign(byte[] values, Deque<Integer> trail, int literal) {
+        int variable = Math.abs(literal);
+        byte value = literal > 0 ? TRUE : FALSE;
+        if (values[variable] == UNASSIGNED) {
+            values[variable] = value;
+            trail.push(literal);
+            return true;
+        }
+        return values[variable] == value;
+    }
+
+    /**
+     * Propagates all literals on the trail: every clause containing the negation of a propagated literal is checked,
+     * and if only one of its literals can still become true, that literal is assigned as well.
+     *
+     * @param values Current values of all variables, extended in place
+     * @param trail  Literals to propagate
+     *
+     * @return Whether propagation ended without a falsified clause
+     */
+    private boolean unitPropagate(byte[] values, Deque<Integer> trail) {
+        while (!trail.isEmpty()) {
+            int falsified = -trail.pop();
+            for (int c : this.occurrences[literalIndex(falsified)]) {
+                int unassignedLiteral = 0;
+                int unassignedCount = 0;
+                boolean satisfied = false;
+                for (int literal : this.clauses[c]) {
+                    byte value = values[Math.abs(literal)];
+                    if (value == UNASSIGNED) {
+                        unassignedLiteral = literal;
+                        unassignedCount++;
+                    } else if ((value == TRUE) == (literal > 0)) {
+                        satisfied = true;
+                        break;
+                    }
+                }
+                if (satisfied) {
+                    continue;
+                }
+                if (unassignedCount == 0) {
+                    return false;
+                }
+                if (unassignedCount == 1) {
+                    assign(values, trail, unassignedLiteral);
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,202 @@
+package org.swtp15.models;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded cache of the evaluation results of a {@link PerformanceInfluenceModel}.
+ * <p>
+ * Configurations are keyed by a 128 bit fingerprint of their packed form, the bitset of the active features and the
+ * values of the numeric features, so configurations differing only in features without influence share an entry.
+ * Entries are admitted and evicted by the frequency-based W-TinyLFU policy of Caffeine, which keeps configurations
+ * requested over and over in the cache even while many others are evaluated once. Since the results are immutable,
+ * they are shared by all callers. The cache belongs to a single model and has to be replaced when the model is.
+ * <p>
+ * Hits and misses are counted in the {@code performance.evaluation.cache} counter, evictions in the
+ * {@code performance.evaluation.cache.evictions} counter, both tagged by the system.
+ */
+public class EvaluationCache {
+
+    /**
+     * Default maximal amount of cached results.
+     */
+    public static final long DEFAULT_MAXIMUM_SIZE = 10000;
+
+    private final PerformanceInfluenceModel model;
+    private final Cache<Fingerprint, EvaluationResult> results;
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * Instantiates an empty cache.
+     *
+     * @param system      Name of the system the model belongs to, used to tag the metrics
+     * @param model       The model whose results are cached
+     * @param maximumSize Maximal amount of cached results
+     */
+    public EvaluationCache(String system, PerformanceInfluenceModel model, long maximumSize) {
+        Counter evictions = Metrics.counter("performance.evaluation.cache.evictions", "system", system);
+        this.model   = model;
+        this.hits    = Metrics.counter("performance.evaluation.cache", "system", system, "result", "hit");
+        this.misses  = Metrics.counter("performance.evaluation.cache", "system", system, "result", "miss");
+        this.results = Caffeine.newBuilder().maximumSize(maximumSize)
+                .<Fingerprint, EvaluationResult>removalListener((fingerprint, result, cause) -> {
+                    if (cause.wasEvicted()) {
+                        evictions.increment();
+                    }
+                }).build();
+    }
+
+    /**
+     * Evaluates a configuration, returning the cached result if the same configuration has been evaluated before.
+     *
+     * @param featureConfiguration The configuration to evaluate, which is not changed
+     *
+     * @return The immutable evaluation result
+     */
+    public EvaluationResult evaluate(FeatureConfiguration featureConfiguration) {
+        CompiledPerformanceModel compiledModel = this.model.getCompiledModel();
+        long[] activeFeatures = new long[compiledModel.getWordsPerConfiguration()];
+        int[] numericValues = new int[compiledModel.getAmountOfFeatures()];
+        compiledModel.pack(featureConfiguration, activeFeatures, numericValues);
+        Fingerprint fingerprint = Fingerprint.of(activeFeatures, numericValues);
+
+        EvaluationResult result = this.results.getIfPresent(fingerprint);
+        if (result != null) {
+            this.hits.increment();
+            return result;
+        }
+        this.misses.increment();
+        result = this.model.evaluate(activeFeatures, numericValues);
+        this.results.put(fingerprint, result);
+        return result;
+    }
+
+    /**
+     * Evaluates multiple configurations, looking every configuration up first and evaluating only the configurations
+     * not cached as a single batch. Configurations repeated within the batch are evaluated once.
+     *
+     * @param featureConfigurations The configurations to evaluate, which are not changed
+     *
+     * @return The immutable evaluation results in the order of the configurations
+     */
+    public List<EvaluationResult> evaluate(List<FeatureConfiguration> featureConfigurations) {
+        CompiledPerformanceModel compiledModel = this.model.getCompiledModel();
+        int size = featureConfigurations.size();
+        EvaluationResult[] results = new EvaluationResult[size];
+        Fingerprint[] fingerprints = new Fingerprint[size];
+        Map<Fingerprint, Integer> missing = new HashMap<>();
+        List<long[]> missingFeatures = new ArrayList<>();
+        List<int[]> missingValues = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            long[] activeFeatures = new long[compiledModel.getWordsPerConfiguration()];
+            int[] numericValues = new int[compiledModel.getAmountOfFeatures()];
+            compiledModel.pack(featureConfigurations.get(i), activeFeatures, numericValues);
+            fingerprints[i] = Fingerprint.of(activeFeatures, numericValues);
+            results[i]      = this.results.getIfPresent(fingerprints[i]);
+            if (results[i] != null || missing.containsKey(fingerprints[i])) {
+                this.hits.increment();
+            } else {
+                this.misses.increment();
+                missing.put(fingerprints[i], missingFeatures.size());
+                missingFeatures.add(activeFeatures);
+                missingValues.add(numericValues);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            List<EvaluationResult> evaluated = this.model.evaluate(missingFeatures.toArray(new long[0][]),
+                                                                   missingValues.toArray(new int[0][]));
+            missing.forEach((fingerprint, index) -> this.results.put(fingerprint, evaluated.get(index)));
+            for (int i = 0; i < size; i++) {
+                if (results[i] == null) {
+                    results[i] = evaluated.get(missing.get(fingerprints[i]));
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Returns the approximate amount of cached results.
+     *
+     * @return The amount of cached results
+     */
+    public long size() {
+        return this.results.estimatedSize();
+    }
+
+    /**
+     * Removes all cached results.
+     */
+    public void invalidateAll() {
+        this.results.invalidateAll();
+    }
+
+    /**
+     * Fingerprint of a packed configuration, made of two independently seeded 64 bit hashes.
+     */
+    private static final class Fingerprint {
+
+        private final long high;
+        private final long low;
+
+        private Fingerprint(long high, long low) {
+            this.high = high;
+            this.low  = low;
+        }
+
+        /**
+         * Hashes a packed configuration.
+         *
+         * @param activeFeatures Bitset of the active features
+         * @param numericValues  Values of the numeric features
+         *
+         * @return The fingerprint
+         */
+        static Fingerprint of(long[] activeFeatures, int[] numericValues) {
+            long high = 0x9E3779B97F4A7C15L;
+            long low = 0xC2B2AE3D27D4EB4FL;
+            for (long word : activeFeatures) {
+                high = Hashing.mix(high + word);
+                low  = Hashing.mix(low ^ Long.rotateLeft(word, 32));
+            }
+            for (int value : numericValues) {
+                high = Hashing.mix(high + value);
+                low  = Hashing.mix(low ^ ((long) value << 32));
+            }
+            return new Fingerprint(high, low);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Fingerprint)) {
+                return false;
+            }
+            Fingerprint other = (Fingerprint) o;
+            return this.high == other.high && this.low == other.low;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+            return (int) this.high;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.swtp15.models;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Immutable result of evaluating a configuration with a {@link PerformanceInfluenceModel}.
+ * <p>
+ * Holds the value of every property and can break them down into the applying influences with their factor. The
+ * breakdown is only computed on first request, from a snapshot of the evaluated configuration, so later changes of the
+ * configuration do not affect it. A result may be shared between threads.
+ */
+public final class EvaluationResult {
+
+    private final CompiledPerformanceModel model;
+    private final double[] values;
+    private final Supplier<Map<FeatureInfluence, Integer>> breakdownSource;
+    private volatile Map<FeatureInfluence, Integer> influenceBreakdown;
+
+    /**
+     * Instantiates a result.
+     *
+     * @param model           The compiled model the configuration has been evaluated by
+     * @param values          Evaluated values, one per property of the model, owned by the result afterwards
+     * @param breakdownSource Computes the applying influences with their factor, called at most once
+     */
+    EvaluationResult(CompiledPerformanceModel model, double[] values,
+                     Supplier<Map<FeatureInfluence, Integer>> breakdownSource) {
+        this.model           = model;
+        this.values          = values;
+        this.breakdownSource = breakdownSource;
+    }
+
+    /**
+     * Returns the evaluated value of a property.
+     *
+     * @param property The property
+     *
+     * @return The value of the property
+     *
+     * @throws IllegalArgumentException If the property is not part of the model
+     */
+    public double getValue(Property property) throws IllegalArgumentException {
+        int index = this.model.indexOf(property);
+        if (index < 0) {
+            throw ModelExceptions.PROPERTY_NOT_IN_MODEL;
+        }
+        return this.values[index];
+    }
+
+    /**
+     * Returns the evaluated values of all properties.
+     *
+     * @return Unmodifiable map from the properties to their values
+     */
+    public Map<Property, Double> getPropertyValues() {
+        Map<Property, Double> evaluation = new HashMap<>();
+        for (int i = 0; i < this.values.length; i++) {
+            evaluation.put(this.model.getProperties().get(i), this.values[i]);
+        }
+        return Collections.unmodifiableMap(evaluation);
+    }
+
+    /**
+     * Returns the evaluated values of all properties by their names.
+     *
+     * @return Unmodifiable map from the property names to their values
+     */
+    public Map<String, Double> getPropertyValuesByName() {
+        Map<String, Double> evaluation = new HashMap<>();
+        for (int i = 0; i < this.values.length; i++) {
+            evaluation.put(this.model.getProperties().get(i).getName(), this.values[i]);
+        }
+        return Collections.unmodifiableMap(evaluation);
+    }
+
+    /**
+     * Returns the influences applying to the evaluated configuration with their factor, computing them on first call.
+     *
+     * @return Unmodifiable map from the applying influences to their factor
+     */
+    public Map<FeatureInfluence, Integer> getInfluenceBreakdown() {
+        Map<FeatureInfluence, Integer> breakdown = this.influenceBreakdown;
+        if (breakdown == null) {
+            synchronized (this) {
+                breakdown = this.influenceBreakdown;
+                if (breakdown == null) {
+                    breakdown               = Collections.unmodifiableMap(this.breakdownSource.get());
+                    this.influenceBreakdown = breakdown;
+                }
+            }
+        }
+        return breakdown;
+    }
+}
@@ -0,0 +1,83 @@
+package org.swtp15.models;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Evaluation of a configuration by a {@link CompiledPerformanceModel}, kept in packed form so that following changes
+ * of single features can be evaluated as a delta by
+ * {@link PerformanceInfluenceModel#evaluateDelta(EvaluationState, String, boolean)}.
+ * <p>
+ * A state is never changed after it has been handed out, every delta returns a new state.
+ */
+public class EvaluationState {
+
+    final CompiledPerformanceModel model;
+    final long[] activeFeatures;
+    final int[] numericValues;
+    final double[] values;
+
+    /**
+     * Instantiates a state from packed arrays, which are owned by the state afterwards.
+     *
+     * @param model          The compiled model the configuration has been evaluated by
+     * @param activeFeatures Bitset of the active features
+     * @param numericValues  Values of the numeric features
+     * @param values         Evaluated values, one per property of the model
+     */
+    EvaluationState(CompiledPerformanceModel model, long[] activeFeatures, int[] numericValues, double[] values) {
+        this.model          = model;
+        this.activeFeatures = activeFeatures;
+        this.numericValues  = numericValues;
+        this.values         = values;
+    }
+
+    /**
+     * Creates a copy of this state, which may be changed.
+     *
+     * @return The copy
+     */
+    EvaluationState copy() {
+        return new EvaluationState(this.model, this.activeFeatures.clone(), this.numericValues.clone(),
+                                   this.values.clone());
+    }
+
+    /**
+     * Returns the evaluated value of a property.
+     *
+     * @param property The property
+     *
+     * @return The value of the property
+     *
+     * @throws IllegalArgumentException If the property is not part of the model
+     */
+    public double getValue(Property property) throws IllegalArgumentException {
+        int index = this.model.indexOf(property);
+        if (index < 0) {
+            throw ModelExceptions.PROPERTY_NOT_IN_MODEL;
+        }
+        return this.values[index];
+    }
+
+    /**
+     * Returns the evaluated values of all properties.
+     *
+     * @return Map from the properties to their values
+     */
+    public Map<Property, Double> getValues() {
+        Map<Property, Double> evaluation = new HashMap<>();
+        for (int i = 0; i < this.values.length; i++) {
+            evaluation.put(this.model.getProperties().get(i), this.values[i]);
+        }
+        return evaluation;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "EvaluationState: " + Arrays.toString(this.values);
+    }
+}
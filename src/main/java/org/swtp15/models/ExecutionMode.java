@@ -0,0 +1,18 @@
+package org.swtp15.models;
+
+/**
+ * How a {@link FeatureModel} answers queries about the space of its valid configurations, selected when the model is
+ * loaded by a {@link ConfigurationSpaceProbe}.
+ */
+public enum ExecutionMode {
+    /**
+     * All valid configurations are enumerated in the background into an in-memory store, which then answers
+     * neighbourhood queries directly.
+     */
+    ENUMERATED,
+    /**
+     * The configuration space exceeds the enumeration limit, so the enumeration stops at the limit and every query is
+     * answered by solvers on demand.
+     */
+    SOLVER
+}
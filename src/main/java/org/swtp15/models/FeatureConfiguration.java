@@ -7,7 +7,10 @@ import lombok.SneakyThrows;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -27,8 +30,13 @@ public class FeatureConfiguration implements Cloneable {
     @Setter
     private Map<String, Double> propertyValueMap;
 
+    /**
+     * Result of the last evaluation attached by {@link #applyEvaluation}, null if the configuration has not been
+     * evaluated this way.
+     */
     @Getter
-    private final Map<FeatureInfluence, Integer> activeInfluences;
+    @Setter
+    private volatile EvaluationResult evaluation;
 
 
     /**
@@ -59,7 +67,6 @@ public class FeatureConfiguration implements Cloneable {
         this.binaryFeatures   = binaryFeatures;
         this.numericFeatures  = numericFeatures;
         this.propertyValueMap = properties;
-        this.activeInfluences = new HashMap<>();
     }
 
 
@@ -72,6 +79,26 @@ public class FeatureConfiguration implements Cloneable {
         return binaryFeatures.keySet().parallelStream().filter(this.binaryFeatures::get).collect(Collectors.toSet());
     }
 
+    /**
+     * Attaches an evaluation result to this configuration and sets the property values to the evaluated ones.
+     *
+     * @param result The evaluation result of this configuration
+     */
+    public void applyEvaluation(EvaluationResult result) {
+        this.propertyValueMap = result.getPropertyValuesByName();
+        this.evaluation       = result;
+    }
+
+    /**
+     * Returns the influences applying to this configuration with their factor, according to the attached evaluation.
+     *
+     * @return Map from the applying influences to their factor, empty if no evaluation is attached
+     */
+    public Map<FeatureInfluence, Integer> getActiveInfluences() {
+        EvaluationResult result = this.evaluation;
+        return result == null ? Collections.emptyMap() : result.getInfluenceBreakdown();
+    }
+
     /**
      * Returns the value of the given property.
      *
@@ -99,10 +126,15 @@ public class FeatureConfiguration implements Cloneable {
 
         this.binaryFeatures.forEach(newBinaryFeatures::put);
         this.numericFeatures.forEach(newNumericFeatures::put);
-        this.propertyValueMap.forEach(newPropertyValueMap::put);
+        if (this.propertyValueMap != null) {
+            this.propertyValueMap.forEach(newPropertyValueMap::put);
+        }
 
-        return new FeatureConfiguration(newFeatureModelName, newBinaryFeatures, newNumericFeatures,
-                                        newPropertyValueMap);
+        FeatureConfiguration copy = new FeatureConfiguration(newFeatureModelName, newBinaryFeatures,
+                                                             newNumericFeatures, newPropertyValueMap);
+        // the evaluation is immutable and can be shared
+        copy.setEvaluation(this.evaluation);
+        return copy;
     }
 
 
@@ -150,43 +182,47 @@ public class FeatureConfiguration implements Cloneable {
     }
 
     /**
-     * Converts the current configuration into its respective JSON format.
+     * Converts the current configuration into its respective JSON format, holding the features and the property values
+     * but not the dissected properties.
      *
      * @return JSON representation of the configuration
      */
-    @SuppressWarnings("unchecked")
     @Override
     public String toString() {
-        final JSONObject conf = new JSONObject();
-        final JSONObject properties = new JSONObject();
-        final JSONObject features = new JSONObject();
+        return this.toJSONObject().toJSONString();
+    }
+
+    /**
+     * Converts the current configuration into its respective JSON format including the dissected properties, which
+     * break the property values down into the applying influences of the attached evaluation. The breakdown is only
+     * computed by this method. Influences are ranked by their largest absolute contribution to any property.
+     *
+     * @param top       Maximal amount of influences to include, all if not positive
+     * @param threshold Minimal absolute contribution to any property an influence needs to be included
+     *
+     * @return JSON representation of the configuration with the dissected properties
+     */
+    @SuppressWarnings("unchecked")
+    public String toDissectedString(int top, double threshold) {
+        final JSONObject conf = this.toJSONObject();
         final JSONObject dissectedProperties = new JSONObject();
 
-        conf.put("featureModel", this.featureModelName);
-        conf.put("features", features);
-        for (String featureName : this.binaryFeatures.keySet()) {
-            features.put(featureName, this.binaryFeatures.get(featureName));
-        }
-        for (String featureName : this.numericFeatures.keySet()) {
-            features.put(featureName, this.numericFeatures.get(featureName));
-        }
-        if (this.propertyValueMap != null) {
-            conf.put("properties", properties);
-            for (String property : this.propertyValueMap.keySet()) {
-                properties.put(property, this.propertyValueMap.get(property));
-            }
-        }
-        if (this.activeInfluences.size() > 0) {
+        List<Map.Entry<FeatureInfluence, Integer>> dissectedInfluences = this.getActiveInfluences().entrySet().stream()
+                .filter(dissected -> contribution(dissected) >= threshold)
+                .sorted(Comparator.comparingDouble(FeatureConfiguration::contribution).reversed())
+                .limit(top > 0 ? top : Long.MAX_VALUE)
+                .collect(Collectors.toList());
+        if (dissectedInfluences.size() > 0) {
             conf.put("dissectedProperties", dissectedProperties);
             int i = 0;
-            for (Map.Entry<FeatureInfluence, Integer> dissected : this.activeInfluences.entrySet()) {
+            for (Map.Entry<FeatureInfluence, Integer> dissected : dissectedInfluences) {
                 final JSONObject dissectedLine = new JSONObject();
                 dissectedProperties.put("interaction" + i++, dissectedLine);
                 final JSONArray activeFeatures = new JSONArray();
                 dissectedLine.put("features", activeFeatures);
-                activeFeatures
-                        .addAll(dissected.getKey().getActiveFeatures().parallelStream().map(Feature::getName).collect(
-                                Collectors.toSet()));
+                for (Feature feature : dissected.getKey().getActiveFeatures()) {
+                    activeFeatures.add(feature.getName());
+                }
                 final JSONObject propertyInfluences = new JSONObject();
                 dissectedLine.put("properties", propertyInfluences);
                 for (Map.Entry<Property, Double> singleInflunece : dissected.getKey().getPropertyInfluence()
@@ -200,4 +236,47 @@ public class FeatureConfiguration implements Cloneable {
         return conf.toJSONString();
     }
 
+    /**
+     * Returns the largest absolute contribution of an applying influence to any property.
+     *
+     * @param dissected The influence with its factor
+     *
+     * @return The largest absolute contribution
+     */
+    private static double contribution(Map.Entry<FeatureInfluence, Integer> dissected) {
+        double contribution = 0.0;
+        for (double value : dissected.getKey().getPropertyInfluence().values()) {
+            contribution = Math.max(contribution, Math.abs(value * dissected.getValue()));
+        }
+        return contribution;
+    }
+
+    /**
+     * Builds the JSON object holding the features and the property values of the configuration.
+     *
+     * @return JSON object of the configuration
+     */
+    @SuppressWarnings("unchecked")
+    private JSONObject toJSONObject() {
+        final JSONObject conf = new JSONObject();
+        final JSONObject properties = new JSONObject();
+        final JSONObject features = new JSONObject();
+
+        conf.put("featureModel", this.featureModelName);
+        conf.put("features", features);
+        for (String featureName : this.binaryFeatures.keySet()) {
+            features.put(featureName, this.binaryFeatures.get(featureName));
+        }
+        for (String featureName : this.numericFeatures.keySet()) {
+            features.put(featureName, this.numericFeatures.get(featureName));
+        }
+        if (this.propertyValueMap != null) {
+            conf.put("properties", properties);
+            for (String property : this.propertyValueMap.keySet()) {
+                properties.put(property, this.propertyValueMap.get(property));
+            }
+        }
+        return conf;
+    }
+
 }
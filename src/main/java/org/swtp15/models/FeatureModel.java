@@ -1,24 +1,54 @@
 package org.swtp15.models;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
 import lombok.SneakyThrows;
 import org.sat4j.core.VecInt;
-import org.sat4j.minisat.SolverFactory;
 import org.sat4j.specs.ContradictionException;
-import org.sat4j.specs.ISolver;
 import org.sat4j.specs.TimeoutException;
-import org.sat4j.tools.ModelIterator;
 import org.swtp15.parser.ParserExceptions;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Class that saves a FeatureModel.
  */
 public class FeatureModel {
+
+    /**
+     * Default maximal amount of solvers per pool, one per processor.
+     */
+    public static final int DEFAULT_SOLVER_POOL_SIZE = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Default time budget of an explanation in milliseconds.
+     */
+    public static final long DEFAULT_EXPLANATION_BUDGET_MILLIS = 1000;
+
+    /**
+     * Values of the gauges reporting the probed configurations per system, kept across reloads of the same system.
+     */
+    private static final Map<String, AtomicLong> PROBED_CONFIGURATIONS = new ConcurrentHashMap<>();
+
+    /**
+     * Values of the gauges reporting per system whether it is solver-backed, 1 if it is and 0 if it is enumerated.
+     */
+    private static final Map<String, AtomicLong> SOLVER_BACKED = new ConcurrentHashMap<>();
+
     /**
      * Mapping from Integers to Features.
      */
@@ -26,11 +56,17 @@ public class FeatureModel {
 
     private final Map<Integer, Feature> numericFeatures;
 
+    /**
+     * Mapping from the names of binary features to their dimacs index.
+     */
+    private final Map<String, Integer> binaryFeatureIndices;
+
+    private final Set<String> featureNames;
+
     @Getter
     private final List<Feature> features;
 
     @Getter
-    @Setter
     private String name;
 
     /**
@@ -41,13 +77,101 @@ public class FeatureModel {
     @Getter
     private final Set<Set<Integer>> formulas;
 
-    private final Thread modelGeneratorThread;
+    /**
+     * Background job enumerating all valid models into its own store. A restart replaces the job together with its
+     * store and index, so readers take the job once and work on its store.
+     */
     @Getter
-    private boolean isModelCalculationFailed;
-    private final List<Set<Integer>> models;
+    private volatile ModelEnumerationJob enumerationJob;
 
     private Map<String, Boolean> minimalModel;
 
+    /**
+     * Search for the minimal model, started when the model is loaded.
+     */
+    private final CompletableFuture<Optional<Set<Integer>>> minimalModelSearch;
+
+    /**
+     * Order-independent hash of the formulas and the amount of binary features, identifying the version of this model.
+     */
+    @Getter
+    private final long fingerprint;
+
+    /**
+     * Core features, dead features and equivalence classes of the formulas, computed when the model is loaded.
+     */
+    @Getter
+    private final FeatureModelAnalysis analysis;
+
+    /**
+     * Simplified formulas loaded into the solvers for enumeration and validity checks.
+     */
+    private final CnfPreprocessor preprocessedFormula;
+
+    /**
+     * Maximal amount of valid configurations which are enumerated, larger configuration spaces are only queried by
+     * solvers.
+     */
+    @Getter
+    private int enumerationLimit;
+
+    /**
+     * Time budget in milliseconds of the single solver counting the valid configurations before the enumeration is
+     * split.
+     */
+    @Getter
+    private final long probeMillis;
+
+    /**
+     * Compiled formulas, created on first use or when selecting the {@link ModelBackend#BDD} backend.
+     */
+    private BinaryDecisionDiagram diagram;
+
+    /**
+     * Solvers loaded with the simplified formulas, leased for validity checks.
+     */
+    private final SolverPool validitySolvers;
+
+    /**
+     * Solvers loaded with the original formulas, leased by the {@link #propagator}.
+     */
+    private final SolverPool propagationSolvers;
+
+    private final DecisionPropagator propagator;
+
+    /**
+     * Solver-based search answering neighbourhood queries while the enumeration is incomplete.
+     */
+    private final NearModelSearch nearModelSearch;
+
+    /**
+     * MaxSAT-based repair of invalid configurations.
+     */
+    private final ConfigurationRepair repair;
+
+    /**
+     * Explains conflicting selections, sharing the solvers of the {@link #propagator}.
+     */
+    private final ConflictExplainer explainer;
+
+    /**
+     * Backend answering validity checks.
+     */
+    @Getter
+    private ModelBackend backend = ModelBackend.SAT;
+
+    /**
+     * Whether the enumeration races a {@link SolverPortfolio} instead of using a single solver configuration.
+     */
+    @Getter
+    private boolean portfolioEnumeration;
+
+    /**
+     * Maximal amount of nodes of the compiled formulas.
+     */
+    @Setter
+    private int diagramNodeLimit = BinaryDecisionDiagram.DEFAULT_NODE_LIMIT;
+
     @Getter
     private final int amountOfFeatures;
     @Getter
@@ -57,7 +181,8 @@ public class FeatureModel {
     private FeatureSystem featureSystem;
 
     /**
-     * Instantiates a FeatureModel.
+     * Instantiates a FeatureModel with the default enumeration limit and probe budget, enumerating its models without
+     * a portfolio.
      *
      * @param binaryFeatures   Map of the binary features.
      * @param numericFeatures  Map of the numeric features.
@@ -68,13 +193,35 @@ public class FeatureModel {
     public FeatureModel(@NonNull Map<Integer, Feature> binaryFeatures,
                         @NonNull Map<Integer, Feature> numericFeatures, @NonNull Set<Set<Integer>> formulas,
                         int amountOfFeatures, int amountOfFormulas) {
+        this(binaryFeatures, numericFeatures, formulas, amountOfFeatures, amountOfFormulas,
+             ConfigurationSpaceProbe.DEFAULT_ENUMERATION_LIMIT, ConfigurationSpaceProbe.DEFAULT_PROBE_MILLIS, false);
+    }
+
+    /**
+     * Instantiates a FeatureModel and starts enumerating its models with the given settings, so they do not have to be
+     * changed afterwards.
+     *
+     * @param binaryFeatures       Map of the binary features.
+     * @param numericFeatures      Map of the numeric features.
+     * @param formulas             Set of logical clauses of the feature model
+     * @param amountOfFeatures     Amount of features
+     * @param amountOfFormulas     Amount of formulas
+     * @param enumerationLimit     Maximal amount of valid configurations which are enumerated
+     * @param probeMillis          Time budget of the single solver counting the valid configurations in milliseconds
+     * @param portfolioEnumeration Whether to race differently configured solvers on every enumeration query
+     */
+    public FeatureModel(@NonNull Map<Integer, Feature> binaryFeatures,
+                        @NonNull Map<Integer, Feature> numericFeatures, @NonNull Set<Set<Integer>> formulas,
+                        int amountOfFeatures, int amountOfFormulas, int enumerationLimit, long probeMillis,
+                        boolean portfolioEnumeration) {
         this.binaryFeatures  = binaryFeatures;
         this.numericFeatures = numericFeatures;
         this.features        = new ArrayList<>(binaryFeatures.values());
         features.addAll(numericFeatures.values());
+        this.featureNames = features.stream().map(Feature::getName).collect(Collectors.toSet());
         this.formulas                 = formulas;
-        this.isModelCalculationFailed = false;
-        this.models                   = new ArrayList<>();
+        this.binaryFeatureIndices     = new HashMap<>();
+        binaryFeatures.forEach((index, feature) -> binaryFeatureIndices.put(feature.getName(), index));
         this.minimalModel             = null;
         this.amountOfFeatures         = amountOfFeatures;
         this.amountOfFormulas         = amountOfFormulas;
@@ -84,71 +231,208 @@ public class FeatureModel {
         this.formulas.addAll(optionalFeatures.parallelStream().map(opt -> Set.of(opt, -opt)).collect(
                 Collectors.toSet()));
 
-        this.modelGeneratorThread = new Thread(this::generateModels);
-        this.modelGeneratorThread.start();
+        this.fingerprint         = fingerprint(this.formulas, binaryFeatures.size());
+        this.minimalModelSearch  = MinimalModelFinder.find(this.fingerprint, this.formulas, binaryFeatures.size());
+        this.analysis            = FeatureModelAnalysis.of(this.fingerprint, this.formulas, binaryFeatures.size());
+        this.preprocessedFormula = CnfPreprocessor.of(this.fingerprint, this.formulas, binaryFeatures.size(),
+                                                      this.analysis);
+        this.validitySolvers     = new SolverPool(this.preprocessedFormula.getFormulas(),
+                                                  this.preprocessedFormula.getAmountOfVariables(),
+                                                  DEFAULT_SOLVER_POOL_SIZE, "validity",
+                                                  () -> String.valueOf(this.name));
+        this.propagationSolvers  = new SolverPool(this.formulas, binaryFeatures.size(), DEFAULT_SOLVER_POOL_SIZE,
+                                                  "propagation", () -> String.valueOf(this.name));
+        this.propagator          = new DecisionPropagator(this.formulas, binaryFeatures.size(),
+                                                          this.analysis.getBackboneLiterals(),
+                                                          this.propagationSolvers);
+        this.nearModelSearch     = new NearModelSearch(this.formulas, binaryFeatures.size(),
+                                                          DEFAULT_SOLVER_POOL_SIZE, () -> String.valueOf(this.name));
+        this.repair              = new ConfigurationRepair(this.formulas, binaryFeatures.size());
+        this.explainer           = new ConflictExplainer(this.formulas, binaryFeatures.size(),
+                                                         this.propagationSolvers);
+        this.enumerationLimit     = enumerationLimit;
+        this.probeMillis          = probeMillis;
+        this.portfolioEnumeration = portfolioEnumeration;
+
+        this.enumerationJob = this.createEnumerationJob();
+        this.enumerationJob.start();
+    }
+
+    /**
+     * Sets the name of this model and reports its execution mode under this name.
+     *
+     * @param name The name of the model
+     */
+    public void setName(String name) {
+        this.name = name;
+        ConfigurationSpaceProbe probe = this.enumerationJob.getConfigurationSpaceNow();
+        if (probe != null) {
+            this.reportExecutionMode(probe);
+        }
+    }
+
+    /**
+     * Updates the gauges of the probed configurations and the execution mode of this model.
+     *
+     * @param probe The latest probe of the current enumeration job
+     */
+    private void reportExecutionMode(ConfigurationSpaceProbe probe) {
+        String system = String.valueOf(this.name);
+        PROBED_CONFIGURATIONS.computeIfAbsent(system, key -> Metrics.gauge(
+                "featuremodel.configurations.probed", Tags.of("system", key), new AtomicLong()))
+                .set(probe.getConfigurationsFound());
+        SOLVER_BACKED.computeIfAbsent(system, key -> Metrics.gauge(
+                "featuremodel.execution.solver", Tags.of("system", key), new AtomicLong()))
+                .set(probe.getExecutionMode() == ExecutionMode.SOLVER ? 1 : 0);
     }
 
+    /**
+     * Returns the bounded count of the valid configurations, selecting the execution mode. Blocks until the current
+     * enumeration job has probed the configuration space.
+     *
+     * @return The probe of the configuration space
+     */
+    public ConfigurationSpaceProbe getConfigurationSpace() {
+        return this.enumerationJob.getConfigurationSpace();
+    }
 
     /**
-     * Generates all valid models based on the constraints in the `dimacs` file.
-     * <p>
-     * This method is supposed to be run via a separate thread, as generating the models can take time depending on the
-     * size and complexity of the input file. If however the calculation takes longer than 30 minutes, this method will
-     * time out, causing the whole model to be unusable. This however will require probably tens of thousands of
-     * constraints
-     */
-    private void generateModels() {
-        final ISolver solver = SolverFactory.newDefault();
-        solver.setTimeout(60);
-        solver.newVar(binaryFeatures.size());
-        solver.setExpectedNumberOfClauses(this.formulas.size());
-        int[] convertedClause;
+     * Returns whether the valid configurations are enumerated or only queried by solvers. Blocks until the current
+     * enumeration job has probed the configuration space.
+     *
+     * @return The execution mode
+     */
+    public ExecutionMode getExecutionMode() {
+        return this.getConfigurationSpace().getExecutionMode();
+    }
+
+    /**
+     * Hashes a set of clauses independently of the order of the clauses and their literals.
+     *
+     * @param formulas          Set of clauses, where every clause is a set of literals
+     * @param amountOfVariables Amount of variables of the formula
+     *
+     * @return The fingerprint
+     */
+    private static long fingerprint(Set<Set<Integer>> formulas, int amountOfVariables) {
+        long hash = Hashing.mix(amountOfVariables);
         for (Set<Integer> clause : formulas) {
-            convertedClause = clause.parallelStream().mapToInt(i -> (i == null ? 0 : i)).toArray();
-            try {
-                solver.addClause(new VecInt(convertedClause));
-            } catch (ContradictionException e) {
-                System.err.println("Contradiction in Clause");
-                e.printStackTrace();
-                isModelCalculationFailed = true;
-                return;
+            long clauseHash = 0;
+            for (int literal : clause) {
+                clauseHash += Hashing.mix(literal);
             }
+            hash += Hashing.mix(clauseHash);
         }
-        final ModelIterator mi = new ModelIterator(solver);
-        try {
-            while (mi.isSatisfiable()) {
-                final Set<Integer> model =
-                        Arrays.stream(mi.model()).boxed().filter(i -> i > 0).collect(Collectors.toSet());
-                this.models.add(model);
-            }
-        } catch (TimeoutException e) {
-            e.printStackTrace();
-            isModelCalculationFailed = true;
-        }
+        return hash;
     }
 
+
     /**
-     * Restarts the thread calculating all possible feature configurations for the feature model.
+     * Creates a job generating all valid models based on the constraints in the `dimacs` file.
      * <p>
-     * This method only does something, if the Thread has been interrupted or failed from an internal exception
+     * The job runs in the background, as generating the models can take time depending on the size and complexity of
+     * the input file. If a single solver call takes longer than the solver timeout, the job fails and only the models
+     * found until then are available.
+     *
+     * @return A job which has not been started yet
+     */
+    private ModelEnumerationJob createEnumerationJob() {
+        PackedModelStore models = new PackedModelStore(this.binaryFeatures.keySet().stream()
+                                                               .mapToInt(Integer::intValue).max().orElse(0));
+        ModelEnumerationJob job = new ModelEnumerationJob(this.preprocessedFormula, this.fingerprint,
+                                                          this.enumerationLimit, this.probeMillis, models,
+                                                          new HammingIndex(models), this.portfolioEnumeration,
+                                                          () -> String.valueOf(this.name));
+        job.setConfigurationSpaceListener(this::reportExecutionMode);
+        return job;
+    }
+
+    /**
+     * Checks whether the enumeration of all models failed or has been cancelled, meaning that only a part of all
+     * models is known. A configuration space exceeding the enumeration limit is not enumerated on purpose and does
+     * not count as failed.
+     *
+     * @return Whether the enumeration is incomplete
+     */
+    public boolean isModelCalculationFailed() {
+        ModelEnumerationJob job = this.enumerationJob;
+        return job.isFailed() || job.isCancelled();
+    }
+
+    /**
+     * Restarts the job calculating all possible feature configurations for the feature model.
+     * <p>
+     * This method only does something, if the job has been cancelled or failed from an internal exception, so it has
+     * no effect on a configuration space exceeding the enumeration limit. The new job starts with an empty store,
+     * while readers of the old job keep its models.
+     */
+    public synchronized void restartModelCalculation() {
+        if (this.enumerationJob.isDone() && this.isModelCalculationFailed()) {
+            ModelEnumerationJob job = this.createEnumerationJob();
+            job.start();
+            this.enumerationJob = job;
+        }
+    }
+
+    /**
+     * Selects whether the models are enumerated by a {@link SolverPortfolio}. A running enumeration is restarted in
+     * the new mode, as is a failed or cancelled one, while a complete enumeration is kept.
+     *
+     * @param portfolioEnumeration Whether to race differently configured solvers on every query
+     *
+     * @throws InterruptedException If the thread was interrupted while waiting for the running job to stop
      */
-    public void restartModelCalculation() {
-        final boolean threadFailedByItself = this.isModelCalculationFailed && !this.modelGeneratorThread.isAlive();
-        if (this.modelGeneratorThread.isInterrupted() || threadFailedByItself) {
-            this.isModelCalculationFailed = false;
-            this.models.clear();
-            this.modelGeneratorThread.start();
+    public synchronized void setPortfolioEnumeration(boolean portfolioEnumeration) throws InterruptedException {
+        if (this.portfolioEnumeration == portfolioEnumeration) {
+            return;
+        }
+        this.portfolioEnumeration = portfolioEnumeration;
+        if (this.enumerationJob.isLimitExceeded() || this.enumerationJob.isComplete()) {
+            return;
         }
+        this.enumerationJob.cancel();
+        this.enumerationJob.awaitCompletion();
+        this.restartModelCalculation();
+    }
+
+    /**
+     * Changes the enumeration limit, replacing the running job by one probing the configuration space with the new
+     * limit. A complete enumeration is kept, as long as it does not exceed the new limit.
+     *
+     * @param enumerationLimit Maximal amount of valid configurations which are enumerated
+     *
+     * @throws InterruptedException If the thread was interrupted while waiting for the running job to stop
+     */
+    public synchronized void setEnumerationLimit(int enumerationLimit) throws InterruptedException {
+        if (this.enumerationLimit == enumerationLimit) {
+            return;
+        }
+        this.enumerationLimit = enumerationLimit;
+        if (this.enumerationJob.isComplete() && this.enumerationJob.getModels().size() <= enumerationLimit) {
+            return;
+        }
+        this.enumerationJob.cancel();
+        this.enumerationJob.awaitCompletion();
+        ModelEnumerationJob job = this.createEnumerationJob();
+        job.start();
+        this.enumerationJob = job;
+    }
+
+    /**
+     * Cancels the job calculating all possible feature configurations. Models found so far stay available.
+     */
+    public void cancelModelCalculation() {
+        this.enumerationJob.cancel();
     }
 
     /**
      * A proxy to wait on the models to be generated.
      * <p>
-     * To be used to wait on the thread to finish
+     * To be used to wait on the job to finish
      */
     @SneakyThrows
     void waitOnModelsGenerated() {
-        this.modelGeneratorThread.join();
+        this.enumerationJob.awaitCompletion();
     }
 
 
@@ -160,8 +444,171 @@ public class FeatureModel {
      * @return Set of active Features
      */
     public Set<Feature> getRandomValidConfig(Random rand) {
-        int randomIndex = rand.nextInt(this.models.size());
-        return this.models.get(randomIndex).parallelStream().map(binaryFeatures::get).collect(Collectors.toSet());
+        return this.getRandomValidConfigs(1, rand).get(0);
+    }
+
+    /**
+     * Gets uniformly distributed random configurations of binary features which are valid within the model.
+     * <p>
+     * Once all models are enumerated, they are drawn from directly. Otherwise they are drawn from a {@link
+     * BinaryDecisionDiagram} of the formulas, so sampling does not depend on the enumeration to finish. Only if the
+     * diagram is too large to compile, the models found so far are drawn from.
+     *
+     * @param amount Amount of configurations
+     * @param rand   A Random object
+     *
+     * @return List of sets of active Features
+     *
+     * @throws ModelExceptions#MODEL_HAS_NO_VALID_CONFIGURATIONS  If the model has no valid configuration
+     * @throws ModelExceptions#CONFIGURATION_SPACE_NOT_ENUMERATED If the model is solver-backed and too large to be
+     *                                                            compiled
+     */
+    public List<Set<Feature>> getRandomValidConfigs(int amount, Random rand) {
+        ModelEnumerationJob job = this.enumerationJob;
+        if (!job.isComplete()) {
+            try {
+                return this.getDiagram().sample(amount, rand).stream().map(this::toFeatures)
+                        .collect(Collectors.toList());
+            } catch (IllegalStateException e) {
+                if (e != ModelExceptions.BDD_NODE_LIMIT_EXCEEDED) {
+                    throw e;
+                }
+            }
+        }
+        if (job.isLimitExceeded()) {
+            throw ModelExceptions.CONFIGURATION_SPACE_NOT_ENUMERATED;
+        }
+        PackedModelStore models = job.getModels();
+        int available = models.size();
+        if (available == 0) {
+            throw ModelExceptions.MODEL_HAS_NO_VALID_CONFIGURATIONS;
+        }
+        return rand.ints(amount, 0, available).mapToObj(models::getActiveFeatures).map(this::toFeatures)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the binary decision diagram of the formulas. The compile time and size are recorded as metrics tagged
+     * with the name of this model.
+     *
+     * @return The diagram, compiled on first call
+     *
+     * @throws ModelExceptions#BDD_NODE_LIMIT_EXCEEDED If the diagram is too large
+     */
+    public synchronized BinaryDecisionDiagram getDiagram() {
+        if (this.diagram == null) {
+            this.diagram = new BinaryDecisionDiagram(this.formulas, this.binaryFeatures.size(),
+                                                     this.diagramNodeLimit);
+            String system = String.valueOf(this.name);
+            Metrics.timer("featuremodel.bdd.compile", "system", system)
+                    .record(this.diagram.getCompileMillis(), TimeUnit.MILLISECONDS);
+            DistributionSummary.builder("featuremodel.bdd.nodes").tag("system", system).register(Metrics.globalRegistry)
+                    .record(this.diagram.getNodeCount());
+            DistributionSummary.builder("featuremodel.bdd.memory").baseUnit("bytes").tag("system", system)
+                    .register(Metrics.globalRegistry).record(this.diagram.getMemoryBytes());
+        }
+        return this.diagram;
+    }
+
+    /**
+     * Selects the backend answering validity checks. Selecting {@link ModelBackend#BDD} compiles the formulas right
+     * away. If the diagram exceeds the node limit, the model stays with the {@link ModelBackend#SAT} backend.
+     *
+     * @param backend The backend to use
+     */
+    public void setBackend(@NonNull ModelBackend backend) {
+        if (backend == ModelBackend.BDD) {
+            try {
+                this.getDiagram();
+            } catch (IllegalStateException e) {
+                System.err.println("Cannot compile feature model " + this.name + ": " + e.getMessage());
+                return;
+            }
+        }
+        this.backend = backend;
+    }
+
+    /**
+     * Counts the valid configurations of binary features using the compiled formulas.
+     *
+     * @return Amount of valid configurations
+     */
+    public BigInteger countValidConfigurations() {
+        return this.getDiagram().countModels();
+    }
+
+    /**
+     * Counts the valid configurations of binary features which agree with the given partial configuration, using the
+     * compiled formulas.
+     *
+     * @param fixedFeatures Values of some binary features, the remaining features are free
+     *
+     * @return Amount of valid configurations extending the partial configuration
+     *
+     * @throws ParserExceptions#CONFIGURATION_NOT_SUBSET_OF_MODEL If a feature is not a binary feature of this model
+     */
+    public BigInteger countValidConfigurations(@NonNull Map<String, Boolean> fixedFeatures) {
+        if (!this.binaryFeatureIndices.keySet().containsAll(fixedFeatures.keySet())) {
+            throw ParserExceptions.CONFIGURATION_NOT_SUBSET_OF_MODEL;
+        }
+        Map<Integer, Boolean> assumptions = new HashMap<>();
+        fixedFeatures.forEach((feature, value) -> assumptions.put(this.binaryFeatureIndices.get(feature), value));
+        return this.getDiagram().countModels(assumptions);
+    }
+
+    /**
+     * Calculates for every binary feature the share of valid configurations in which it is active, using the compiled
+     * formulas.
+     *
+     * @return Map from the feature names to their commonality between 0 and 1
+     *
+     * @throws ModelExceptions#MODEL_HAS_NO_VALID_CONFIGURATIONS If the model has no valid configuration
+     */
+    public Map<String, Double> getFeatureCommonality() {
+        BinaryDecisionDiagram compiled = this.getDiagram();
+        BigDecimal total = new BigDecimal(compiled.countModels());
+        if (total.signum() == 0) {
+            throw ModelExceptions.MODEL_HAS_NO_VALID_CONFIGURATIONS;
+        }
+        BigInteger[] counts = compiled.countModelsPerVariable();
+        Map<String, Double> commonality = new HashMap<>();
+        this.binaryFeatureIndices.forEach((feature, index) -> commonality.put(
+                feature, new BigDecimal(counts[index]).divide(total, MathContext.DECIMAL64).doubleValue()));
+        return commonality;
+    }
+
+    /**
+     * Finds a valid configuration of binary features with minimal total cost, using the compiled formulas.
+     *
+     * @param costs Cost of every active binary feature, missing features cost nothing
+     *
+     * @return Map from the feature names to their value in a cheapest configuration
+     *
+     * @throws ModelExceptions#MODEL_HAS_NO_VALID_CONFIGURATIONS If the model has no valid configuration
+     */
+    public Map<String, Boolean> findCheapestConfiguration(@NonNull Map<String, Double> costs) {
+        double[] variableCosts = new double[this.binaryFeatures.size() + 1];
+        costs.forEach((feature, cost) -> {
+            Integer index = this.binaryFeatureIndices.get(feature);
+            if (index != null) {
+                variableCosts[index] = cost;
+            }
+        });
+        Set<Integer> active = this.getDiagram().minimizeCost(variableCosts);
+        Map<String, Boolean> configuration = new HashMap<>();
+        this.binaryFeatureIndices.forEach((feature, index) -> configuration.put(feature, active.contains(index)));
+        return configuration;
+    }
+
+    /**
+     * Maps dimacs indices to the binary features of this model.
+     *
+     * @param indices Dimacs indices of binary features
+     *
+     * @return Set of Features
+     */
+    private Set<Feature> toFeatures(Set<Integer> indices) {
+        return indices.stream().map(binaryFeatures::get).collect(Collectors.toSet());
     }
 
     /**
@@ -172,23 +619,165 @@ public class FeatureModel {
      * @return Whether all features could be mapped to instances of {@link Feature} from within this model
      */
     private boolean allFeaturesInModel(@NonNull Set<String> features) {
-        return this.features.parallelStream().map(Feature::getName).collect(Collectors.toSet())
-                .containsAll(features);
+        return this.featureNames.containsAll(features);
+    }
+
+    /**
+     * Returns the binary features which are active in every valid configuration.
+     *
+     * @return Names of the core features
+     */
+    public Set<String> getCoreFeatures() {
+        return this.analysis.getCoreFeatures().stream().map(index -> this.binaryFeatures.get(index).getName())
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Returns the binary features which are active in no valid configuration.
+     *
+     * @return Names of the dead features
+     */
+    public Set<String> getDeadFeatures() {
+        return this.analysis.getDeadFeatures().stream().map(index -> this.binaryFeatures.get(index).getName())
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Returns the classes of binary features whose values determine each other in every valid configuration.
+     *
+     * @return One map per class from the feature names to whether the feature has the same value as the first feature
+     * of the class, false if it always has the opposite value
+     */
+    public List<Map<String, Boolean>> getEquivalentFeatures() {
+        return this.analysis.getEquivalenceClasses().stream().map(
+                equivalenceClass -> equivalenceClass.stream().collect(Collectors.toMap(
+                        literal -> this.binaryFeatures.get(Math.abs(literal)).getName(), literal -> literal > 0)))
+                .collect(Collectors.toList());
     }
 
     /**
      * Checks whether a specific Set of features is matching a valid allocation of features given by the constraints.
+     * <p>
+     * Every binary feature left in the simplified formula is passed to the warm validity solver as an assumption,
+     * positive if it is contained in the given set and negative otherwise, while the clauses removed by variable
+     * elimination are evaluated directly. Therefore the check does neither depend on the enumeration of all models nor
+     * scale with their amount. With the {@link ModelBackend#BDD} backend, the path of the configuration is followed in
+     * the compiled formulas instead. Configurations violating the {@link #analysis} are rejected before either.
      *
      * @param features Set of feature names which are active
      *
      * @return Whether the given feature set is valid within the contraints of this model
+     *
+     * @throws InterruptedException If the solver could not decide the validity in time
+     */
+    private boolean checkIfFeatureSetValid(@NonNull Set<String> features) throws InterruptedException {
+        if (!this.binaryFeatureIndices.keySet().containsAll(features)) {
+            return false;
+        }
+        Set<Integer> activeIndices = features.stream().map(this.binaryFeatureIndices::get).collect(Collectors.toSet());
+        if (!this.analysis.isConsistent(activeIndices)) {
+            return false;
+        }
+        if (this.backend == ModelBackend.BDD) {
+            return this.getDiagram().isModel(activeIndices);
+        }
+        if (!this.preprocessedFormula.satisfiesEliminatedClauses(activeIndices)) {
+            return false;
+        }
+        int[] assumptions = this.preprocessedFormula.toReducedAssumptions(activeIndices);
+        try (SolverPool.Lease lease = this.validitySolvers.lease()) {
+            return lease.isSatisfiable(new VecInt(assumptions));
+        } catch (ContradictionException e) {
+            return false;
+        } catch (TimeoutException e) {
+            throw new InterruptedException("Solver timed out, cannot decide validity of configuration");
+        }
+    }
+
+    /**
+     * Changes the maximal amount of solvers leased concurrently for validity checks, for decision propagation and for
+     * neighbourhood searches.
+     *
+     * @param size Maximal amount of solvers per pool
+     */
+    public void setSolverPoolSize(int size) {
+        this.validitySolvers.setSize(size);
+        this.propagationSolvers.setSize(size);
+        this.nearModelSearch.setSolverPoolSize(size);
+    }
+
+    /**
+     * Derives the binary features which are forced on or off by a partial configuration. The solvers are leased from
+     * a pool shared by all concurrent requests, so they stay warm between the decisions of all users.
+     *
+     * @param decisions Values of the binary features decided so far
+     *
+     * @return Map from the names of all undecided features with only one possible value to this value, empty if the
+     * decisions can not be extended to a valid configuration
+     *
+     * @throws IllegalArgumentException If a decided feature is not a binary feature of this model
+     * @throws InterruptedException     If the solver could not decide in time
+     */
+    public Optional<Map<String, Boolean>> propagateDecisions(@NonNull Map<String, Boolean> decisions)
+    throws IllegalArgumentException, InterruptedException {
+        if (!this.binaryFeatureIndices.keySet().containsAll(decisions.keySet())) {
+            throw ParserExceptions.CONFIGURATION_NOT_SUBSET_OF_MODEL;
+        }
+        Map<Integer, Boolean> decidedIndices = new HashMap<>();
+        decisions.forEach((feature, value) -> decidedIndices.put(this.binaryFeatureIndices.get(feature), value));
+        try {
+            return this.propagator.propagate(decidedIndices).map(forced -> forced.entrySet().stream().collect(
+                    Collectors.toMap(entry -> this.binaryFeatures.get(entry.getKey()).getName(),
+                                     Map.Entry::getValue)));
+        } catch (TimeoutException e) {
+            throw new InterruptedException("Solver timed out, cannot propagate decisions");
+        }
+    }
+
+    /**
+     * Explains why selected values of binary features can not be extended to a valid configuration, by a minimal
+     * subset of the selections and the constraints they violate.
+     *
+     * @param selections   Values of the binary features selected so far
+     * @param budgetMillis Time in milliseconds after which an explanation is returned without further minimization
+     *
+     * @return The explanation, empty if the selections can be extended to a valid configuration
+     *
+     * @throws IllegalArgumentException If a selected feature is not a binary feature of this model
+     * @throws InterruptedException     If the solver could not decide whether the selections conflict in time
+     */
+    public Optional<ConfigurationExplanation> explainConfiguration(@NonNull Map<String, Boolean> selections,
+                                                                   long budgetMillis)
+    throws IllegalArgumentException, InterruptedException {
+        if (!this.binaryFeatureIndices.keySet().containsAll(selections.keySet())) {
+            throw ParserExceptions.CONFIGURATION_NOT_SUBSET_OF_MODEL;
+        }
+        int[] literals = selections.entrySet().stream().mapToInt(entry -> {
+            int index = this.binaryFeatureIndices.get(entry.getKey());
+            return entry.getValue() ? index : -index;
+        }).toArray();
+        Optional<ConflictExplainer.Conflict> conflict;
+        try {
+            conflict = this.explainer.explain(literals, budgetMillis);
+        } catch (TimeoutException e) {
+            throw new InterruptedException("Solver timed out, cannot decide whether the selections conflict");
+        }
+        return conflict.map(found -> new ConfigurationExplanation(
+                this.toNamedLiterals(Arrays.stream(found.getSelections()).boxed().collect(Collectors.toSet())),
+                found.getClauses().stream().map(this::toNamedLiterals).collect(Collectors.toList()),
+                found.isMinimal()));
+    }
+
+    /**
+     * Maps literals to the names of their binary features and the value satisfying them.
+     *
+     * @param literals Literals of binary features
+     *
+     * @return Map from the feature names to true for positive and false for negative literals
      */
-    private boolean checkIfFeatureSetValid(@NonNull Set<String> features) {
-        return this.models.parallelStream()
-                .map(integers -> integers.parallelStream()
-                        .map(integer -> this.binaryFeatures.get(integer).getName())
-                        .collect(Collectors.toSet()))
-                .anyMatch(strings -> features.containsAll(strings) && strings.containsAll(features));
+    private Map<String, Boolean> toNamedLiterals(Set<Integer> literals) {
+        return literals.stream().collect(Collectors.toMap(
+                literal -> this.binaryFeatures.get(Math.abs(literal)).getName(), literal -> literal > 0));
     }
 
     /**
@@ -201,20 +790,52 @@ public class FeatureModel {
      * @return Whether the given configuration is valid
      *
      * @throws IllegalArgumentException If the given configuration contains features not included in the feature model
-     * @throws InterruptedException     If the thread calculating was interrupted before it could finish gracefully
+     * @throws InterruptedException     If the solver could not decide the validity in time
      */
     public boolean isValidConfiguration(@NonNull FeatureConfiguration configuration) throws
                                                                                      IllegalArgumentException,
                                                                                      InterruptedException {
         final Set<String> activeFeatures = configuration.getActiveFeatures();
-        if (!this.isModelCalculationFailed()) {
-            if (this.allFeaturesInModel(activeFeatures)) {
-                this.modelGeneratorThread.join();
-                return this.checkIfFeatureSetValid(activeFeatures);
-            } else throw ParserExceptions.CONFIGURATION_NOT_SUBSET_OF_MODEL;
-        } else {
-            throw new InterruptedException("Thread failed, cannot calculate valid configurations");
+        if (this.allFeaturesInModel(activeFeatures)) {
+            return this.checkIfFeatureSetValid(activeFeatures);
+        } else throw ParserExceptions.CONFIGURATION_NOT_SUBSET_OF_MODEL;
+    }
+
+    /**
+     * Finds the valid configuration of binary features which flips the fewest features of a configuration, solving a
+     * single weighted partial MaxSAT problem. Flipping a pinned feature costs more than flipping all unpinned features
+     * together, so pinned features are only flipped if no repair keeps them.
+     *
+     * @param configuration  The configuration to repair
+     * @param pinnedFeatures Names of the binary features whose value should be kept preferably
+     *
+     * @return Map from the names of all binary features to their value in the repaired configuration
+     *
+     * @throws IllegalArgumentException                          If a feature is not a binary feature of this model
+     * @throws ModelExceptions#MODEL_HAS_NO_VALID_CONFIGURATIONS If the model has no valid configuration
+     * @throws InterruptedException                              If the solver did not prove the optimum in time
+     */
+    public Map<String, Boolean> repairConfiguration(@NonNull FeatureConfiguration configuration,
+                                                    @NonNull Set<String> pinnedFeatures)
+    throws IllegalArgumentException, InterruptedException {
+        Set<String> activeFeatures = configuration.getActiveFeatures();
+        if (!this.allFeaturesInModel(activeFeatures) ||
+            !this.binaryFeatureIndices.keySet().containsAll(pinnedFeatures)) {
+            throw ParserExceptions.CONFIGURATION_NOT_SUBSET_OF_MODEL;
+        }
+        Map<Integer, Integer> weights = new HashMap<>();
+        pinnedFeatures.forEach(feature -> weights.put(this.binaryFeatureIndices.get(feature),
+                                                      this.binaryFeatures.size() + 1));
+        Set<Integer> repaired;
+        try {
+            repaired = this.repair.repair(this.convertFeatureNamesToIndices(activeFeatures), weights)
+                    .orElseThrow(() -> ModelExceptions.MODEL_HAS_NO_VALID_CONFIGURATIONS);
+        } catch (TimeoutException e) {
+            throw new InterruptedException("Solver timed out, cannot repair configuration");
         }
+        Map<String, Boolean> modelAsMap = new HashMap<>();
+        binaryFeatures.forEach((index, feature) -> modelAsMap.put(feature.getName(), repaired.contains(index)));
+        return modelAsMap;
     }
 
     /**
@@ -232,27 +853,51 @@ public class FeatureModel {
     }
 
     /**
-     * Calculates the minimal model by finding the smallest integer set and creating a map of feature names out of it.
+     * Calculates the minimal model, the model with the fewest active features, and creates a map of feature names out
+     * of it. The model is taken from the pseudo-boolean optimization started at load. Only if that did not prove the
+     * optimum in time, all enumerated models are scanned.
      */
     @SneakyThrows
     private void findMinimalModel() {
-        Map<String, Boolean> minimalModel = new HashMap<>();
+        Optional<Set<Integer>> optimum;
+        try {
+            optimum = this.minimalModelSearch.get();
+        } catch (ExecutionException e) {
+            this.findMinimalEnumeratedModel();
+            return;
+        }
+        Set<Integer> active = optimum.orElseThrow(() -> ModelExceptions.MODEL_HAS_NO_VALID_CONFIGURATIONS);
+        Map<String, Boolean> modelAsMap = new HashMap<>();
+        binaryFeatures.forEach((index, feature) -> modelAsMap.put(feature.getName(), active.contains(index)));
+        this.minimalModel = modelAsMap;
+    }
+
+    /**
+     * Calculates the minimal model by scanning all enumerated models for the one with the fewest active features.
+     *
+     * @throws InterruptedException If the thread was interrupted while waiting for the enumeration
+     */
+    private void findMinimalEnumeratedModel() throws InterruptedException {
         int modelSize = Integer.MAX_VALUE;
-        Set<Integer> minimalModelSet = null;
-        this.modelGeneratorThread.join();
-        for (Set<Integer> model : models) {
-            if (model.size() < modelSize) {
-                modelSize       = model.size();
-                minimalModelSet = model;
+        int minimalModelIndex = -1;
+        ModelEnumerationJob job = this.enumerationJob;
+        job.awaitCompletion();
+        if (job.isLimitExceeded()) {
+            throw ModelExceptions.CONFIGURATION_SPACE_NOT_ENUMERATED;
+        }
+        PackedModelStore models = job.getModels();
+        for (int model = 0; model < models.size(); model++) {
+            int cardinality = models.cardinality(model);
+            if (cardinality < modelSize ||
+                (cardinality == modelSize && models.compare(model, minimalModelIndex) < 0)) {
+                modelSize         = cardinality;
+                minimalModelIndex = model;
             }
         }
-        List<String> activeFeatures = new ArrayList<>();
-        minimalModelSet.forEach(i -> activeFeatures.add(binaryFeatures.get(i).getName()));
-        for (Feature feature : binaryFeatures.values()) {
-            String featureName = feature.getName();
-            minimalModel.put(featureName, activeFeatures.contains(featureName));
+        if (minimalModelIndex < 0) {
+            throw ModelExceptions.MODEL_HAS_NO_VALID_CONFIGURATIONS;
         }
-        this.minimalModel = minimalModel;
+        this.minimalModel = this.convertModelToBinaryFeatureMap(models, minimalModelIndex);
     }
 
     /**
@@ -294,85 +939,198 @@ public class FeatureModel {
      */
     public Set<Map<String, Boolean>> getNearModelsBinary(FeatureConfiguration featureConfiguration, int maxDiff)
     throws InterruptedException {
-        Set<Integer> configAsIntegerSet = convertConfigToIntegerSet(featureConfiguration);
+        return this.getNearModelsBinary(featureConfiguration, maxDiff, false);
+    }
 
-        this.modelGeneratorThread.join();
-        Set<Set<Integer>> nearModels = this.models.parallelStream()
-                .filter(model -> Math.abs(configAsIntegerSet.size() - model.size()) <= maxDiff)
-                .filter(model -> modelIsNear(configAsIntegerSet, model, maxDiff))
-                .collect(Collectors.toSet());
+    /**
+     * Finds all near Models for a given {@link FeatureConfiguration}.
+     *
+     * @param featureConfiguration The {@link FeatureConfiguration} that determines center of the range
+     * @param maxDiff              The number of features that can be different
+     * @param approximate          Whether the answer may be based on the models found so far instead of searching
+     *                             with a solver while the enumeration is running
+     *
+     * @return A Set of Maps containing the {@link Feature}s as keys and the activ state as value, empty without
+     * searching if the {@link #analysis} rules out every model within the distance
+     *
+     * @throws InterruptedException If the solver could not decide in time
+     */
+    public Set<Map<String, Boolean>> getNearModelsBinary(FeatureConfiguration featureConfiguration, int maxDiff,
+                                                         boolean approximate)
+    throws InterruptedException {
+        Set<Integer> activeIndices = this.convertFeatureNamesToIndices(featureConfiguration.getActiveFeatures());
+        if (this.analysis.minimalDistance(activeIndices) > maxDiff) {
+            return new HashSet<>();
+        }
+        ModelEnumerationJob job = this.enumerationJob;
+        if (this.searchesNearModels(job, approximate)) {
+            return this.searchModelsWithinDistance(activeIndices, maxDiff);
+        }
+        long[] configAsBits = job.getModels().toBits(activeIndices);
 
-        Set<Map<String, Boolean>> nearModelsAsBinaryMap = nearModels.parallelStream()
-                .map(this::convertModelToBinaryFeatureMap)
+        return Arrays.stream(this.findModelsWithinDistance(job, configAsBits, maxDiff))
+                .mapToObj(model -> this.convertModelToBinaryFeatureMap(job.getModels(), model))
                 .collect(Collectors.toSet());
-
-        return nearModelsAsBinaryMap;
     }
 
+    /**
+     * Finds all models which have the smallest possible distance to a given {@link FeatureConfiguration}.
+     *
+     * @param featureConfiguration The {@link FeatureConfiguration} to which the nearest models are searched
+     *
+     * @return A Set of Maps containing the {@link Feature}s as keys and the activ state as value, empty if this model
+     * has no valid configurations
+     *
+     * @throws InterruptedException If the thread calculating was interrupted before it could finish gracefully
+     */
+    public Set<Map<String, Boolean>> getNearestModelsBinary(FeatureConfiguration featureConfiguration)
+    throws InterruptedException {
+        return this.getNearestModelsBinary(featureConfiguration, false);
+    }
 
     /**
-     * Converts a {@link FeatureConfiguration} to a model, comparable to the {@link #models} of this class. Returns a
-     * Set of Integers which represent an active feature mapped by {@link #binaryFeatures}.
+     * Finds all models which have the smallest possible distance to a given {@link FeatureConfiguration}.
      *
-     * @param featureConfiguration The configuration that should get converted
+     * @param featureConfiguration The {@link FeatureConfiguration} to which the nearest models are searched
+     * @param approximate          Whether the answer may be based on the models found so far instead of searching
+     *                             with a solver while the enumeration is running
      *
-     * @return A Set of Integers, describing the active features
+     * @return A Set of Maps containing the {@link Feature}s as keys and the activ state as value, empty if no valid
+     * configuration is known
+     *
+     * @throws InterruptedException If the solver could not decide in time
      */
-    private Set<Integer> convertConfigToIntegerSet(FeatureConfiguration featureConfiguration) {
-        Map<String, Integer> featureNameToInt = new HashMap<>();
-        this.binaryFeatures.keySet().stream()
-                .forEach(FeatureAsInt ->
-                                 featureNameToInt
-                                         .put(this.binaryFeatures.get(FeatureAsInt).getName(), FeatureAsInt));
+    public Set<Map<String, Boolean>> getNearestModelsBinary(FeatureConfiguration featureConfiguration,
+                                                            boolean approximate)
+    throws InterruptedException {
+        Set<Integer> activeIndices = this.convertFeatureNamesToIndices(featureConfiguration.getActiveFeatures());
+        ModelEnumerationJob job = this.enumerationJob;
+        if (this.searchesNearModels(job, approximate)) {
+            try {
+                int nearestDistance = this.nearModelSearch.nearestDistance(
+                        activeIndices, this.analysis.minimalDistance(activeIndices));
+                return this.searchModelsWithinDistance(activeIndices, nearestDistance);
+            } catch (TimeoutException e) {
+                throw new InterruptedException("Solver timed out, cannot find nearest configurations");
+            }
+        }
+        long[] configAsBits = job.getModels().toBits(activeIndices);
 
-        Set<String> activeFeatures = featureConfiguration.getActiveFeatures();
-        Set<Integer> configAsIntegerSet = activeFeatures.parallelStream()
-                .map(featureNameToInt::get)
+        int nearestDistance = this.findNearestDistance(job, configAsBits);
+        if (nearestDistance < 0) {
+            return new HashSet<>();
+        }
+        return Arrays.stream(this.findModelsWithinDistance(job, configAsBits, nearestDistance))
+                .mapToObj(model -> this.convertModelToBinaryFeatureMap(job.getModels(), model))
                 .collect(Collectors.toSet());
-
-        return configAsIntegerSet;
     }
 
-
     /**
-     * Converts a Set of Integers representing active {@link Feature}s to a Map containing all feature names mapped to
-     * against their active-state.
+     * Decides whether a neighbourhood query is answered by the {@link #nearModelSearch} instead of the enumerated
+     * models. This is the case while the enumeration is incomplete, unless the caller accepts an answer based on the
+     * models found so far, and always for solver-backed models without a complete enumeration.
      *
-     * @param model A Set of Integers representing active features
+     * @param job         The enumeration job whose models would answer the query
+     * @param approximate Whether the models found so far are sufficient
      *
-     * @return A Map containing {@link Feature} names as keys and their active-state as values
+     * @return Whether to search with a solver
      */
-    private Map<String, Boolean> convertModelToBinaryFeatureMap(Set<Integer> model) {
-        Map<String, Boolean> integerSetAsMap = new HashMap<>();
+    private boolean searchesNearModels(ModelEnumerationJob job, boolean approximate) {
+        if (job.isComplete()) {
+            return false;
+        }
+        return !approximate || job.isLimitExceeded();
+    }
 
-        List<String> activeFeatures = new ArrayList<>();
-        model.forEach(integer -> activeFeatures.add(binaryFeatures.get(integer).getName()));
+    /**
+     * Searches all models within a distance with the {@link #nearModelSearch}.
+     *
+     * @param activeIndices Dimacs indices of the active features
+     * @param maxDiff       The number of features that can be different, negative if there is no model
+     *
+     * @return A Set of Maps containing the {@link Feature}s as keys and the activ state as value
+     *
+     * @throws InterruptedException If the solver could not decide in time
+     */
+    private Set<Map<String, Boolean>> searchModelsWithinDistance(Set<Integer> activeIndices, int maxDiff)
+    throws InterruptedException {
+        Set<Map<String, Boolean>> nearModels = new HashSet<>();
+        try {
+            this.nearModelSearch.forEachModelWithin(activeIndices, maxDiff, active -> {
+                Map<String, Boolean> modelAsMap = new HashMap<>();
+                binaryFeatures.forEach((index, feature) -> modelAsMap.put(feature.getName(), active.contains(index)));
+                nearModels.add(modelAsMap);
+                return true;
+            });
+        } catch (TimeoutException e) {
+            throw new InterruptedException("Solver timed out, cannot find near configurations");
+        }
+        return nearModels;
+    }
 
-        binaryFeatures.values().forEach(feature -> integerSetAsMap.put(feature.getName(),
-                                                                       activeFeatures.contains(feature.getName())));
+    /**
+     * Finds the indices of all known models within a distance. Uses the index of the job once the enumeration is
+     * finished and scans the models found so far otherwise.
+     *
+     * @param job     The enumeration job whose models are searched
+     * @param bits    Bitset of the active features
+     * @param maxDiff The number of features that can be different
+     *
+     * @return Indices of the models within the store of the job
+     */
+    private int[] findModelsWithinDistance(ModelEnumerationJob job, long[] bits, int maxDiff) {
+        if (job.isDone()) {
+            return job.getNearModelIndex().withinDistance(bits, maxDiff);
+        }
+        PackedModelStore models = job.getModels();
+        return IntStream.range(0, models.size()).parallel()
+                .filter(model -> models.distance(model, bits) <= maxDiff).toArray();
+    }
 
-        return integerSetAsMap;
+    /**
+     * Finds the smallest distance between a bitset and all known models.
+     *
+     * @param job  The enumeration job whose models are searched
+     * @param bits Bitset of the active features
+     *
+     * @return The smallest distance or {@code -1} if no model is known
+     */
+    private int findNearestDistance(ModelEnumerationJob job, long[] bits) {
+        if (job.isDone()) {
+            return job.getNearModelIndex().nearestDistance(bits);
+        }
+        PackedModelStore models = job.getModels();
+        return IntStream.range(0, models.size()).parallel()
+                .map(model -> models.distance(model, bits)).min().orElse(-1);
     }
 
 
     /**
-     * Checks if a Set of Integers representing active {@link Feature}s differs another Set of Integers by a maximum of
-     * n features.
+     * Converts names of active binary features to their dimacs indices. Names which are not binary features of this
+     * model are ignored.
      *
-     * @param modelA  Set of Integers representing active features
-     * @param modelB  Another Set of Integers representing active features
-     * @param maxDiff Number n which determines the maximum in differences
+     * @param activeFeatures The names of the active features
      *
-     * @return TRUE if differences doesn't exceed the given maximum
+     * @return The dimacs indices of the active features
      */
-    private boolean modelIsNear(Set<Integer> modelA, Set<Integer> modelB, int maxDiff) {
-        Set<Integer> union = new HashSet<>();
+    private Set<Integer> convertFeatureNamesToIndices(Set<String> activeFeatures) {
+        return activeFeatures.stream().map(this.binaryFeatureIndices::get).filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+    }
 
-        union.addAll(modelA);
-        union.addAll(modelB);
 
-        int notInA = union.size() - modelA.size();
-        int notInB = union.size() - modelB.size();
-        return (notInA + notInB) <= maxDiff;
+    /**
+     * Converts a saved model to a Map containing all binary feature names mapped against their active-state.
+     *
+     * @param models     The store holding the model
+     * @param modelIndex The index of the model within the store
+     *
+     * @return A Map containing {@link Feature} names as keys and their active-state as values
+     */
+    private Map<String, Boolean> convertModelToBinaryFeatureMap(PackedModelStore models, int modelIndex) {
+        Map<String, Boolean> modelAsMap = new HashMap<>();
+        binaryFeatures.forEach((index, feature) -> modelAsMap.put(feature.getName(),
+                                                                  models.isActive(modelIndex, index)));
+        return modelAsMap;
     }
 }
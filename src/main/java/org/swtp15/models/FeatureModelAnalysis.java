@@ -0,0 +1,300 @@
+package org.swtp15.models;
+
+import lombok.Getter;
+import org.sat4j.specs.TimeoutException;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Structural analysis of the formulas of a {@link FeatureModel}, computed once when the model is loaded.
+ * <p>
+ * The analysis contains the core features, which are active in every valid configuration, the dead features, which
+ * are active in none, and the classes of equivalent features. Two features are equivalent if their literals lie in the
+ * same strongly connected component of the binary implication graph, where every clause {@code a | b} adds the edges
+ * {@code -a -> b} and {@code -b -> a}. A feature may also be equivalent to the negation of another one, as for two
+ * alternatives.
+ * <p>
+ * Every configuration violating one of these facts is invalid, so checks and searches can reject it or prune by it
+ * without consulting a solver. Analyses are cached by the fingerprint of the formulas, so reloading an unchanged
+ * feature model does not analyse it again.
+ */
+public class FeatureModelAnalysis {
+
+    private static final FingerprintCache<FeatureModelAnalysis> CACHE = new FingerprintCache<>();
+
+    private final int amountOfVariables;
+
+    /**
+     * Whether the formulas have at least one model.
+     */
+    @Getter
+    private final boolean satisfiable;
+
+    /**
+     * Variables which are true in every model.
+     */
+    @Getter
+    private final Set<Integer> coreFeatures;
+
+    /**
+     * Variables which are false in every model.
+     */
+    @Getter
+    private final Set<Integer> deadFeatures;
+
+    /**
+     * Literal every variable is equivalent to, the literal of the smallest variable of its class. Variables which are
+     * not equivalent to another one are their own representative.
+     */
+    private final int[] representative;
+
+    /**
+     * Analyses the given formulas. The backbone is derived with a {@link DecisionPropagator} without decisions. If a
+     * solver call times out or is interrupted, the backbone is left empty and the formulas are assumed to be
+     * satisfiable, so the analysis stays sound but prunes less.
+     *
+     * @param formulas          Set of clauses, where every clause is a set of literals
+     * @param amountOfVariables Amount of variables of the formula
+     */
+    public FeatureModelAnalysis(Set<Set<Integer>> formulas, int amountOfVariables) {
+        this.amountOfVariables = amountOfVariables;
+        this.coreFeatures      = new HashSet<>();
+        this.deadFeatures      = new HashSet<>();
+        this.representative    = new int[amountOfVariables + 1];
+
+        Optional<Map<Integer, Boolean>> backbone;
+        try {
+            backbone = new DecisionPropagator(formulas, amountOfVariables).propagate(Collections.emptyMap());
+        } catch (TimeoutException e) {
+            backbone = Optional.of(Collections.emptyMap());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            backbone = Optional.of(Collections.emptyMap());
+        }
+        this.satisfiable = backbone.isPresent();
+        backbone.ifPresent(forced -> forced.forEach(
+                (variable, value) -> (value ? this.coreFeatures : this.deadFeatures).add(variable)));
+
+        for (int variable = 1; variable <= amountOfVariables; variable++) {
+            this.representative[variable] = variable;
+        }
+        if (this.satisfiable) {
+            this.findEquivalences(formulas);
+        }
+    }
+
+    /**
+     * Returns the analysis of the given formulas, analysing them on the calling thread if they are not cached.
+     *
+     * @param fingerprint       Fingerprint of the formulas, used as cache key
+     * @param formulas          Set of clauses, where every clause is a set of literals
+     * @param amountOfVariables Amount of variables of the formula
+     *
+     * @return The analysis of the formulas
+     */
+    static FeatureModelAnalysis of(long fingerprint, Set<Set<Integer>> formulas, int amountOfVariables) {
+        return CACHE.get(fingerprint, () -> new FeatureModelAnalysis(formulas, amountOfVariables));
+    }
+
+    private static int literalIndex(int literal) {
+        return literal > 0 ? 2 * literal : -2 * literal + 1;
+    }
+
+    private static int indexLiteral(int index) {
+        return (index & 1) == 0 ? index / 2 : -(index / 2);
+    }
+
+    /**
+     * Computes the strongly connected components of the binary implication graph with an iterative version of Tarjan's
+     * algorithm and assigns every variable the representative literal of its component. Backbone variables are left
+     * out, as they are already fixed.
+     *
+     * @param formulas Set of clauses, where every clause is a set of literals
+     */
+    private void findEquivalences(Set<Set<Integer>> formulas) {
+        int nodes = 2 * this.amountOfVariables + 2;
+        List<List<Integer>> successors = new ArrayList<>(nodes);
+        for (int i = 0; i < nodes; i++) {
+            successors.add(new ArrayList<>());
+        }
+        for (Set<Integer> clause : formulas) {
+            if (clause.size() != 2) {
+                continue;
+            }
+            Iterator<Integer> literals = clause.iterator();
+            int a = literals.next();
+            int b = literals.next();
+            if (a != -b && this.isOpen(a) && this.isOpen(b)) {
+                successors.get(literalIndex(-a)).add(literalIndex(b));
+                successors.get(literalIndex(-b)).add(literalIndex(a));
+            }
+        }
+
+        int[] order = new int[nodes];
+        int[] lowLink = new int[nodes];
+        boolean[] onStack = new boolean[nodes];
+        Arrays.fill(order, -1);
+        Deque<Integer> stack = new ArrayDeque<>();
+        Deque<int[]> callStack = new ArrayDeque<>();
+        int counter = 0;
+        for (int start = 2; start < nodes; start++) {
+            if (order[start] >= 0) {
+                continue;
+            }
+            callStack.push(new int[]{start, 0});
+            while (!callStack.isEmpty()) {
+                int[] frame = callStack.peek();
+                int node = frame[0];
+                if (frame[1] == 0) {
+                    order[node]   = counter;
+                    lowLink[node] = counter++;
+                    stack.push(node);
+                    onStack[node] = true;
+                }
+                List<Integer> next = successors.get(node);
+                if (frame[1] < next.size()) {
+                    int successor = next.get(frame[1]++);
+                    if (order[successor] < 0) {
+                        callStack.push(new int[]{successor, 0});
+                    } else if (onStack[successor]) {
+                        lowLink[node] = Math.min(lowLink[node], order[successor]);
+                    }
+                    continue;
+                }
+                callStack.pop();
+                if (!callStack.isEmpty()) {
+                    int parent = callStack.peek()[0];
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[node]);
+                }
+                if (lowLink[node] == order[node]) {
+                    List<Integer> component = new ArrayList<>();
+                    int member;
+                    do {
+                        member = stack.pop();
+                        onStack[member] = false;
+                        component.add(indexLiteral(member));
+                    } while (member != node);
+                    this.assignRepresentative(component);
+                }
+            }
+        }
+    }
+
+    /**
+     * Lets every positive literal of a component point to the literal with the smallest variable in it.
+     *
+     * @param component Literals of a strongly connected component
+     */
+    private void assignRepresentative(List<Integer> component) {
+        if (component.size() < 2) {
+            return;
+        }
+        int smallest = component.stream().min(Comparator.comparingInt(Math::abs)).orElseThrow();
+        for (int literal : component) {
+            if (literal > 0 && Math.abs(smallest) < literal) {
+                this.representative[literal] = smallest;
+            }
+        }
+    }
+
+    /**
+     * Checks whether a variable is not part of the backbone.
+     *
+     * @param literal Literal of the variable
+     *
+     * @return Whether the variable can take both values
+     */
+    private boolean isOpen(int literal) {
+        int variable = Math.abs(literal);
+        return !this.coreFeatures.contains(variable) && !this.deadFeatures.contains(variable);
+    }
+
+    /**
+     * Returns the backbone as literals, positive for core and negative for dead features.
+     *
+     * @return The literals true in every model
+     */
+    public int[] getBackboneLiterals() {
+        return IntStream.concat(this.coreFeatures.stream().mapToInt(Integer::intValue),
+                                this.deadFeatures.stream().mapToInt(variable -> -variable)).toArray();
+    }
+
+    /**
+     * Returns the literal a variable is equivalent to.
+     *
+     * @param variable The variable
+     *
+     * @return The literal of the representative of its class, the variable itself if it has no equivalent
+     */
+    public int getRepresentative(int variable) {
+        return this.representative[variable];
+    }
+
+    /**
+     * Returns all classes of at least two equivalent variables.
+     *
+     * @return Classes as literals, where the positive representative is contained in every class and a negative
+     * literal means that the variable always has the opposite value of the representative
+     */
+    public Collection<Set<Integer>> getEquivalenceClasses() {
+        Map<Integer, Set<Integer>> classes = new TreeMap<>();
+        for (int variable = 1; variable <= this.amountOfVariables; variable++) {
+            int literal = this.representative[variable];
+            if (literal != variable) {
+                int sign = literal > 0 ? 1 : -1;
+                classes.computeIfAbsent(Math.abs(literal), key -> new TreeSet<>(Set.of(key))).add(sign * variable);
+            }
+        }
+        return classes.values();
+    }
+
+    /**
+     * Calculates how many variables of an assignment have to be flipped at least to satisfy the backbone and all
+     * equivalences. Every valid configuration therefore has at least this distance to the assignment.
+     *
+     * @param activeVariables The variables which are true, all others are false
+     *
+     * @return A lower bound of the distance to the nearest model
+     */
+    public int minimalDistance(Set<Integer> activeVariables) {
+        int distance = 0;
+        for (int variable : this.coreFeatures) {
+            if (!activeVariables.contains(variable)) {
+                distance++;
+            }
+        }
+        for (int variable : this.deadFeatures) {
+            if (activeVariables.contains(variable)) {
+                distance++;
+            }
+        }
+        Map<Integer, int[]> agreement = new HashMap<>();
+        for (int variable = 1; variable <= this.amountOfVariables; variable++) {
+            int literal = this.representative[variable];
+            if (literal == variable) {
+                continue;
+            }
+            int representativeVariable = Math.abs(literal);
+            boolean expected = activeVariables.contains(representativeVariable) == literal > 0;
+            int[] counts = agreement.computeIfAbsent(representativeVariable, key -> new int[2]);
+            counts[activeVariables.contains(variable) == expected ? 0 : 1]++;
+        }
+        for (int[] counts : agreement.values()) {
+            // either the disagreeing members or the representative and all agreeing members are flipped
+            distance += Math.min(counts[1], counts[0] + 1);
+        }
+        return distance;
+    }
+
+    /**
+     * Checks whether an assignment satisfies the backbone and all equivalences, which every valid configuration does.
+     *
+     * @param activeVariables The variables which are true, all others are false
+     *
+     * @return Whether the assignment may be valid
+     */
+    public boolean isConsistent(Set<Integer> activeVariables) {
+        return this.satisfiable && this.minimalDistance(activeVariables) == 0;
+    }
+}
@@ -10,7 +10,7 @@ import org.swtp15.system.SystemExceptions;
 import java.io.FileNotFoundException;
 import java.util.*;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.stream.IntStream;
 
 public class FeatureSystem {
 
@@ -19,9 +19,16 @@ public class FeatureSystem {
     private String name;
 
     @Getter
-    @Setter
     private PerformanceInfluenceModel performanceModel;
 
+    /**
+     * Cache of the evaluation results of the current performance model.
+     */
+    @Getter
+    private volatile EvaluationCache evaluationCache;
+
+    private long evaluationCacheSize = EvaluationCache.DEFAULT_MAXIMUM_SIZE;
+
     @Getter
     @Setter
     private FeatureModel featureModel;
@@ -49,6 +56,7 @@ public class FeatureSystem {
 
         this.featureModel.setFeatureSystem(this);
         this.performanceModel.setFeatureSystem(this);
+        this.evaluationCache = new EvaluationCache(name, performanceModel, this.evaluationCacheSize);
     }
 
     /**
@@ -77,6 +85,7 @@ public class FeatureSystem {
 
         this.featureModel.setFeatureSystem(this);
         this.performanceModel.setFeatureSystem(this);
+        this.evaluationCache = new EvaluationCache(name, performanceModel, this.evaluationCacheSize);
     }
 
     /**
@@ -94,6 +103,41 @@ public class FeatureSystem {
         return this.featureModel.isValidConfiguration(featureConfiguration);
     }
 
+    /**
+     * Replaces the performance model, dropping all evaluation results cached for the previous one.
+     *
+     * @param performanceModel The new {@link PerformanceInfluenceModel}
+     */
+    public void setPerformanceModel(PerformanceInfluenceModel performanceModel) {
+        this.evaluationCache.invalidateAll();
+        this.performanceModel = performanceModel;
+        this.evaluationCache  = new EvaluationCache(this.name, performanceModel, this.evaluationCacheSize);
+        this.performanceModel.setFeatureSystem(this);
+    }
+
+    /**
+     * Changes the maximal amount of cached evaluation results, dropping all results cached so far.
+     *
+     * @param size Maximal amount of cached results
+     */
+    public void setEvaluationCacheSize(long size) {
+        this.evaluationCache.invalidateAll();
+        this.evaluationCacheSize = size;
+        this.evaluationCache     = new EvaluationCache(this.name, this.performanceModel, size);
+    }
+
+    /**
+     * Evaluates a {@link FeatureConfiguration} without changing it. Results are cached, so evaluating the same
+     * configuration again is a lookup.
+     *
+     * @param featureConfiguration The Configuration to be evaluated
+     *
+     * @return The immutable evaluation result
+     */
+    public EvaluationResult evaluate(FeatureConfiguration featureConfiguration) {
+        return this.evaluationCache.evaluate(featureConfiguration);
+    }
+
     /**
      * Evaluates a {@link FeatureConfiguration}. It sets the Map of the FeatureConfiguration to the evaluated values,
      * but also returns this Map because we will probably need this later, when trying to optimize a Config.
@@ -103,7 +147,28 @@ public class FeatureSystem {
      * @return The evaluated Property values as a Map.
      */
     public Map<Property, Double> evaluateFeatureConfiguration(FeatureConfiguration featureConfiguration) {
-        return performanceModel.evaluateConfiguration(featureConfiguration);
+        EvaluationResult result = this.evaluate(featureConfiguration);
+        featureConfiguration.applyEvaluation(result);
+        return result.getPropertyValues();
+    }
+
+    /**
+     * Evaluates multiple {@link FeatureConfiguration} at once, setting their property values. Cached results are
+     * reused, only the remaining configurations are evaluated as a batch.
+     *
+     * @param featureConfigurations The configurations to be evaluated
+     *
+     * @return A map having each input configuration mapped to its property values
+     */
+    public Map<FeatureConfiguration, Map<Property, Double>> evaluateFeatureConfigurations(
+            FeatureConfiguration... featureConfigurations) {
+        List<EvaluationResult> results = this.evaluationCache.evaluate(Arrays.asList(featureConfigurations));
+        Map<FeatureConfiguration, Map<Property, Double>> evaluations = new HashMap<>();
+        for (int i = 0; i < featureConfigurations.length; i++) {
+            featureConfigurations[i].setPropertyValueMap(results.get(i).getPropertyValuesByName());
+            evaluations.put(featureConfigurations[i], results.get(i).getPropertyValues());
+        }
+        return evaluations;
     }
 
     /**
@@ -156,45 +221,68 @@ public class FeatureSystem {
      *
      * @throws IllegalArgumentException If configuration can't be or is already optimized
      */
-    @SneakyThrows
     public FeatureConfiguration findLocalOptimum(FeatureConfiguration configToOptimize, String propertyName,
                                                  int maxDifference) throws IllegalArgumentException {
+        return this.findLocalOptimum(configToOptimize, propertyName, maxDifference, false);
+    }
+
+    /**
+     * Find (local) optimum for a specific property in a given range. Range here describes the features that can be
+     * different from the given configuration.
+     *
+     * @param configToOptimize {@link FeatureConfiguration} that needs optimization
+     * @param propertyName     name of property that should be optimized
+     * @param maxDifference    number of features that can be different
+     * @param approximate      Whether only the valid configurations found so far should be considered, instead of
+     *                         waiting for all to be enumerated
+     *
+     * @return optimized {@link FeatureConfiguration} for property
+     *
+     * @throws IllegalArgumentException If configuration can't be or is already optimized
+     */
+    @SneakyThrows
+    public FeatureConfiguration findLocalOptimum(FeatureConfiguration configToOptimize, String propertyName,
+                                                 int maxDifference, boolean approximate)
+    throws IllegalArgumentException {
         if (!configurationIsValid(configToOptimize)) {
             throw ModelExceptions.CONFIGURATION_NOT_VALID;
         }
 
-        // evaluate given config
-        evaluateFeatureConfiguration(configToOptimize);
+        // evaluate given config, leaving it unchanged
+        EvaluationCache cache = this.evaluationCache;
+        EvaluationResult initialResult = cache.evaluate(configToOptimize);
 
         // get local config(s) as feature map
         Set<Map<String, Boolean>> localConfigMapsBinary = this.featureModel.getNearModelsBinary(configToOptimize,
-                                                                                                maxDifference);
+                                                                                                maxDifference,
+                                                                                                approximate);
         Map<String, Integer> localConfigMapNumeric = getNearModelNumeric(configToOptimize, maxDifference, propertyName);
 
-        // create FeatureConfiguration(s) from feature map
-        Set<FeatureConfiguration> localConfigs = localConfigMapsBinary.stream()
-                .map(binaryFeatureMap -> new FeatureConfiguration(this.name,
-                                                                  binaryFeatureMap,
-                                                                  localConfigMapNumeric,
-                                                                  performanceModel.getInitialPropertyMap()))
-                .collect(Collectors.toSet());
-
-        // evaluate FeatureConfiguration(s) and set values
-        localConfigs.forEach(this::evaluateFeatureConfiguration);
-
-        // find best-in-property
+        // find best-in-property, evaluating the local configs not cached yet as one batch
         Boolean isToMinimize = this.performanceModel.propertyIsToMinimize(propertyName);
-        FeatureConfiguration localOptimum = configToOptimize.clone();
-        for (FeatureConfiguration config : localConfigs) {
-            if (isBetter(localOptimum, config, propertyName, isToMinimize)) {
-                localOptimum = config;
+        Property property = this.performanceModel.getPropertyByName(propertyName);
+        List<Map<String, Boolean>> localBinaryMaps = new ArrayList<>(localConfigMapsBinary);
+        List<EvaluationResult> localResults = cache.evaluate(localBinaryMaps.stream()
+                .map(binaryFeatureMap -> new FeatureConfiguration(this.name, binaryFeatureMap, localConfigMapNumeric))
+                .collect(Collectors.toList()));
+        double optimalValue = initialResult.getValue(property);
+        Map<String, Boolean> optimalBinaryMap = null;
+        for (int i = 0; i < localBinaryMaps.size(); i++) {
+            double value = localResults.get(i).getValue(property);
+            if (isBetter(optimalValue, value, isToMinimize)) {
+                optimalValue     = value;
+                optimalBinaryMap = localBinaryMaps.get(i);
             }
         }
 
-        if (configToOptimize.equals(localOptimum)) {
+        if (optimalBinaryMap == null) {
             throw SystemExceptions.IS_ALREADY_OPTIMUM;
         }
 
+        FeatureConfiguration localOptimum = new FeatureConfiguration(this.name, optimalBinaryMap,
+                                                                     localConfigMapNumeric,
+                                                                     performanceModel.getInitialPropertyMap());
+        evaluateFeatureConfiguration(localOptimum);
         return localOptimum;
     }
 
@@ -210,13 +298,13 @@ public class FeatureSystem {
      * Returns the respectively optimal {@link FeatureConfiguration} for each {@link Property}.
      * <p>
      * The returned feature configuration may not be the absolute best, but it is a very close estimate. Calculating the
-     * very best is far too slow to be viable for big systems.
+     * very best is far too slow to be viable for big systems. The samples are drawn without waiting for the enumeration
+     * of all models, and while it is still running the local refinement only considers the models found so far.
      *
      * @return Map from the Property to optimize to the corresponding near-optimal FeatureConfiguration
      */
     @SneakyThrows
     public Map<String, FeatureConfiguration> getGlobalOptimumPerProperty() {
-        this.featureModel.waitOnModelsGenerated();
         if (!this.threadRuns) {
             this.startGenerateGlobalOptimum();
         }
@@ -233,8 +321,7 @@ public class FeatureSystem {
         Random rand = new Random();
         for (Property property : this.getProperties()) {
             Map<String, Integer> optimalNumericValues = this.calculateGlobalOptimum(property);
-            List<Set<Feature>> binaryConfigs = Stream.generate(() -> this.featureModel.getRandomValidConfig(rand))
-                    .limit(10).collect(Collectors.toList());
+            List<Set<Feature>> binaryConfigs = this.featureModel.getRandomValidConfigs(10, rand);
             List<Map<String, Boolean>> sampledBinaryMaps =
                     binaryConfigs.parallelStream().map(bFeatures ->
                                                                this.getFeatures().parallelStream()
@@ -242,16 +329,23 @@ public class FeatureSystem {
                                                                                         .toMap(Feature::getName,
                                                                                                bFeatures::contains)))
                             .collect(Collectors.toList());
-            FeatureConfiguration sampledConfig = sampledBinaryMaps.parallelStream()
+            List<FeatureConfiguration> sampledConfigs = sampledBinaryMaps.stream()
                     .map(map -> new FeatureConfiguration(this.name, map, optimalNumericValues))
-                    .min((configA, configB) -> (property.isToMinimize() ? 1 : -1) * (int) Math
-                            .signum(this.evaluateFeatureConfiguration(configA).get(property) -
-                                    this.evaluateFeatureConfiguration(configB).get(property))).orElse(null);
+                    .collect(Collectors.toList());
+            List<EvaluationResult> sampledResults = this.evaluationCache.evaluate(sampledConfigs);
+            FeatureConfiguration sampledConfig = IntStream.range(0, sampledConfigs.size()).boxed()
+                    .min(Comparator.comparingDouble(i -> (property.isToMinimize() ? 1 : -1) *
+                                                         sampledResults.get(i).getValue(property)))
+                    .map(sampledConfigs::get).orElse(null);
             FeatureConfiguration optimizedConfig;
             try {
-                optimizedConfig = this.findLocalOptimum(sampledConfig, property.getName(), 3);
+                optimizedConfig = this.findLocalOptimum(sampledConfig, property.getName(), 3,
+                                                        !this.featureModel.getEnumerationJob().isDone());
             } catch (Exception ignored) {
                 optimizedConfig = sampledConfig;
+                if (optimizedConfig != null) {
+                    evaluateFeatureConfiguration(optimizedConfig);
+                }
             }
             this.globalOptimumPerProperty.put(property.getName(), optimizedConfig);
         }
@@ -267,6 +361,31 @@ public class FeatureSystem {
         return map;
     }
 
+    /**
+     * Repairs a configuration to the valid {@link FeatureConfiguration} with the fewest flipped binary features. The
+     * numeric features are kept.
+     *
+     * @param featureConfiguration The configuration to repair
+     * @param pinnedFeatures       Names of the binary features whose value should be kept preferably
+     *
+     * @return The evaluated repaired configuration
+     *
+     * @throws IllegalArgumentException If the configuration or the pinned features do not match the feature model
+     * @throws IllegalStateException    If system has no valid configurations
+     * @throws InterruptedException     If the solver did not find the repair in time
+     */
+    public FeatureConfiguration repairConfiguration(FeatureConfiguration featureConfiguration,
+                                                    Set<String> pinnedFeatures)
+    throws IllegalArgumentException, IllegalStateException, InterruptedException {
+        FeatureConfiguration repaired = new FeatureConfiguration(
+                this.name, this.featureModel.repairConfiguration(featureConfiguration, pinnedFeatures),
+                featureConfiguration.getNumericFeatures(), null);
+
+        evaluateFeatureConfiguration(repaired);
+
+        return repaired;
+    }
+
     /**
      * Searches for a valid, alternative and preferable similar {@link FeatureConfiguration} for a given configuration.
      *
@@ -279,46 +398,50 @@ public class FeatureSystem {
      */
     public FeatureConfiguration getAlternativeConfiguration(FeatureConfiguration featureConfiguration)
     throws IllegalStateException, InterruptedException {
+        return this.getAlternativeConfiguration(featureConfiguration, false);
+    }
 
-        FeatureConfiguration alternative = null;
-
-        // increase maximum difference between configurations until alternative is found
-        for (int maxDiff = 0; maxDiff < this.featureModel.getFeatures().size(); maxDiff++) {
-            Set<Map<String, Boolean>> nearModels = this.featureModel.getNearModelsBinary(featureConfiguration, maxDiff);
-            if (!nearModels.isEmpty()) {
-                Map<String, Boolean> biFeatureMap = nearModels.iterator().next();
-                alternative = new FeatureConfiguration(this.name, biFeatureMap,
-                                                       featureConfiguration.getNumericFeatures(),
-                                                       null);
-                break;
-            }
-        }
+    /**
+     * Searches for a valid, alternative and preferable similar {@link FeatureConfiguration} for a given configuration.
+     *
+     * @param featureConfiguration The configuration, for which the alternative should be searched for
+     * @param approximate          Whether only the valid configurations found so far should be considered, instead
+     *                             of waiting for all to be enumerated
+     *
+     * @return A {@link FeatureConfiguration} near the given configuration
+     *
+     * @throws IllegalStateException If system has no valid configurations
+     * @throws InterruptedException  If the thread calculating was interrupted before it could finish gracefully
+     */
+    public FeatureConfiguration getAlternativeConfiguration(FeatureConfiguration featureConfiguration,
+                                                            boolean approximate)
+    throws IllegalStateException, InterruptedException {
 
-        if (alternative == null) {
+        Set<Map<String, Boolean>> nearestModels = this.featureModel.getNearestModelsBinary(featureConfiguration,
+                                                                                           approximate);
+        if (nearestModels.isEmpty()) {
             throw ModelExceptions.MODEL_HAS_NO_VALID_CONFIGURATIONS;
         }
 
+        FeatureConfiguration alternative = new FeatureConfiguration(this.name, nearestModels.iterator().next(),
+                                                                    featureConfiguration.getNumericFeatures(),
+                                                                    null);
+
         evaluateFeatureConfiguration(alternative);
 
         return alternative;
     }
 
     /**
-     * Compares two {@link FeatureConfiguration} and returns if second configuration is better for given property.
+     * Compares the values of a property of two configurations and returns if the second configuration is better.
      *
-     * @param localOptimum The first configuration
-     * @param config       The second configuration
-     * @param propertyName The property name that should be compared
+     * @param valueOpt     The value of the first configuration
+     * @param valueOther   The value of the second configuration
      * @param isToMinimize Boolean if the property should be minimized
      *
      * @return TRUE if second configuration is better, FALSE if not
      */
-    private boolean isBetter(FeatureConfiguration localOptimum, FeatureConfiguration config,
-                             String propertyName, Boolean isToMinimize) {
-
-        double valueOpt = localOptimum.getPropertyValue(propertyName);
-        double valueOther = config.getPropertyValue(propertyName);
-
+    private boolean isBetter(double valueOpt, double valueOther, Boolean isToMinimize) {
         if (isToMinimize) {
             return valueOther < valueOpt;
         } else {
@@ -341,9 +464,9 @@ public class FeatureSystem {
     private boolean numericFeatureIsToMinimize(Feature numericFeature, Property property) {
         FeatureConfiguration conf = this.getMinimalConfiguration();
         conf.getNumericFeatures().put(numericFeature.getName(), numericFeature.getMinValue());
-        double valueForMin = this.performanceModel.evaluateConfiguration(conf).get(property);
+        double valueForMin = this.evaluate(conf).getValue(property);
         conf.getNumericFeatures().put(numericFeature.getName(), numericFeature.getMaxValue());
-        double valueForMax = this.performanceModel.evaluateConfiguration(conf).get(property);
+        double valueForMax = this.evaluate(conf).getValue(property);
         return (valueForMin < valueForMax) == property.isToMinimize();
     }
 
@@ -0,0 +1,117 @@
+package org.swtp15.models;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of values derived from the formulas of a {@link FeatureModel}, keyed by their fingerprint.
+ * <p>
+ * The lock of the cache is only held to look up and insert the future of a value, the value itself is computed by the
+ * first caller outside of it. Loading different models therefore does not serialize, while concurrent callers for the
+ * same fingerprint wait on the same computation. A failed computation counts as not cached, so the next caller tries
+ * again. The least recently used values are evicted.
+ *
+ * @param <V> Type of the cached values
+ */
+final class FingerprintCache<V> {
+
+    /**
+     * Default maximal amount of cached values, about the amount of systems loaded at once.
+     */
+    static final int DEFAULT_MAXIMUM_SIZE = 64;
+
+    private final Map<Long, CompletableFuture<V>> values;
+
+    /**
+     * Instantiates an empty cache with the default maximal size.
+     */
+    FingerprintCache() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Instantiates an empty cache.
+     *
+     * @param maximumSize Maximal amount of cached values
+     */
+    FingerprintCache(int maximumSize) {
+        this.values = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CompletableFuture<V>> eldest) {
+                return size() > maximumSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value of a fingerprint if it is cached or still computed. Otherwise the given pending value is
+     * cached, which the caller then has to complete, or complete exceptionally if it can not be computed.
+     *
+     * @param fingerprint Fingerprint of the formulas
+     * @param pending     Value of the caller, not completed yet
+     *
+     * @return The cached value, or {@code pending} if the caller has to compute the value
+     */
+    CompletableFuture<V> claim(long fingerprint, CompletableFuture<V> pending) {
+        synchronized (this.values) {
+            CompletableFuture<V> value = this.values.get(fingerprint);
+            if (value == null || value.isCompletedExceptionally()) {
+                value = pending;
+                this.values.put(fingerprint, value);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Returns the cached value of a fingerprint, starting to compute it on the executor if it is not cached.
+     *
+     * @param fingerprint Fingerprint of the formulas
+     * @param compute     Computes the value if it is not cached
+     * @param executor    Executor computing the value
+     *
+     * @return Future of the cached or computed value
+     */
+    CompletableFuture<V> computeAsync(long fingerprint, Supplier<V> compute, Executor executor) {
+        CompletableFuture<V> pending = new CompletableFuture<>();
+        CompletableFuture<V> value = this.claim(fingerprint, pending);
+        if (value == pending) {
+            CompletableFuture.supplyAsync(compute, executor).whenComplete((result, failure) -> {
+                if (failure != null) {
+                    pending.completeExceptionally(failure);
+                } else {
+                    pending.complete(result);
+                }
+            });
+        }
+        return value;
+    }
+
+    /**
+     * Returns the cached value of a fingerprint, computing it on the calling thread if it is not cached.
+     *
+     * @param fingerprint Fingerprint of the formulas
+     * @param compute     Computes the value if it is not cached
+     *
+     * @return The cached or computed value
+     *
+     * @throws CompletionException If the computation of another caller failed
+     */
+    V get(long fingerprint, Supplier<V> compute) throws CompletionException {
+        CompletableFuture<V> pending = new CompletableFuture<>();
+        CompletableFuture<V> value = this.claim(fingerprint, pending);
+        if (value == pending) {
+            try {
+                pending.complete(compute.get());
+            } catch (RuntimeException | Error e) {
+                pending.completeExceptionally(e);
+                throw e;
+            }
+        }
+        return value.join();
+    }
+}
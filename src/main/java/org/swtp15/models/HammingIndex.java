@@ -0,0 +1,182 @@
+package org.swtp15.models;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.PriorityQueue;
+
+/**
+ * Nearest-neighbour index over the models of a {@link PackedModelStore} using the hamming distance as metric.
+ * <p>
+ * The index is a BK-tree: every node is a model and its children are grouped by their distance to it. Because of the
+ * triangle inequality a query with radius {@code k} only has to descend into children whose edge distance lies within
+ * {@code k} of the distance to the current node, so range and nearest queries skip most of the models.
+ */
+public class HammingIndex {
+
+    private static final int NO_NODE = -1;
+
+    private final PackedModelStore store;
+
+    private int[] firstChild;
+    private int[] nextSibling;
+    private int[] edgeDistance;
+
+    private int size;
+
+    /**
+     * Instantiates an empty index for the given store.
+     *
+     * @param store The store containing the indexed models
+     */
+    public HammingIndex(PackedModelStore store) {
+        this.store        = store;
+        this.firstChild   = new int[64];
+        this.nextSibling  = new int[64];
+        this.edgeDistance = new int[64];
+        this.size         = 0;
+    }
+
+    /**
+     * Inserts all models of the store which are not indexed yet.
+     */
+    public void update() {
+        while (size < store.size()) {
+            insert(size);
+        }
+    }
+
+    /**
+     * Removes all models from the index.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Returns the amount of indexed models.
+     *
+     * @return Amount of indexed models
+     */
+    public int size() {
+        return size;
+    }
+
+    private void insert(int model) {
+        if (model >= firstChild.length) {
+            int capacity = firstChild.length * 2;
+            firstChild   = Arrays.copyOf(firstChild, capacity);
+            nextSibling  = Arrays.copyOf(nextSibling, capacity);
+            edgeDistance = Arrays.copyOf(edgeDistance, capacity);
+        }
+        firstChild[model]  = NO_NODE;
+        nextSibling[model] = NO_NODE;
+        if (model > 0) {
+            int node = 0;
+            while (true) {
+                int distance = store.distance(node, model);
+                int child = firstChild[node];
+                while (child != NO_NODE && edgeDistance[child] != distance) {
+                    child = nextSibling[child];
+                }
+                if (child == NO_NODE) {
+                    edgeDistance[model] = distance;
+                    nextSibling[model]  = firstChild[node];
+                    firstChild[node]    = model;
+                    break;
+                }
+                node = child;
+            }
+        }
+        size++;
+    }
+
+    /**
+     * Finds all indexed models whose distance to the given bitset is at most {@code maxDistance}.
+     *
+     * @param bits        Bitset with {@link PackedModelStore#getWordsPerModel()} words
+     * @param maxDistance Maximum amount of differing features
+     *
+     * @return Indices of the matching models
+     */
+    public int[] withinDistance(long[] bits, int maxDistance) {
+        int[] result = new int[16];
+        int found = 0;
+        if (size == 0) {
+            return new int[0];
+        }
+        Deque<Integer> stack = new ArrayDeque<>();
+        stack.push(0);
+        while (!stack.isEmpty()) {
+            int node = stack.pop();
+            int distance = store.distance(node, bits);
+            if (distance <= maxDistance) {
+                if (found == result.length) {
+                    result = Arrays.copyOf(result, found * 2);
+                }
+                result[found++] = node;
+            }
+            for (int child = firstChild[node]; child != NO_NODE; child = nextSibling[child]) {
+                if (Math.abs(edgeDistance[child] - distance) <= maxDistance) {
+                    stack.push(child);
+                }
+            }
+        }
+        return Arrays.copyOf(result, found);
+    }
+
+    /**
+     * Finds the smallest distance between the given bitset and any indexed model.
+     *
+     * @param bits Bitset with {@link PackedModelStore#getWordsPerModel()} words
+     *
+     * @return The smallest distance or {@code -1} if the index is empty
+     */
+    public int nearestDistance(long[] bits) {
+        int[] nearest = nearest(bits, 1);
+        return nearest.length == 0 ? -1 : store.distance(nearest[0], bits);
+    }
+
+    /**
+     * Finds the {@code count} indexed models closest to the given bitset. Ties are broken arbitrarily.
+     *
+     * @param bits  Bitset with {@link PackedModelStore#getWordsPerModel()} words
+     * @param count Maximum amount of returned models
+     *
+     * @return Indices of the closest models, ordered by ascending distance
+     */
+    public int[] nearest(long[] bits, int count) {
+        if (size == 0 || count <= 0) {
+            return new int[0];
+        }
+        // candidates ordered by their lower bound, results as max-heap of (distance, model)
+        PriorityQueue<long[]> candidates = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        PriorityQueue<long[]> best = new PriorityQueue<>((a, b) -> Long.compare(b[0], a[0]));
+        candidates.add(new long[]{0, 0});
+        while (!candidates.isEmpty()) {
+            long[] candidate = candidates.poll();
+            if (best.size() == count && candidate[0] > best.peek()[0]) {
+                break;
+            }
+            int node = (int) candidate[1];
+            int distance = store.distance(node, bits);
+            if (best.size() < count) {
+                best.add(new long[]{distance, node});
+            } else if (distance < best.peek()[0]) {
+                best.poll();
+                best.add(new long[]{distance, node});
+            }
+            for (int child = firstChild[node]; child != NO_NODE; child = nextSibling[child]) {
+                int lowerBound = Math.abs(edgeDistance[child] - distance);
+                if (best.size() < count || lowerBound < best.peek()[0]) {
+                    candidates.add(new long[]{lowerBound, child});
+                }
+            }
+        }
+        int[] result = new int[best.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = (int) best.poll()[1];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,23 @@
+package org.swtp15.models;
+
+/**
+ * Hash functions shared by the fingerprints used as cache keys.
+ */
+final class Hashing {
+
+    private Hashing() {
+    }
+
+    /**
+     * Finalizer of SplitMix64, spreading every input bit over the whole hash.
+     *
+     * @param value Value to mix
+     *
+     * @return Mixed value
+     */
+    static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
@@ -0,0 +1,90 @@
+package org.swtp15.models;
+
+import org.sat4j.core.Vec;
+import org.sat4j.core.VecInt;
+import org.sat4j.pb.IPBSolver;
+import org.sat4j.pb.ObjectiveFunction;
+import org.sat4j.pb.PseudoOptDecorator;
+import org.sat4j.pb.SolverFactory;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Finds a model with the fewest true variables by pseudo-boolean optimization, minimizing the sum of all positive
+ * literals with sat4j-pb instead of enumerating all models.
+ * <p>
+ * Results are cached by the fingerprint of the formulas, so reloading an unchanged feature model does not solve again.
+ * The search starts in the background as soon as it is requested the first time.
+ */
+final class MinimalModelFinder {
+
+    private static final ExecutorService OPTIMIZATION_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "minimal-model");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final FingerprintCache<Optional<Set<Integer>>> CACHE = new FingerprintCache<>();
+
+    private MinimalModelFinder() {
+    }
+
+    /**
+     * Returns the search for a minimal model of the given formulas, starting it if it is not cached.
+     *
+     * @param fingerprint       Fingerprint of the formulas, used as cache key
+     * @param formulas          Set of clauses, where every clause is a set of literals
+     * @param amountOfVariables Amount of variables of the formula
+     *
+     * @return Future of the true variables of a minimal model, empty if the formulas have no model. Completes
+     * exceptionally if the optimization did not finish in time.
+     */
+    static CompletableFuture<Optional<Set<Integer>>> find(long fingerprint, Set<Set<Integer>> formulas,
+                                                          int amountOfVariables) {
+        return CACHE.computeAsync(fingerprint, () -> minimize(formulas, amountOfVariables), OPTIMIZATION_EXECUTOR);
+    }
+
+    /**
+     * Minimizes the amount of true variables.
+     *
+     * @param formulas          Set of clauses, where every clause is a set of literals
+     * @param amountOfVariables Amount of variables of the formula
+     *
+     * @return The true variables of a minimal model, empty if the formulas have no model
+     *
+     * @throws CompletionException If the solver timed out before proving the optimum
+     */
+    @SuppressWarnings("unchecked")
+    private static Optional<Set<Integer>> minimize(Set<Set<Integer>> formulas, int amountOfVariables) {
+        IPBSolver pbSolver = SolverFactory.newDefault();
+        pbSolver.newVar(amountOfVariables);
+        try {
+            for (Set<Integer> clause : formulas) {
+                pbSolver.addClause(new VecInt(clause.stream().mapToInt(Integer::intValue).toArray()));
+            }
+        } catch (ContradictionException e) {
+            return Optional.empty();
+        }
+        VecInt variables = new VecInt(amountOfVariables);
+        // sat4j 2.3.1 is compiled for Java 1.4, so its vectors are raw types
+        Vec coefficients = new Vec(amountOfVariables);
+        for (int variable = 1; variable <= amountOfVariables; variable++) {
+            variables.push(variable);
+            coefficients.push(BigInteger.ONE);
+        }
+        PseudoOptDecorator optimizer = new PseudoOptDecorator(pbSolver);
+        optimizer.setObjectiveFunction(new ObjectiveFunction(variables, coefficients));
+        try {
+            return CnfSolverFactory.optimize(optimizer, amountOfVariables);
+        } catch (TimeoutException e) {
+            throw new CompletionException(e);
+        }
+    }
+}
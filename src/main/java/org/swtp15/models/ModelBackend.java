@@ -0,0 +1,16 @@
+package org.swtp15.models;
+
+/**
+ * Backends a {@link FeatureModel} can use to answer queries about its valid configurations.
+ */
+public enum ModelBackend {
+    /**
+     * Validity checks run on a warm sat4j solver, the valid configurations are enumerated in the background.
+     */
+    SAT,
+    /**
+     * The formulas are compiled into a {@link BinaryDecisionDiagram} when the backend is selected, which then answers
+     * validity checks in time linear in the amount of features.
+     */
+    BDD
+}
@@ -0,0 +1,637 @@
+package org.swtp15.models;
+
+import lombok.Getter;
+import org.sat4j.core.VecInt;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.ISolver;
+import org.sat4j.specs.TimeoutException;
+import org.sat4j.tools.ModelIterator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Enumerates all valid models of a {@link FeatureModel} in the background.
+ * <p>
+ * Found models are published into the {@link PackedModelStore} one by one, so readers can work on the prefix found so
+ * far while the enumeration is still running. A job is started once and can be cancelled at any time, a new job has to
+ * be created to enumerate again.
+ * <p>
+ * The job starts with a {@link ConfigurationSpaceProbe}. If the probe of the formulas is cached, its execution mode
+ * decides whether the job enumerates at all. Otherwise the job counts the models with a single solver within the probe
+ * budget, and is either complete afterwards or stops because the space exceeds the enumeration limit. If the budget is
+ * used up first, the job goes on enumerating as described below and stops only once the store exceeds the limit.
+ * <p>
+ * Bigger formulas are enumerated cube-and-conquer style: the search space is split on the variables occurring in the
+ * most clauses, and every combination of their values (a cube) is enumerated by its own solver in a shared pool. The
+ * cubes are disjoint, so merging their models into the store yields every model exactly once.
+ * <p>
+ * In portfolio mode, every query is raced by a {@link SolverPortfolio} instead, so hard formulas on which a single
+ * configuration times out can still be enumerated. The portfolio occupies the processors itself, so the formula is not
+ * split into cubes then. Such formulas would use up the probe budget of a single solver anyway, so portfolio jobs skip
+ * counting and decide the execution mode while enumerating.
+ */
+public class ModelEnumerationJob {
+
+    private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    private static final ExecutorService ENUMERATION_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "model-enumeration");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final ExecutorService CUBE_EXECUTOR = Executors.newFixedThreadPool(PARALLELISM, runnable -> {
+        Thread thread = new Thread(runnable, "model-enumeration-cube");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Formulas with fewer variables are enumerated by a single solver, as splitting does not pay off.
+     */
+    static final int MIN_VARIABLES_FOR_CUBES = 12;
+
+    private static final int MAX_SPLIT_VARIABLES = 10;
+
+    private final CnfPreprocessor preprocessedFormula;
+    private final long fingerprint;
+    private final int enumerationLimit;
+    private final long probeMillis;
+    private final Set<Set<Integer>> formulas;
+    private final int amountOfVariables;
+    private final PackedModelStore models;
+    private final HammingIndex nearModelIndex;
+    private final boolean portfolio;
+    private final Supplier<String> system;
+
+    private final CountDownLatch finished;
+    private final CompletableFuture<ConfigurationSpaceProbe> probed;
+    private final Set<ISolver> activeSolvers;
+    private final AtomicInteger cubesEnumerated;
+    private volatile ConfigurationSpaceProbe configurationSpace;
+    private volatile Consumer<ConfigurationSpaceProbe> configurationSpaceListener = probe -> { };
+    private CompletableFuture<ConfigurationSpaceProbe> claimedProbe;
+    private volatile SolverPortfolio activePortfolio;
+    private volatile boolean started;
+    private volatile boolean stopping;
+    private volatile boolean cancelled;
+    private volatile boolean failed;
+    private volatile boolean limitExceeded;
+    private volatile long startTime;
+    private volatile long endTime;
+
+    /**
+     * Instantiates a job which has not been started yet.
+     *
+     * @param preprocessedFormula Simplified clauses whose models are enumerated and extended to the original models
+     * @param fingerprint         Fingerprint of the original formulas, used to look up their probe
+     * @param enumerationLimit    Maximal amount of valid configurations which are enumerated
+     * @param probeMillis         Time budget of the single solver counting the models in milliseconds
+     * @param models              Empty store receiving the found models
+     * @param nearModelIndex      Empty index over the store, filled as soon as the enumeration is complete
+     * @param portfolio           Whether every query is raced by a {@link SolverPortfolio}
+     * @param system              Supplies the name of the system, used as metric tag once the job runs
+     */
+    ModelEnumerationJob(CnfPreprocessor preprocessedFormula, long fingerprint, int enumerationLimit, long probeMillis,
+                        PackedModelStore models, HammingIndex nearModelIndex, boolean portfolio,
+                        Supplier<String> system) {
+        this.preprocessedFormula = preprocessedFormula;
+        this.fingerprint         = fingerprint;
+        this.enumerationLimit    = enumerationLimit;
+        this.probeMillis         = probeMillis;
+        this.formulas            = preprocessedFormula.getFormulas();
+        this.amountOfVariables   = preprocessedFormula.getAmountOfVariables();
+        this.models              = models;
+        this.nearModelIndex      = nearModelIndex;
+        this.portfolio           = portfolio;
+        this.system              = system;
+        this.finished            = new CountDownLatch(1);
+        this.probed              = new CompletableFuture<>();
+        this.activeSolvers       = ConcurrentHashMap.newKeySet();
+        this.cubesEnumerated     = new AtomicInteger();
+    }
+
+    /**
+     * Returns the store receiving the models found by this job.
+     *
+     * @return The store of the found models
+     */
+    PackedModelStore getModels() {
+        return this.models;
+    }
+
+    /**
+     * Returns the index over the store of this job, which is complete once the job is done.
+     *
+     * @return The index over the found models
+     */
+    HammingIndex getNearModelIndex() {
+        return this.nearModelIndex;
+    }
+
+    /**
+     * Submits the job to the enumeration executor. Calling this method more than once has no effect.
+     */
+    synchronized void start() {
+        if (!this.started) {
+            this.started   = true;
+            this.startTime = System.currentTimeMillis();
+            ENUMERATION_EXECUTOR.execute(this::enumerate);
+        }
+    }
+
+    /**
+     * Sets the listener notified whenever the job publishes a probe, after the probe phase and once more with the final
+     * probe if the enumeration went on after the budget was used up. Has to be set before the job is started.
+     *
+     * @param listener Receives every published probe
+     */
+    void setConfigurationSpaceListener(Consumer<ConfigurationSpaceProbe> listener) {
+        this.configurationSpaceListener = listener;
+    }
+
+    /**
+     * Returns the latest probe of the configuration space, blocking until the probe phase of the job is over. While
+     * the job enumerates after the probe budget was used up, the probe is a lower bound which is replaced by the
+     * final probe once the job is done. If the job is stopped before, the probe holds the models found so far and is
+     * not exhausted.
+     *
+     * @return The latest probe
+     */
+    public ConfigurationSpaceProbe getConfigurationSpace() {
+        this.probed.join();
+        return this.configurationSpace;
+    }
+
+    /**
+     * Returns the latest probe of the configuration space without blocking.
+     *
+     * @return The latest probe, or null if the probe phase of the job is not over yet
+     */
+    ConfigurationSpaceProbe getConfigurationSpaceNow() {
+        return this.configurationSpace;
+    }
+
+    /**
+     * Stops the enumeration as soon as possible. Models found so far are kept.
+     */
+    public void cancel() {
+        this.cancelled = true;
+        this.stop();
+    }
+
+    /**
+     * Stops all running solvers of this job.
+     */
+    private void stop() {
+        this.stopping = true;
+        this.activeSolvers.forEach(ISolver::expireTimeout);
+        SolverPortfolio currentPortfolio = this.activePortfolio;
+        if (currentPortfolio != null) {
+            currentPortfolio.stop();
+        }
+    }
+
+    /**
+     * Checks whether the job is finished, either by finding all models, failing or being cancelled.
+     *
+     * @return Whether the job is finished
+     */
+    public boolean isDone() {
+        return this.finished.getCount() == 0;
+    }
+
+    /**
+     * Checks whether the job could not enumerate all models because of a contradiction, the solver timeout or an
+     * unexpected exception.
+     *
+     * @return Whether the job failed
+     */
+    public boolean isFailed() {
+        return this.failed;
+    }
+
+    /**
+     * Checks whether the job stopped because the configuration space exceeds the enumeration limit, so it is queried
+     * by solvers instead. Such a job did not fail and has not been cancelled, but holds only a part of all models.
+     *
+     * @return Whether the configuration space is too large to be enumerated
+     */
+    public boolean isLimitExceeded() {
+        return this.limitExceeded;
+    }
+
+    /**
+     * Checks whether the job is finished and found all models.
+     *
+     * @return Whether the store of the job holds every model
+     */
+    public boolean isComplete() {
+        return this.isDone() && !this.failed && !this.cancelled && !this.limitExceeded;
+    }
+
+    /**
+     * Checks whether the job has been cancelled.
+     *
+     * @return Whether the job has been cancelled
+     */
+    public boolean isCancelled() {
+        return this.cancelled;
+    }
+
+    /**
+     * Blocks until the job is finished.
+     *
+     * @throws InterruptedException If the waiting thread was interrupted
+     */
+    public void awaitCompletion() throws InterruptedException {
+        this.finished.await();
+    }
+
+    /**
+     * Blocks until the job is finished or the timeout elapsed.
+     *
+     * @param timeout Maximum time to wait
+     * @param unit    Unit of the timeout
+     *
+     * @return Whether the job is finished
+     *
+     * @throws InterruptedException If the waiting thread was interrupted
+     */
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        return this.finished.await(timeout, unit);
+    }
+
+    /**
+     * Creates a snapshot of the current progress of the job.
+     *
+     * @return The current progress
+     */
+    public Progress getProgress() {
+        long end = this.isDone() ? this.endTime : System.currentTimeMillis();
+        long elapsed = this.started ? end - this.startTime : 0;
+        return new Progress(this.models.size(), this.cubesEnumerated.get(), elapsed, this.isDone(), this.failed,
+                            this.cancelled, this.limitExceeded);
+    }
+
+    private void enumerate() {
+        try {
+            if (this.probe()) {
+                return;
+            }
+            if (this.portfolio) {
+                this.enumerateWithPortfolio();
+                return;
+            }
+            final int[] splitVariables = this.selectSplitVariables();
+            if (splitVariables.length == 0) {
+                this.enumerateCube(CnfSolverFactory.newSolver(this.formulas, this.amountOfVariables));
+            } else {
+                this.enumerateCubes(splitVariables);
+            }
+        } catch (ContradictionException e) {
+            System.err.println("Contradiction in Clause");
+            e.printStackTrace();
+            this.failed = true;
+        } catch (TimeoutException e) {
+            if (!this.cancelled && !this.limitExceeded) {
+                e.printStackTrace();
+                this.failed = true;
+            }
+        } catch (InterruptedException e) {
+            this.cancel();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            this.failed = true;
+        } finally {
+            this.finishProbe();
+            this.nearModelIndex.update();
+            this.endTime = System.currentTimeMillis();
+            this.finished.countDown();
+        }
+    }
+
+    /**
+     * Looks up the probe of the formulas and waits for it if another job is probing them. If no probe is cached, the
+     * models are counted with a single solver within the probe budget, unless the job races a portfolio. Only if the
+     * models are exhausted they are added to the store, otherwise the budget was used up or the limit exceeded, and the
+     * counted models are dropped again.
+     *
+     * @return Whether the job is finished after the probe, because the probe found every model or the configuration
+     * space exceeds the enumeration limit
+     *
+     * @throws InterruptedException If the job thread was interrupted while waiting for the probe of another job
+     */
+    private boolean probe() throws InterruptedException {
+        CompletableFuture<ConfigurationSpaceProbe> pending = new CompletableFuture<>();
+        CompletableFuture<ConfigurationSpaceProbe> cached;
+        while ((cached = ConfigurationSpaceProbe.claim(this.fingerprint, this.enumerationLimit, pending)) != pending) {
+            try {
+                ConfigurationSpaceProbe probe = cached.get();
+                this.limitExceeded = probe.getExecutionMode() == ExecutionMode.SOLVER;
+                this.publish(probe);
+                return this.limitExceeded || probe.getConfigurationsFound() == 0;
+            } catch (ExecutionException | CancellationException e) {
+                // the probing job has been stopped, so the formulas are probed again
+            }
+        }
+        this.claimedProbe = pending;
+        if (this.portfolio) {
+            this.publish(new ConfigurationSpaceProbe(this.enumerationLimit, 0, false, 0));
+            return false;
+        }
+        List<int[]> counted = new ArrayList<>();
+        ConfigurationSpaceProbe probe = this.countModels(counted);
+        this.limitExceeded = probe.getExecutionMode() == ExecutionMode.SOLVER;
+        if (probe.isExhausted()) {
+            counted.forEach(this.models::add);
+        }
+        this.publish(probe);
+        return probe.isExhausted() || this.limitExceeded || this.stopping;
+    }
+
+    /**
+     * Counts the models with a single solver until all of them are found, the limit is exceeded, the probe budget is
+     * used up or the job is stopped.
+     *
+     * @param counted Receives the counted models
+     *
+     * @return The probe of the formulas
+     */
+    private ConfigurationSpaceProbe countModels(List<int[]> counted) {
+        long start = System.currentTimeMillis();
+        long deadline = start + this.probeMillis;
+        boolean exhausted = false;
+        try {
+            ISolver solver = CnfSolverFactory.newSolver(this.formulas, this.amountOfVariables);
+            solver.setTimeoutMs(Math.max(1, this.probeMillis));
+            this.activeSolvers.add(solver);
+            try {
+                ModelIterator iterator = new ModelIterator(solver);
+                while (!this.stopping && counted.size() <= this.enumerationLimit &&
+                       System.currentTimeMillis() < deadline) {
+                    if (!iterator.isSatisfiable()) {
+                        exhausted = true;
+                        break;
+                    }
+                    this.preprocessedFormula.forEachExtension(iterator.model(), model -> {
+                        counted.add(model);
+                        return !this.stopping && counted.size() <= this.enumerationLimit;
+                    });
+                }
+            } finally {
+                this.activeSolvers.remove(solver);
+            }
+        } catch (ContradictionException e) {
+            exhausted = true;
+        } catch (TimeoutException e) {
+            // the space is too hard to count within the budget or the job has been stopped
+        }
+        return new ConfigurationSpaceProbe(this.enumerationLimit, counted.size(), exhausted,
+                                           System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Publishes the final probe once the job is finished, if the probe phase did not already decide the execution
+     * mode. Unless the job failed or has been cancelled, the final probe is handed to the jobs waiting for the probe of
+     * the same formulas.
+     */
+    private void finishProbe() {
+        ConfigurationSpaceProbe probe = this.configurationSpace;
+        boolean known = !this.cancelled && !this.failed;
+        if (probe == null || !probe.isExhausted() && probe.getExecutionMode() == ExecutionMode.ENUMERATED) {
+            probe = new ConfigurationSpaceProbe(this.enumerationLimit, this.models.size(),
+                                                known && !this.limitExceeded,
+                                                System.currentTimeMillis() - this.startTime);
+            this.publish(probe);
+        }
+        if (this.claimedProbe != null) {
+            if (known) {
+                this.claimedProbe.complete(probe);
+            }
+            this.claimedProbe.cancel(false);
+        }
+    }
+
+    /**
+     * Sets the latest probe of the configuration space and notifies the listener.
+     *
+     * @param probe The probe to publish
+     */
+    private void publish(ConfigurationSpaceProbe probe) {
+        this.configurationSpace = probe;
+        this.probed.complete(probe);
+        this.configurationSpaceListener.accept(probe);
+    }
+
+    /**
+     * Adds a found model to the store, stopping the job as soon as the store exceeds the enumeration limit.
+     *
+     * @param model The found model
+     *
+     * @return Whether the enumeration goes on
+     */
+    private boolean store(int[] model) {
+        this.models.add(model);
+        if (this.models.size() > this.enumerationLimit && !this.limitExceeded) {
+            this.limitExceeded = true;
+            this.stop();
+        }
+        return !this.stopping;
+    }
+
+    /**
+     * Selects the variables to split the search space on. The amount depends on the available processors, so that
+     * there are a few cubes per processor to balance uneven cubes. A single processor still gets a few cubes, which
+     * keeps the enumeration after the probe the same everywhere. The simplified formula contains neither core, dead
+     * nor equivalent variables, which would leave cubes empty or split the same way twice.
+     *
+     * @return The variables occurring in the most non-tautological clauses, empty if the formula should not be split
+     */
+    private int[] selectSplitVariables() {
+        if (this.amountOfVariables < MIN_VARIABLES_FOR_CUBES) {
+            return new int[0];
+        }
+        int amount = Math.min(MAX_SPLIT_VARIABLES,
+                              32 - Integer.numberOfLeadingZeros(PARALLELISM - 1) + 2);
+        int[] occurrences = new int[this.amountOfVariables + 1];
+        for (Set<Integer> clause : this.formulas) {
+            if (clause.stream().noneMatch(literal -> clause.contains(-literal))) {
+                clause.forEach(literal -> occurrences[Math.abs(literal)]++);
+            }
+        }
+        return IntStream.rangeClosed(1, this.amountOfVariables).filter(variable -> occurrences[variable] > 0).boxed()
+                .sorted((a, b) -> occurrences[b] - occurrences[a]).limit(amount).mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /**
+     * Enumerates every cube over the split variables on the cube executor and waits for all of them. If one cube
+     * fails, the remaining cubes are stopped and the first failure is rethrown.
+     *
+     * @param splitVariables The variables whose combinations of values form the cubes
+     *
+     * @throws TimeoutException     If a solver of a cube timed out
+     * @throws InterruptedException If the job thread was interrupted while waiting
+     * @throws CompletionException  If a cube failed from any other exception
+     */
+    private void enumerateCubes(int[] splitVariables) throws TimeoutException, InterruptedException,
+                                                             CompletionException {
+        List<Future<Void>> cubes = new ArrayList<>();
+        for (int cube = 0; cube < 1 << splitVariables.length; cube++) {
+            final int[] cubeLiterals = new int[splitVariables.length];
+            for (int i = 0; i < splitVariables.length; i++) {
+                cubeLiterals[i] = (cube >> i & 1) == 1 ? splitVariables[i] : -splitVariables[i];
+            }
+            cubes.add(CUBE_EXECUTOR.submit(() -> {
+                ISolver solver = CnfSolverFactory.newSolver(this.formulas, this.amountOfVariables);
+                try {
+                    for (int literal : cubeLiterals) {
+                        solver.addClause(new VecInt(new int[]{literal}));
+                    }
+                    this.enumerateCube(solver);
+                } catch (ContradictionException e) {
+                    // the cube contains no models
+                }
+                this.cubesEnumerated.incrementAndGet();
+                return null;
+            }));
+        }
+        Throwable failure = null;
+        for (Future<Void> cube : cubes) {
+            try {
+                cube.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                    this.stop();
+                }
+            }
+        }
+        if (failure instanceof TimeoutException) {
+            throw (TimeoutException) failure;
+        } else if (failure != null) {
+            throw new CompletionException(failure);
+        }
+    }
+
+    /**
+     * Adds all models of the given solver, extended to the original variables, to the store until it exceeds the
+     * enumeration limit.
+     *
+     * @param solver A solver loaded with the formula and possibly the literals of a cube
+     *
+     * @throws TimeoutException If the solver timed out or the job has been stopped
+     */
+    private void enumerateCube(ISolver solver) throws TimeoutException {
+        this.activeSolvers.add(solver);
+        try {
+            final ModelIterator mi = new ModelIterator(solver);
+            while (!this.stopping && mi.isSatisfiable()) {
+                this.preprocessedFormula.forEachExtension(mi.model(), this::store);
+            }
+        } finally {
+            this.activeSolvers.remove(solver);
+        }
+    }
+
+    /**
+     * Adds all models to the store until it exceeds the enumeration limit, racing a {@link SolverPortfolio} for every
+     * model. Every found model is blocked in
+     * all solvers of the portfolio before the next query.
+     *
+     * @throws ContradictionException If the formula is trivially unsatisfiable
+     * @throws TimeoutException       If every solver timed out on a query or the job has been stopped
+     * @throws InterruptedException   If the job thread was interrupted while waiting
+     */
+    private void enumerateWithPortfolio() throws ContradictionException, TimeoutException, InterruptedException {
+        SolverPortfolio solvers = new SolverPortfolio(this.formulas, this.amountOfVariables, this.system.get());
+        this.activePortfolio = solvers;
+        if (this.stopping) {
+            solvers.stop();
+        }
+        try {
+            while (!this.stopping && solvers.isSatisfiable(new VecInt())) {
+                int[] model = solvers.model();
+                this.preprocessedFormula.forEachExtension(model, this::store);
+                try {
+                    solvers.addClause(Arrays.stream(model).map(literal -> -literal).toArray());
+                } catch (ContradictionException e) {
+                    // the blocked model was the last one
+                    return;
+                }
+            }
+        } finally {
+            this.activePortfolio = null;
+        }
+    }
+
+    /**
+     * Snapshot of the progress of a {@link ModelEnumerationJob}.
+     */
+    public static class Progress {
+
+        @Getter
+        private final int modelsFound;
+
+        /**
+         * Amount of cubes enumerated so far, zero if the formula is not split.
+         */
+        @Getter
+        private final int cubes;
+
+        @Getter
+        private final long elapsedMillis;
+
+        @Getter
+        private final boolean done;
+
+        @Getter
+        private final boolean failed;
+
+        @Getter
+        private final boolean cancelled;
+
+        @Getter
+        private final boolean limitExceeded;
+
+        /**
+         * Instantiates a Progress.
+         *
+         * @param modelsFound   Amount of models found so far
+         * @param cubes         Amount of cubes enumerated so far
+         * @param elapsedMillis Milliseconds since the start of the job, up to its end if it is finished
+         * @param done          Whether the job is finished
+         * @param failed        Whether the job failed
+         * @param cancelled     Whether the job has been cancelled
+         * @param limitExceeded Whether the configuration space is too large to be enumerated
+         */
+        Progress(int modelsFound, int cubes, long elapsedMillis, boolean done, boolean failed, boolean cancelled,
+                 boolean limitExceeded) {
+            this.modelsFound   = modelsFound;
+            this.cubes         = cubes;
+            this.elapsedMillis = elapsedMillis;
+            this.done          = done;
+            this.failed        = failed;
+            this.cancelled     = cancelled;
+            this.limitExceeded = limitExceeded;
+        }
+
+        /**
+         * Calculates the average amount of found models per second.
+         *
+         * @return Models per second
+         */
+        public double getModelsPerSecond() {
+            return this.elapsedMillis == 0 ? 0.0 : this.modelsFound * 1000.0 / this.elapsedMillis;
+        }
+    }
+}
@@ -20,4 +20,12 @@ public class ModelExceptions {
                                            "the model.");
     public static final IllegalArgumentException NUMERIC_VALUE_IN_CONFIG_INVALID
             = new IllegalArgumentException("The numeric value in the configuration is invalid.");
+    public static final IllegalStateException BDD_NODE_LIMIT_EXCEEDED
+            = new IllegalStateException("The binary decision diagram of this model exceeds the node limit.");
+    public static final IllegalStateException CONFIGURATION_SPACE_NOT_ENUMERATED
+            = new IllegalStateException("The configuration space of this model is too large to be enumerated.");
+    public static final IllegalArgumentException BATCH_OF_OTHER_MODEL
+            = new IllegalArgumentException("The batch of configurations was packed for another performance model.");
+    public static final IllegalArgumentException STATE_OF_OTHER_MODEL
+            = new IllegalArgumentException("The evaluation state was evaluated by another performance model.");
 }
@@ -0,0 +1,333 @@
+package org.swtp15.models;
+
+import org.sat4j.core.VecInt;
+import org.sat4j.pb.IPBSolver;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.IConstr;
+import org.sat4j.specs.IVecInt;
+import org.sat4j.specs.TimeoutException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Searches the valid configurations near a given configuration with a solver, instead of scanning enumerated models.
+ * <p>
+ * Differing from a configuration in at most {@code k} binary features is encoded as a cardinality constraint over the
+ * difference literals, the negated literals of the configuration, of which at most {@code k} may be true. The models
+ * satisfying it are iterated lazily by blocking every found model, so a query costs in proportion to the neighbourhood
+ * instead of the whole configuration space.
+ * <p>
+ * The solvers are leased from a pool, so a query does not reload the formulas. The cardinality constraints and blocking
+ * clauses of a query only hold under a fresh selector variable, which is assumed during the query and weighted in the
+ * cardinality constraints such that they are satisfied without it. Root-level propagation therefore never fixes more
+ * than the selector. Once the query is done, its blocking clauses are removed and its selector is fixed to false,
+ * which retires the cardinality constraints, as sat4j does not reliably remove weighted constraints. Every query
+ * leaves its selector and cardinality constraints behind, so a solver is replaced after {@link #MAX_SELECTORS}
+ * queries.
+ */
+public class NearModelSearch {
+
+    /**
+     * Amount of queries after which a solver is dropped instead of returned to the pool.
+     */
+    static final int MAX_SELECTORS = 256;
+
+    private final int amountOfVariables;
+    private final SolverPool solvers;
+
+    /**
+     * Instantiates a search over the models of the given formulas with a pool of a single solver.
+     *
+     * @param formulas          Set of clauses, where every clause is a set of literals
+     * @param amountOfVariables Amount of variables of the formula
+     */
+    public NearModelSearch(Set<Set<Integer>> formulas, int amountOfVariables) {
+        this(formulas, amountOfVariables, 1, () -> "none");
+    }
+
+    /**
+     * Instantiates a search over the models of the given formulas.
+     *
+     * @param formulas          Set of clauses, where every clause is a set of literals
+     * @param amountOfVariables Amount of variables of the formula
+     * @param poolSize          Maximal amount of solvers leased concurrently
+     * @param system            Supplies the name of the system, used as metric tag
+     */
+    public NearModelSearch(Set<Set<Integer>> formulas, int amountOfVariables, int poolSize,
+                           Supplier<String> system) {
+        this.amountOfVariables = amountOfVariables;
+        this.solvers           = new SolverPool(formulas, amountOfVariables, poolSize, "near-models", system,
+                                                NearModelSearch::newSolver);
+    }
+
+    /**
+     * Changes the maximal amount of solvers leased concurrently.
+     *
+     * @param size Maximal amount of solvers
+     */
+    public void setSolverPoolSize(int size) {
+        this.solvers.setSize(size);
+    }
+
+    /**
+     * Finds the smallest distance between a configuration and the models. Every found model tightens the cardinality
+     * constraint below its own distance, until no model is left or the lower bound is reached.
+     *
+     * @param activeVariables Variables which are true in the configuration
+     * @param lowerBound      Distance no model can fall below, to stop the descent early
+     *
+     * @return The smallest distance or {@code -1} if the formulas have no model
+     *
+     * @throws TimeoutException     If the solver could not decide in time
+     * @throws InterruptedException If the thread was interrupted while waiting for a solver
+     */
+    public int nearestDistance(Set<Integer> activeVariables, int lowerBound) throws TimeoutException,
+                                                                                    InterruptedException {
+        try (Query query = this.query()) {
+            int nearest = -1;
+            while (query.isSatisfiable()) {
+                nearest = this.distance(query.model(), activeVariables);
+                if (nearest <= lowerBound || !query.addAtMost(this.differenceLiterals(activeVariables), nearest - 1)) {
+                    break;
+                }
+            }
+            return nearest;
+        } catch (ContradictionException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Passes every model within a distance of a configuration to a consumer, until the consumer declines further
+     * models.
+     *
+     * @param activeVariables Variables which are true in the configuration
+     * @param maxDiff         Maximal amount of variables in which a model may differ
+     * @param consumer        Receives the true variables of every model and returns whether to continue
+     *
+     * @throws TimeoutException     If the solver could not decide in time
+     * @throws InterruptedException If the thread was interrupted while waiting for a solver
+     */
+    public void forEachModelWithin(Set<Integer> activeVariables, int maxDiff, Predicate<Set<Integer>> consumer)
+    throws TimeoutException, InterruptedException {
+        if (maxDiff < 0) {
+            return;
+        }
+        try (Query query = this.query()) {
+            if (!query.addAtMost(this.differenceLiterals(activeVariables), maxDiff)) {
+                return;
+            }
+            while (query.isSatisfiable()) {
+                int[] model = query.model();
+                Set<Integer> active = new HashSet<>();
+                for (int literal : model) {
+                    if (literal > 0) {
+                        active.add(literal);
+                    }
+                }
+                if (!consumer.test(active) || !query.block(model)) {
+                    return;
+                }
+            }
+        } catch (ContradictionException e) {
+            // the formulas have no model
+        }
+    }
+
+    /**
+     * Leases a solver and reserves a fresh selector for a query.
+     *
+     * @return The query, which has to be closed to return the solver
+     *
+     * @throws ContradictionException If the clauses are trivially unsatisfiable
+     * @throws InterruptedException   If the thread was interrupted while waiting for a solver
+     */
+    private Query query() throws ContradictionException, InterruptedException {
+        return new Query(this.solvers.lease());
+    }
+
+    /**
+     * Loads a pseudo-boolean solver with the formulas. Every variable is registered by a tautology, so that the models
+     * of the solver also contain the variables not occurring in any clause.
+     *
+     * @param formulas          Set of clauses, where every clause is a set of literals
+     * @param amountOfVariables Amount of variables of the formula
+     *
+     * @return The loaded solver
+     *
+     * @throws ContradictionException If the clauses are trivially unsatisfiable
+     */
+    private static IPBSolver newSolver(Set<Set<Integer>> formulas, int amountOfVariables)
+    throws ContradictionException {
+        IPBSolver solver = CnfSolverFactory.newPseudoBooleanSolver(formulas, amountOfVariables);
+        for (int variable = 1; variable <= amountOfVariables; variable++) {
+            solver.addClause(new VecInt(new int[]{variable, -variable}));
+        }
+        return solver;
+    }
+
+    /**
+     * Creates the literals which are true for every variable differing from the configuration.
+     *
+     * @param activeVariables Variables which are true in the configuration
+     *
+     * @return The negated literals of the configuration
+     */
+    private IVecInt differenceLiterals(Set<Integer> activeVariables) {
+        IVecInt differences = new VecInt(this.amountOfVariables);
+        for (int variable = 1; variable <= this.amountOfVariables; variable++) {
+            differences.push(activeVariables.contains(variable) ? -variable : variable);
+        }
+        return differences;
+    }
+
+    /**
+     * Counts the variables in which a model differs from a configuration.
+     *
+     * @param model           Literals of the model
+     * @param activeVariables Variables which are true in the configuration
+     *
+     * @return The Hamming distance
+     */
+    private int distance(int[] model, Set<Integer> activeVariables) {
+        int distance = 0;
+        for (int literal : model) {
+            if (literal > 0 != activeVariables.contains(Math.abs(literal))) {
+                distance++;
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * A query on a leased solver, whose constraints only hold under the selector of the query and are retired when the
+     * query is closed.
+     */
+    private class Query implements AutoCloseable {
+
+        private final SolverPool.Lease lease;
+        private final IPBSolver solver;
+        private final int selector;
+        private final List<IConstr> blockingClauses;
+
+        /**
+         * Instantiates a query, reserving a fresh selector variable in the leased solver.
+         *
+         * @param lease The lease of a solver created by {@link #newSolver}
+         */
+        private Query(SolverPool.Lease lease) {
+            this.lease           = lease;
+            this.solver          = (IPBSolver) lease.getSolver();
+            this.selector        = this.solver.nextFreeVarId(true);
+            this.blockingClauses = new ArrayList<>();
+        }
+
+        /**
+         * Restricts the query to models with at most {@code degree} of the given literals true, by the constraint
+         * {@code literals + (literals.size() - degree) * selector <= literals.size()}.
+         *
+         * @param literals Literals to count
+         * @param degree   Maximal amount of true literals
+         *
+         * @return Whether models may be left, false if the constraint contradicts the query
+         */
+        boolean addAtMost(IVecInt literals, int degree) {
+            if (degree >= literals.size()) {
+                return true;
+            }
+            IVecInt weightedLiterals = new VecInt(literals.size() + 1);
+            IVecInt weights = new VecInt(literals.size() + 1);
+            for (int i = 0; i < literals.size(); i++) {
+                weightedLiterals.push(literals.get(i));
+                weights.push(1);
+            }
+            weightedLiterals.push(this.selector);
+            weights.push(literals.size() - degree);
+            try {
+                this.solver.addAtMost(weightedLiterals, weights, literals.size());
+                return true;
+            } catch (ContradictionException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Excludes a model from the query.
+         *
+         * @param model Literals of the model over the variables of the formula
+         *
+         * @return Whether models may be left, false if the blocking clause contradicts the query
+         */
+        boolean block(int[] model) {
+            int[] blockingClause = new int[model.length + 1];
+            for (int i = 0; i < model.length; i++) {
+                blockingClause[i] = -model[i];
+            }
+            blockingClause[model.length] = -this.selector;
+            try {
+                IConstr constraint = this.solver.addClause(new VecInt(blockingClause));
+                if (constraint != null) {
+                    this.blockingClauses.add(constraint);
+                }
+                return true;
+            } catch (ContradictionException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Checks whether a model satisfies the formulas and the constraints of the query.
+         *
+         * @return Whether a model is left
+         *
+         * @throws TimeoutException If the solver could not decide in time
+         */
+        boolean isSatisfiable() throws TimeoutException {
+            return this.lease.isSatisfiable(new VecInt(new int[]{this.selector}));
+        }
+
+        /**
+         * Returns the last found model, without the selectors of this and earlier queries.
+         *
+         * @return Literals of the model over the variables of the formula
+         */
+        int[] model() {
+            int[] model = this.solver.model();
+            int[] variables = new int[NearModelSearch.this.amountOfVariables];
+            int amount = 0;
+            for (int literal : model) {
+                if (Math.abs(literal) <= NearModelSearch.this.amountOfVariables) {
+                    variables[amount++] = literal;
+                }
+            }
+            return amount == variables.length ? variables : Arrays.copyOf(variables, amount);
+        }
+
+        /**
+         * Removes the blocking clauses, retires the cardinality constraints and returns the solver to the pool, or
+         * drops it once it holds too many selectors.
+         */
+        @Override
+        public void close() {
+            this.blockingClauses.forEach(this.solver::removeConstr);
+            boolean retired;
+            try {
+                this.solver.addClause(new VecInt(new int[]{-this.selector}));
+                retired = true;
+            } catch (ContradictionException e) {
+                retired = false;
+            }
+            if (!retired || this.selector > NearModelSearch.this.amountOfVariables + MAX_SELECTORS) {
+                this.lease.discard();
+            } else {
+                this.lease.close();
+            }
+        }
+    }
+}
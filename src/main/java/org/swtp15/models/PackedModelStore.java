@@ -0,0 +1,224 @@
+package org.swtp15.models;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Compact storage for the valid models of a {@link FeatureModel}.
+ * <p>
+ * Every model is saved as a fixed-width bitset of {@code long} words inside one contiguous slab. Bit {@code i} of a
+ * model is set if the binary feature with the dimacs index {@code i} is active, so a model only costs {@code
+ * wordsPerModel * 8} bytes instead of a boxed set of integers, and scans over all models run over a flat array.
+ * <p>
+ * Writing threads are serialized, while any number of threads may read concurrently: a model becomes visible to
+ * readers only after it has been written completely, so readers may work on the prefix of models found so far.
+ */
+public class PackedModelStore {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Number of {@code long} words used for a single model.
+     */
+    @Getter
+    private final int wordsPerModel;
+
+    private volatile long[] slab;
+
+    private volatile int size;
+
+    /**
+     * Instantiates an empty store.
+     *
+     * @param highestFeatureIndex The highest dimacs index of a binary feature which can occur in a model
+     */
+    public PackedModelStore(int highestFeatureIndex) {
+        this.wordsPerModel = (highestFeatureIndex >> 6) + 1;
+        this.slab          = new long[INITIAL_CAPACITY * wordsPerModel];
+        this.size          = 0;
+    }
+
+    /**
+     * Adds a model as returned by the solver. Positive literals are active features, negative literals are ignored.
+     *
+     * @param literals The literals of the model
+     */
+    public synchronized void add(int[] literals) {
+        long[] currentSlab = this.slab;
+        int offset = size * wordsPerModel;
+        if (offset + wordsPerModel > currentSlab.length) {
+            currentSlab = Arrays.copyOf(currentSlab, currentSlab.length * 2);
+        }
+        for (int literal : literals) {
+            if (literal > 0) {
+                currentSlab[offset + (literal >> 6)] |= 1L << literal;
+            }
+        }
+        this.slab = currentSlab;
+        this.size = size + 1;
+    }
+
+    /**
+     * Returns the amount of saved models.
+     *
+     * @return Amount of models
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all saved models. Must not be called while other threads are reading.
+     */
+    public synchronized void clear() {
+        this.size = 0;
+        this.slab = new long[INITIAL_CAPACITY * wordsPerModel];
+    }
+
+    /**
+     * Checks whether a feature is active in a saved model.
+     *
+     * @param modelIndex Index of the model
+     * @param feature    Dimacs index of the feature
+     *
+     * @return Whether the feature is active
+     */
+    public boolean isActive(int modelIndex, int feature) {
+        return (this.slab[modelIndex * wordsPerModel + (feature >> 6)] & (1L << feature)) != 0;
+    }
+
+    /**
+     * Counts the active features of a saved model.
+     *
+     * @param modelIndex Index of the model
+     *
+     * @return Amount of active features
+     */
+    public int cardinality(int modelIndex) {
+        long[] slab = this.slab;
+        int offset = modelIndex * wordsPerModel;
+        int count = 0;
+        for (int i = 0; i < wordsPerModel; i++) {
+            count += Long.bitCount(slab[offset + i]);
+        }
+        return count;
+    }
+
+    /**
+     * Calculates the hamming distance between a saved model and a bitset, meaning the amount of features which are
+     * active in exactly one of both.
+     *
+     * @param modelIndex Index of the model
+     * @param bits       Bitset with {@link #getWordsPerModel()} words
+     *
+     * @return The amount of differing features
+     */
+    public int distance(int modelIndex, long[] bits) {
+        long[] slab = this.slab;
+        int offset = modelIndex * wordsPerModel;
+        int count = 0;
+        for (int i = 0; i < wordsPerModel; i++) {
+            count += Long.bitCount(slab[offset + i] ^ bits[i]);
+        }
+        return count;
+    }
+
+    /**
+     * Calculates the hamming distance between two saved models.
+     *
+     * @param modelIndexA Index of the first model
+     * @param modelIndexB Index of the second model
+     *
+     * @return The amount of differing features
+     */
+    public int distance(int modelIndexA, int modelIndexB) {
+        long[] slab = this.slab;
+        int offsetA = modelIndexA * wordsPerModel;
+        int offsetB = modelIndexB * wordsPerModel;
+        int count = 0;
+        for (int i = 0; i < wordsPerModel; i++) {
+            count += Long.bitCount(slab[offsetA + i] ^ slab[offsetB + i]);
+        }
+        return count;
+    }
+
+    /**
+     * Compares two saved models by their bits, starting with the highest feature index. Used to break ties
+     * deterministically, as the order in which models are stored depends on the enumeration.
+     *
+     * @param modelIndexA Index of the first model
+     * @param modelIndexB Index of the second model
+     *
+     * @return A negative number, zero or a positive number if the first model is less than, equal to or greater than
+     * the second model
+     */
+    public int compare(int modelIndexA, int modelIndexB) {
+        long[] slab = this.slab;
+        int offsetA = modelIndexA * wordsPerModel;
+        int offsetB = modelIndexB * wordsPerModel;
+        for (int i = wordsPerModel - 1; i >= 0; i--) {
+            int comparison = Long.compareUnsigned(slab[offsetA + i], slab[offsetB + i]);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Checks whether the given bitset equals one of the saved models.
+     *
+     * @param bits Bitset with {@link #getWordsPerModel()} words
+     *
+     * @return Whether the bitset is a saved model
+     */
+    public boolean contains(long[] bits) {
+        int available = this.size;
+        for (int model = 0; model < available; model++) {
+            if (distance(model, bits) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the dimacs indices of all active features of a saved model.
+     *
+     * @param modelIndex Index of the model
+     *
+     * @return Set of active feature indices
+     */
+    public Set<Integer> getActiveFeatures(int modelIndex) {
+        long[] slab = this.slab;
+        Set<Integer> activeFeatures = new HashSet<>();
+        int offset = modelIndex * wordsPerModel;
+        for (int i = 0; i < wordsPerModel; i++) {
+            long word = slab[offset + i];
+            while (word != 0) {
+                activeFeatures.add((i << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return activeFeatures;
+    }
+
+    /**
+     * Converts dimacs indices of active features into a bitset comparable to the saved models.
+     *
+     * @param features Dimacs indices of the active features
+     *
+     * @return Bitset with {@link #getWordsPerModel()} words
+     */
+    public long[] toBits(Collection<Integer> features) {
+        long[] bits = new long[wordsPerModel];
+        for (int feature : features) {
+            bits[feature >> 6] |= 1L << feature;
+        }
+        return bits;
+    }
+}
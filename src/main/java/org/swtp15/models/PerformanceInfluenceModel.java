@@ -3,11 +3,12 @@ package org.swtp15.models;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 
 public class PerformanceInfluenceModel {
@@ -18,6 +19,12 @@ public class PerformanceInfluenceModel {
     @Getter
     private final Set<FeatureInfluence> featureInfluences;
 
+    /**
+     * The influences compiled into primitive arrays at load.
+     */
+    @Getter
+    private final CompiledPerformanceModel compiledModel;
+
     @Setter
     private FeatureSystem featureSystem;
 
@@ -30,10 +37,94 @@ public class PerformanceInfluenceModel {
     public PerformanceInfluenceModel(Set<Property> properties, Set<FeatureInfluence> featureInfluences) {
         this.properties        = properties;
         this.featureInfluences = featureInfluences;
+        this.compiledModel     = new CompiledPerformanceModel(properties, featureInfluences);
+    }
+
+    /**
+     * Evaluates a configuration without changing it. The configuration is packed and evaluated by the
+     * {@link CompiledPerformanceModel}, numeric features are always active. Only the influences whose features are
+     * all active are touched, found through the inverted index. The breakdown into these influences is computed from
+     * the packed configuration only when requested from the result.
+     *
+     * @param featureConfiguration The {@link FeatureConfiguration} to be evaluated, which may be shared between threads
+     *
+     * @return The immutable evaluation result
+     */
+    public EvaluationResult evaluate(FeatureConfiguration featureConfiguration) {
+        long[] activeFeatures = new long[compiledModel.getWordsPerConfiguration()];
+        int[] numericValues = new int[compiledModel.getAmountOfFeatures()];
+        compiledModel.pack(featureConfiguration, activeFeatures, numericValues);
+        return this.evaluate(activeFeatures, numericValues);
+    }
+
+    /**
+     * Evaluates a configuration packed by {@link CompiledPerformanceModel#pack}.
+     *
+     * @param activeFeatures Bitset of the active features, owned by the result afterwards
+     * @param numericValues  Values of the numeric features, owned by the result afterwards
+     *
+     * @return The immutable evaluation result
+     */
+    EvaluationResult evaluate(long[] activeFeatures, int[] numericValues) {
+        double[] values = new double[compiledModel.getProperties().size()];
+        compiledModel.evaluateSparse(activeFeatures, numericValues, values);
+        return new EvaluationResult(compiledModel, values,
+                                    () -> compiledModel.breakdown(activeFeatures, numericValues));
+    }
+
+    /**
+     * Evaluates multiple configurations at once without changing them. The configurations are packed into a
+     * {@link ConfigurationBatch} and evaluated column by column. Every result keeps only the packed form of its own
+     * configuration, from which its breakdown is computed when requested.
+     *
+     * @param featureConfigurations The configurations to evaluate
+     *
+     * @return The immutable evaluation results in the order of the configurations
+     */
+    public List<EvaluationResult> evaluate(List<FeatureConfiguration> featureConfigurations) {
+        int size = featureConfigurations.size();
+        long[][] activeFeatures = new long[size][compiledModel.getWordsPerConfiguration()];
+        int[][] numericValues = new int[size][compiledModel.getAmountOfFeatures()];
+        for (int i = 0; i < size; i++) {
+            compiledModel.pack(featureConfigurations.get(i), activeFeatures[i], numericValues[i]);
+        }
+        return this.evaluate(activeFeatures, numericValues);
+    }
+
+    /**
+     * Evaluates multiple configurations packed by {@link CompiledPerformanceModel#pack} as a batch.
+     *
+     * @param activeFeatures Bitsets of the active features per configuration, owned by the results afterwards
+     * @param numericValues  Values of the numeric features per configuration, owned by the results afterwards
+     *
+     * @return The immutable evaluation results in the order of the configurations
+     */
+    List<EvaluationResult> evaluate(long[][] activeFeatures, int[][] numericValues) {
+        int size = activeFeatures.length;
+        ConfigurationBatch batch = new ConfigurationBatch(compiledModel, size);
+        for (int i = 0; i < size; i++) {
+            batch.set(i, activeFeatures[i], numericValues[i]);
+        }
+        double[] batchValues = compiledModel.evaluate(batch);
+
+        List<EvaluationResult> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            long[] configurationFeatures = activeFeatures[i];
+            int[] configurationValues = numericValues[i];
+            double[] values = new double[compiledModel.getProperties().size()];
+            for (int p = 0; p < values.length; p++) {
+                values[p] = batchValues[p * size + i];
+            }
+            results.add(new EvaluationResult(compiledModel, values,
+                                             () -> compiledModel.breakdown(configurationFeatures,
+                                                                           configurationValues)));
+        }
+        return results;
     }
 
     /**
-     * Evaluates multiple {@link FeatureConfiguration} at once.
+     * Evaluates multiple {@link FeatureConfiguration} at once by {@link #evaluate(List)} and sets their property
+     * values, but does not attach the evaluation results. Only use it for configurations not shared between threads.
      *
      * @param featureConfigurations Collection of all Configurations to evaluate
      *
@@ -41,49 +132,127 @@ public class PerformanceInfluenceModel {
      */
     public Map<FeatureConfiguration, Map<Property, Double>> evaluateConfigurations(
             FeatureConfiguration... featureConfigurations) {
-        return Arrays.stream(featureConfigurations).parallel().collect(Collectors.toMap(conf -> conf,
-                                                                                        this::evaluateConfiguration));
+        List<EvaluationResult> results = this.evaluate(Arrays.asList(featureConfigurations));
+
+        Map<FeatureConfiguration, Map<Property, Double>> evaluations = new HashMap<>();
+        for (int i = 0; i < featureConfigurations.length; i++) {
+            featureConfigurations[i].setPropertyValueMap(results.get(i).getPropertyValuesByName());
+            evaluations.put(featureConfigurations[i], results.get(i).getPropertyValues());
+        }
+        return evaluations;
     }
 
     /**
-     * Evaluates the property values for a list of active features. Iterates over the featureInfluences and adds their
-     * value if their set of activeFeatures is contained in the given set of activeFeatures.
+     * Evaluates the property values of a configuration by {@link #evaluate(FeatureConfiguration)} and attaches the
+     * result to the configuration, so that its property values and applying influences are part of its JSON. Only use
+     * it for configurations not shared between threads.
      *
      * @param featureConfiguration the {@link FeatureConfiguration} to be evaluated.
      *
      * @return The evaluated property values as a map.
      */
     public Map<Property, Double> evaluateConfiguration(FeatureConfiguration featureConfiguration) {
-        Set<String> activeFeatures = featureConfiguration.getActiveFeatures();
-        Set<String> numericFeatures = featureConfiguration.getNumericFeatures().keySet();
-        activeFeatures.addAll(numericFeatures); //numericFeatures are always active
-        Map<Property, Double> returnEvaluation = new HashMap<>();
-        Map<String, Double> evaluation = new HashMap<>();
-        for (Property property : properties) {
-            returnEvaluation.put(property, 0.0);
-            evaluation.put(property.getName(), 0.0);
+        EvaluationResult result = this.evaluate(featureConfiguration);
+        featureConfiguration.applyEvaluation(result);
+        return result.getPropertyValues();
+    }
+
+    /**
+     * Evaluates a configuration into a state, which following changes of single features can be evaluated against.
+     *
+     * @param featureConfiguration the {@link FeatureConfiguration} to be evaluated
+     *
+     * @return The evaluation state of the configuration
+     */
+    public EvaluationState evaluateState(FeatureConfiguration featureConfiguration) {
+        long[] activeFeatures = new long[compiledModel.getWordsPerConfiguration()];
+        int[] numericValues = new int[compiledModel.getAmountOfFeatures()];
+        double[] values = new double[compiledModel.getProperties().size()];
+        compiledModel.pack(featureConfiguration, activeFeatures, numericValues);
+        compiledModel.evaluateSparse(activeFeatures, numericValues, values);
+        return new EvaluationState(compiledModel, activeFeatures, numericValues, values);
+    }
+
+    /**
+     * Evaluates a previous state with a single binary feature flipped, by adding or removing only the influences
+     * mentioning the feature.
+     *
+     * @param previous    The previous evaluation state, which is not changed
+     * @param featureName Name of the binary feature
+     * @param active      The new value of the feature
+     *
+     * @return The evaluation state after the change
+     *
+     * @throws IllegalArgumentException If the previous state was evaluated by another model
+     */
+    public EvaluationState evaluateDelta(EvaluationState previous, String featureName, boolean active)
+    throws IllegalArgumentException {
+        this.checkState(previous);
+        EvaluationState state = previous.copy();
+        int feature = compiledModel.indexOf(featureName);
+        if (feature >= 0) {
+            compiledModel.setFeature(feature, active, state.activeFeatures, state.numericValues, state.values);
         }
-        Set<FeatureInfluence> relatedInfluences = featureInfluences.stream().parallel()
-                .filter(x -> activeFeatures.containsAll(x.getActiveFeatures().stream().map(Feature::getName)
-                                                                .collect(Collectors.toSet())))
-                .collect(Collectors.toSet());
-        for (FeatureInfluence featureInfluence : relatedInfluences) {
-            Set<String> activeNumericFeatures =
-                    featureInfluence.getActiveFeatures().stream().map(Feature::getName)
-                            .filter(numericFeatures::contains).collect(Collectors.toSet());
-            int factor = 1;
-            for (String feature : activeNumericFeatures) {
-                factor *= featureConfiguration.getNumericFeatures().get(feature);
-            }
-            for (Map.Entry<Property, Double> entry : featureInfluence.getPropertyInfluence().entrySet()) {
-                returnEvaluation.put(entry.getKey(), returnEvaluation.get(entry.getKey()) + factor * entry.getValue());
-                evaluation.put(entry.getKey().getName(),
-                               evaluation.get(entry.getKey().getName()) + factor * entry.getValue());
-            }
-            featureConfiguration.getActiveInfluences().put(featureInfluence, factor);
+        return state;
+    }
+
+    /**
+     * Evaluates a previous state with the value of a single numeric feature changed, by replacing the contribution of
+     * only the influences mentioning the feature.
+     *
+     * @param previous    The previous evaluation state, which is not changed
+     * @param featureName Name of the numeric feature
+     * @param value       The new value of the feature
+     *
+     * @return The evaluation state after the change
+     *
+     * @throws IllegalArgumentException If the previous state was evaluated by another model
+     */
+    public EvaluationState evaluateDelta(EvaluationState previous, String featureName, int value)
+    throws IllegalArgumentException {
+        this.checkState(previous);
+        EvaluationState state = previous.copy();
+        int feature = compiledModel.indexOf(featureName);
+        if (feature >= 0) {
+            compiledModel.setNumericValue(feature, value, state.activeFeatures, state.numericValues, state.values);
+        }
+        return state;
+    }
+
+    /**
+     * Evaluates a configuration relative to a previous state, touching only the influences mentioning a feature whose
+     * value differs between both. Cheaper than a full evaluation for configurations near the previous one.
+     *
+     * @param previous             The previous evaluation state, which is not changed
+     * @param featureConfiguration The configuration to evaluate
+     *
+     * @return The evaluation state of the configuration
+     *
+     * @throws IllegalArgumentException If the previous state was evaluated by another model
+     */
+    public EvaluationState evaluateDelta(EvaluationState previous, FeatureConfiguration featureConfiguration)
+    throws IllegalArgumentException {
+        this.checkState(previous);
+        long[] targetFeatures = new long[compiledModel.getWordsPerConfiguration()];
+        int[] targetValues = new int[compiledModel.getAmountOfFeatures()];
+        compiledModel.pack(featureConfiguration, targetFeatures, targetValues);
+        EvaluationState state = previous.copy();
+        compiledModel.update(targetFeatures, targetValues, state.activeFeatures, state.numericValues, state.values);
+        return state;
+    }
+
+    /**
+     * Checks that a state was evaluated by this model, as its packed configuration and values are only meaningful for
+     * the compiled influences of this model.
+     *
+     * @param state The evaluation state
+     *
+     * @throws IllegalArgumentException If the state was evaluated by another model
+     */
+    private void checkState(EvaluationState state) throws IllegalArgumentException {
+        if (state.model != this.compiledModel) {
+            throw ModelExceptions.STATE_OF_OTHER_MODEL;
         }
-        featureConfiguration.setPropertyValueMap(evaluation);
-        return returnEvaluation;
     }
 
     /**
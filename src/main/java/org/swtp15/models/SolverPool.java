@@ -0,0 +1,231 @@
+package org.swtp15.models;
+
+import io.micrometer.core.instrument.Metrics;
+import lombok.Getter;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.ISolver;
+import org.sat4j.specs.IVecInt;
+import org.sat4j.specs.TimeoutException;
+
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Pool of solvers loaded with the same clauses. Every solver is leased to one thread at a time, so concurrent requests
+ * neither reload the clauses nor wait on a single shared solver.
+ * <p>
+ * Solvers are created on demand up to the size of the pool. Returned solvers are leased again most recent first, as
+ * their learned clauses and heuristics are the warmest. The time spent waiting for a lease and the time spent solving
+ * are recorded as metrics tagged with the system and the purpose of the pool.
+ */
+public class SolverPool {
+
+    /**
+     * Interval in which waiting threads check whether the pool has been resized or turned out to be contradictory.
+     */
+    private static final long POLL_MILLIS = 100;
+
+    private final Set<Set<Integer>> formulas;
+    private final int amountOfVariables;
+    private final String purpose;
+    private final Supplier<String> system;
+    private final Loader loader;
+
+    private final BlockingDeque<ISolver> idleSolvers;
+
+    /**
+     * Maximal amount of solvers of this pool.
+     */
+    @Getter
+    private volatile int size;
+    private int createdSolvers;
+    private volatile ContradictionException contradiction;
+
+    /**
+     * Instantiates an empty pool.
+     *
+     * @param formulas          Set of clauses every solver is loaded with
+     * @param amountOfVariables Amount of variables of the clauses
+     * @param size              Maximal amount of solvers
+     * @param purpose           What the solvers are used for, used as metric tag
+     * @param system            Supplies the name of the system, used as metric tag
+     */
+    public SolverPool(Set<Set<Integer>> formulas, int amountOfVariables, int size, String purpose,
+                      Supplier<String> system) {
+        this(formulas, amountOfVariables, size, purpose, system, CnfSolverFactory::newSolver);
+    }
+
+    /**
+     * Instantiates an empty pool whose solvers are created by the given loader.
+     *
+     * @param formulas          Set of clauses every solver is loaded with
+     * @param amountOfVariables Amount of variables of the clauses
+     * @param size              Maximal amount of solvers
+     * @param purpose           What the solvers are used for, used as metric tag
+     * @param system            Supplies the name of the system, used as metric tag
+     * @param loader            Creates a solver loaded with the clauses
+     */
+    SolverPool(Set<Set<Integer>> formulas, int amountOfVariables, int size, String purpose,
+               Supplier<String> system, Loader loader) {
+        this.formulas          = formulas;
+        this.amountOfVariables = amountOfVariables;
+        this.size              = Math.max(1, size);
+        this.purpose           = purpose;
+        this.system            = system;
+        this.loader            = loader;
+        this.idleSolvers       = new LinkedBlockingDeque<>();
+    }
+
+    /**
+     * Changes the maximal amount of solvers. Surplus solvers are dropped when they are returned.
+     *
+     * @param size The new maximal amount, at least one
+     */
+    public synchronized void setSize(int size) {
+        this.size = Math.max(1, size);
+        while (this.createdSolvers > this.size && this.idleSolvers.pollLast() != null) {
+            this.createdSolvers--;
+        }
+    }
+
+    /**
+     * Leases a solver, creating one if none is idle and the pool is not full, and waiting for one otherwise.
+     *
+     * @return The lease, which has to be closed to return the solver
+     *
+     * @throws ContradictionException If the clauses are trivially unsatisfiable
+     * @throws InterruptedException   If the thread was interrupted while waiting
+     */
+    public Lease lease() throws ContradictionException, InterruptedException {
+        long start = System.nanoTime();
+        ISolver solver = this.idleSolvers.pollFirst();
+        while (solver == null) {
+            if (this.contradiction != null) {
+                throw this.contradiction;
+            }
+            if (this.reserveSolver()) {
+                solver = this.createSolver();
+            } else {
+                solver = this.idleSolvers.pollFirst(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+        Metrics.timer("featuremodel.solverpool.wait", "system", this.system.get(), "pool", this.purpose)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return new Lease(solver);
+    }
+
+    private synchronized boolean reserveSolver() {
+        if (this.createdSolvers < this.size) {
+            this.createdSolvers++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Loads a new solver for a reserved place of the pool.
+     *
+     * @return The loaded solver
+     *
+     * @throws ContradictionException If the clauses are trivially unsatisfiable
+     */
+    private ISolver createSolver() throws ContradictionException {
+        try {
+            return this.loader.load(this.formulas, this.amountOfVariables);
+        } catch (ContradictionException e) {
+            this.contradiction = e;
+            this.release(null);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a solver to the pool, or drops it if the pool has been shrunk in the meantime.
+     *
+     * @param solver The returned solver, {@code null} if its creation failed or it is discarded
+     */
+    private synchronized void release(ISolver solver) {
+        if (solver == null || this.createdSolvers > this.size) {
+            this.createdSolvers--;
+        } else {
+            this.idleSolvers.offerFirst(solver);
+        }
+    }
+
+    /**
+     * Exclusive use of a pooled solver until the lease is closed.
+     */
+    public class Lease implements AutoCloseable {
+
+        @Getter
+        private final ISolver solver;
+        private boolean closed;
+
+        private Lease(ISolver solver) {
+            this.solver = solver;
+        }
+
+        /**
+         * Checks the satisfiability of the clauses under assumptions, recording the solve time.
+         *
+         * @param assumptions Literals assumed to be true
+         *
+         * @return Whether a model satisfying the assumptions exists
+         *
+         * @throws TimeoutException If the solver timed out
+         */
+        public boolean isSatisfiable(IVecInt assumptions) throws TimeoutException {
+            long start = System.nanoTime();
+            try {
+                return this.solver.isSatisfiable(assumptions);
+            } finally {
+                Metrics.timer("featuremodel.solverpool.solve", "system", SolverPool.this.system.get(), "pool",
+                              SolverPool.this.purpose).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        /**
+         * Drops the solver instead of returning it to the pool, as it has grown too much to be leased again. The pool
+         * loads a new solver in its place when needed.
+         */
+        public void discard() {
+            if (!this.closed) {
+                this.closed = true;
+                SolverPool.this.release(null);
+            }
+        }
+
+        /**
+         * Returns the solver to the pool. Closing a lease more than once has no effect.
+         */
+        @Override
+        public void close() {
+            if (!this.closed) {
+                this.closed = true;
+                SolverPool.this.release(this.solver);
+            }
+        }
+    }
+
+    /**
+     * Creates the solvers of a pool.
+     */
+    @FunctionalInterface
+    interface Loader {
+
+        /**
+         * Creates a solver loaded with the clauses of the pool.
+         *
+         * @param formulas          Set of clauses, where every clause is a set of literals
+         * @param amountOfVariables Amount of variables of the clauses
+         *
+         * @return The loaded solver
+         *
+         * @throws ContradictionException If the clauses are trivially unsatisfiable
+         */
+        ISolver load(Set<Set<Integer>> formulas, int amountOfVariables) throws ContradictionException;
+    }
+}
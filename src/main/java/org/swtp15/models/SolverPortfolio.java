@@ -0,0 +1,194 @@
+package org.swtp15.models;
+
+import io.micrometer.core.instrument.Metrics;
+import lombok.Getter;
+import org.sat4j.core.VecInt;
+import org.sat4j.minisat.SolverFactory;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.ISolver;
+import org.sat4j.specs.IVecInt;
+import org.sat4j.specs.TimeoutException;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Races differently configured solvers, loaded with the same clauses, against each other on every query.
+ * <p>
+ * Hard feature models often time out with one configuration and are solved quickly with another, so every query is
+ * submitted to all solvers of the portfolio at once. The first answer is taken and the remaining solvers are stopped.
+ * Clauses added afterwards, like the blocking clauses of an enumeration, are added to every solver, so all of them
+ * stay loaded with the same formula. The configuration winning a query is counted as a metric.
+ */
+public class SolverPortfolio {
+
+    private static final ExecutorService PORTFOLIO_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "solver-portfolio");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Solver configurations shipped with sat4j, differing in restart policy, phase selection and clause deletion.
+     */
+    private static final Map<String, Supplier<ISolver>> CONFIGURATIONS = new LinkedHashMap<>();
+
+    static {
+        CONFIGURATIONS.put("default", SolverFactory::newDefault);
+        CONFIGURATIONS.put("glucose", SolverFactory::newGlucose);
+        CONFIGURATIONS.put("luby-restarts", SolverFactory::newMiniLearningHeapRsatExpSimpLuby);
+        CONFIGURATIONS.put("no-restarts", SolverFactory::newMiniLearningHeapEZSimpNoRestarts);
+        CONFIGURATIONS.put("auto-erase-phase", SolverFactory::newDefaultAutoErasePhaseSaving);
+        CONFIGURATIONS.put("minisat", SolverFactory::newMiniSATHeap);
+    }
+
+    /**
+     * Interval in which stopped solvers are reminded to stop, in case they had not started searching when the race was
+     * decided.
+     */
+    private static final long STOP_POLL_MILLIS = 10;
+
+    private final List<String> names;
+
+    /**
+     * Solvers of the portfolio, one per configuration.
+     */
+    @Getter
+    private final List<ISolver> solvers;
+
+    private final String system;
+
+    private int winner = -1;
+    private boolean satisfiable;
+    private volatile boolean stopped;
+
+    /**
+     * Instantiates a portfolio with one solver per processor, but at least two, and loads all of them.
+     *
+     * @param formulas          Set of clauses, where every clause is a set of literals
+     * @param amountOfVariables Amount of variables of the formula
+     * @param system            Name of the system, used as metric tag
+     *
+     * @throws ContradictionException If the clauses are trivially unsatisfiable
+     */
+    public SolverPortfolio(Set<Set<Integer>> formulas, int amountOfVariables, String system)
+    throws ContradictionException {
+        int size = Math.min(CONFIGURATIONS.size(), Math.max(2, Runtime.getRuntime().availableProcessors()));
+        this.names   = new ArrayList<>(CONFIGURATIONS.keySet()).subList(0, size);
+        this.solvers = new ArrayList<>(size);
+        this.system  = system;
+        for (String name : this.names) {
+            this.solvers.add(CnfSolverFactory.load(CONFIGURATIONS.get(name).get(), formulas, amountOfVariables));
+        }
+    }
+
+    /**
+     * Checks the satisfiability under assumptions with all solvers at once and returns the first answer.
+     *
+     * @param assumptions Literals assumed to be true
+     *
+     * @return Whether a model satisfying the assumptions exists
+     *
+     * @throws TimeoutException     If every solver timed out or the portfolio has been stopped
+     * @throws InterruptedException If the thread was interrupted while waiting for an answer
+     */
+    public boolean isSatisfiable(IVecInt assumptions) throws TimeoutException, InterruptedException {
+        this.winner      = -1;
+        this.satisfiable = false;
+        if (this.stopped) {
+            throw new TimeoutException("The portfolio has been stopped");
+        }
+        int[] literals = new int[assumptions.size()];
+        assumptions.copyTo(literals);
+        CompletionService<Boolean> race = new ExecutorCompletionService<>(PORTFOLIO_EXECUTOR);
+        Map<Future<Boolean>, Integer> runs = new HashMap<>();
+        for (int i = 0; i < this.solvers.size(); i++) {
+            ISolver solver = this.solvers.get(i);
+            runs.put(race.submit(() -> solver.isSatisfiable(new VecInt(literals))), i);
+        }
+        Boolean answer = null;
+        try {
+            for (int finished = 0; finished < runs.size() && answer == null && !this.stopped; ) {
+                Future<Boolean> run = race.poll(STOP_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (run == null) {
+                    continue;
+                }
+                finished++;
+                try {
+                    answer      = run.get();
+                    this.winner = runs.get(run);
+                } catch (ExecutionException e) {
+                    // this configuration timed out, wait for the others
+                }
+            }
+        } finally {
+            this.stopAll(runs.keySet());
+        }
+        if (answer == null) {
+            throw new TimeoutException("Every solver of the portfolio timed out");
+        }
+        this.satisfiable = answer;
+        Metrics.counter("featuremodel.portfolio.wins", "system", this.system, "solver", this.names.get(this.winner))
+                .increment();
+        return answer;
+    }
+
+    /**
+     * Stops the current and all further queries, which then throw a {@link TimeoutException}.
+     */
+    public void stop() {
+        this.stopped = true;
+        this.solvers.forEach(ISolver::expireTimeout);
+    }
+
+    /**
+     * Stops all solvers still searching and waits until they stopped, so that the solvers can be used again.
+     *
+     * @param runs The running queries
+     */
+    private void stopAll(Collection<Future<Boolean>> runs) {
+        for (Future<Boolean> run : runs) {
+            while (!run.isDone()) {
+                this.solvers.forEach(ISolver::expireTimeout);
+                try {
+                    run.get(STOP_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (java.util.concurrent.TimeoutException e) {
+                    // remind the solver again
+                } catch (ExecutionException e) {
+                    // stopped by its timeout
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the model found by the solver which answered the last query first.
+     *
+     * @return The literals of the model
+     *
+     * @throws IllegalStateException If the last query was not answered satisfiable
+     */
+    public int[] model() {
+        if (!this.satisfiable) {
+            throw new IllegalStateException("No model has been found");
+        }
+        return this.solvers.get(this.winner).model();
+    }
+
+    /**
+     * Adds a clause to every solver of the portfolio.
+     *
+     * @param literals Literals of the clause
+     *
+     * @throws ContradictionException If the clause makes the formula trivially unsatisfiable
+     */
+    public void addClause(int[] literals) throws ContradictionException {
+        for (ISolver solver : this.solvers) {
+            solver.addClause(new VecInt(literals));
+        }
+    }
+}
@@ -2,6 +2,7 @@ package org.swtp15.parser;
 
 
 import org.swtp15.models.Feature;
+import org.swtp15.models.ConfigurationSpaceProbe;
 import org.swtp15.models.FeatureModel;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -34,6 +35,29 @@ public class FeatureModelParser extends FileParser {
      * @throws FileNotFoundException    When the file cannot be found, usually when the path is incorrect
      */
     public static FeatureModel parseModel(String dimacsPath, String xmlPath, boolean isInternalModel)
+    throws IllegalArgumentException, FileNotFoundException {
+        return parseModel(dimacsPath, xmlPath, isInternalModel, ConfigurationSpaceProbe.DEFAULT_ENUMERATION_LIMIT,
+                          ConfigurationSpaceProbe.DEFAULT_PROBE_MILLIS, false);
+    }
+
+    /**
+     * Parses file into {@link FeatureModel}, which enumerates its models with the given settings.
+     *
+     * @param dimacsPath           dimacs file to parse binary features and the formula of their interaction
+     * @param xmlPath              xml file to parse numeric features and their co-domain.
+     * @param isInternalModel      Whether the model is constructed from internal resources, required due to issues
+     *                             with accessing file when packaged into jar
+     * @param enumerationLimit     Maximal amount of valid configurations which are enumerated
+     * @param probeMillis          Time budget of the single solver counting the valid configurations in milliseconds
+     * @param portfolioEnumeration Whether to race differently configured solvers on every enumeration query
+     *
+     * @return parsed {@link FeatureModel}
+     *
+     * @throws IllegalArgumentException If there is any syntax error while parsing a dimacs file
+     * @throws FileNotFoundException    When the file cannot be found, usually when the path is incorrect
+     */
+    public static FeatureModel parseModel(String dimacsPath, String xmlPath, boolean isInternalModel,
+                                          int enumerationLimit, long probeMillis, boolean portfolioEnumeration)
     throws IllegalArgumentException, FileNotFoundException {
         if (!dimacsPath.endsWith(".dimacs")) {
             throw ParserExceptions.FEATURE_MODEL_WRONG_FILETYPE_DIMACS;
@@ -47,17 +71,21 @@ public class FeatureModelParser extends FileParser {
         if (isInternalModel) {
             resultingModel = parseModelFromString(ResourceReader.readFileFromResources(dimacsPath),
                                                   xmlPath != null ? FeatureModelParser.class
-                                                          .getResourceAsStream(xmlPath) : null);
+                                                          .getResourceAsStream(xmlPath) : null,
+                                                  enumerationLimit, probeMillis, portfolioEnumeration);
         } else {
             resultingModel = parseModelFromString(FileParser.readFile(dimacsPath),
-                                                  xmlPath != null ? new FileInputStream(xmlPath) : null);
+                                                  xmlPath != null ? new FileInputStream(xmlPath) : null,
+                                                  enumerationLimit, probeMillis, portfolioEnumeration);
         }
 
         resultingModel.setName(new File(dimacsPath).getName().replace(".dimacs", ""));
         return resultingModel;
     }
 
-    private static FeatureModel parseModelFromString(List<String> dimacsContent, InputStream xmlStream)
+    private static FeatureModel parseModelFromString(List<String> dimacsContent, InputStream xmlStream,
+                                                     int enumerationLimit, long probeMillis,
+                                                     boolean portfolioEnumeration)
     throws IllegalArgumentException {
         Map<Integer, Feature> binaryFeatures = new HashMap<>();
         Set<Set<Integer>> formulas = new HashSet<>();
@@ -86,7 +114,8 @@ public class FeatureModelParser extends FileParser {
             throw ParserExceptions.FEATURE_MODEL_WRONG_NUMBER_OF_FEATURES_OR_FORMULAS;
         }
         Map<Integer, Feature> numericFeatures = parseNumericFeaturesFromXml(xmlStream, binaryFeatures);
-        return new FeatureModel(binaryFeatures, numericFeatures, formulas, binaryFeatures.size(), formulas.size());
+        return new FeatureModel(binaryFeatures, numericFeatures, formulas, binaryFeatures.size(), formulas.size(),
+                                enumerationLimit, probeMillis, portfolioEnumeration);
     }
 
     /**
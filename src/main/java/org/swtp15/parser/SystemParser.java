@@ -2,14 +2,24 @@ package org.swtp15.parser;
 
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+import org.swtp15.models.BinaryDecisionDiagram;
+import org.swtp15.models.ConfigurationExplanation;
+import org.swtp15.models.ConfigurationSpaceProbe;
 import org.swtp15.models.Feature;
+import org.swtp15.models.FeatureConfiguration;
+import org.swtp15.models.FeatureModel;
 import org.swtp15.models.FeatureSystem;
+import org.swtp15.models.ModelEnumerationJob;
 import org.swtp15.models.Property;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
 
 public class SystemParser {
 
@@ -33,6 +43,38 @@ public class SystemParser {
         return root.toJSONString();
     }
 
+    /**
+     * Converts the SystemNames together with the execution mode of every system to String.
+     *
+     * @param systems Map from the system names to the systems
+     *
+     * @return JSON representation of the SystemNames and the probed configuration space of every system as String
+     */
+    @SuppressWarnings("unchecked")
+    public static String parseSystemsToJson(Map<String, FeatureSystem> systems) {
+        List<String> orderedSystemNames = new ArrayList<>(systems.keySet());
+        Collections.sort(orderedSystemNames);
+        JSONObject root = new JSONObject();
+        JSONArray names = new JSONArray();
+        JSONObject metadata = new JSONObject();
+
+        for (String name : orderedSystemNames) {
+            FeatureModel featureModel = systems.get(name).getFeatureModel();
+            ConfigurationSpaceProbe probe = featureModel.getConfigurationSpace();
+            JSONObject attributes = new JSONObject();
+            attributes.put("executionMode", featureModel.getExecutionMode().name());
+            attributes.put("configurations", probe.getConfigurationsFound());
+            attributes.put("exact", probe.isExhausted());
+            attributes.put("probeMillis", probe.getProbeMillis());
+            names.add(name);
+            metadata.put(name, attributes);
+        }
+        root.put("systemNames", names);
+        root.put("systems", metadata);
+
+        return root.toJSONString();
+    }
+
     /**
      * Converts a {@link FeatureSystem} to String in JSON format.
      *
@@ -71,4 +113,155 @@ public class SystemParser {
 
         return root.toJSONString();
     }
+
+    /**
+     * Converts the progress of a model enumeration to String in JSON format.
+     *
+     * @param progress The progress of a {@link ModelEnumerationJob}
+     *
+     * @return JSON representation of the progress as String
+     */
+    @SuppressWarnings("unchecked")
+    public static String parseEnumerationProgressToJson(ModelEnumerationJob.Progress progress) {
+        JSONObject root = new JSONObject();
+        root.put("modelsFound", progress.getModelsFound());
+        root.put("elapsedMillis", progress.getElapsedMillis());
+        root.put("modelsPerSecond", progress.getModelsPerSecond());
+        root.put("done", progress.isDone());
+        root.put("failed", progress.isFailed());
+        root.put("cancelled", progress.isCancelled());
+        root.put("limitExceeded", progress.isLimitExceeded());
+        return root.toJSONString();
+    }
+
+    /**
+     * Converts the compiled representation of a feature model to String in JSON format.
+     *
+     * @param featureModel The {@link FeatureModel} whose formulas are compiled
+     * @param diagram      The compiled formulas of the model
+     *
+     * @return JSON representation of the backend, size and compile time as String
+     */
+    @SuppressWarnings("unchecked")
+    public static String parseCompilationToJson(FeatureModel featureModel, BinaryDecisionDiagram diagram) {
+        JSONObject root = new JSONObject();
+        root.put("backend", featureModel.getBackend().name());
+        root.put("nodes", diagram.getNodeCount());
+        root.put("memoryBytes", diagram.getMemoryBytes());
+        root.put("compileMillis", diagram.getCompileMillis());
+        root.put("validConfigurations", diagram.countModels().toString());
+        return root.toJSONString();
+    }
+
+    /**
+     * Converts the analysis of a feature model to String in JSON format.
+     *
+     * @param featureModel The analysed {@link FeatureModel}
+     *
+     * @return JSON representation of the core features, dead features and equivalence classes as String
+     */
+    @SuppressWarnings("unchecked")
+    public static String parseAnalysisToJson(FeatureModel featureModel) {
+        JSONObject root = new JSONObject();
+        JSONArray core = new JSONArray();
+        core.addAll(new TreeSet<>(featureModel.getCoreFeatures()));
+        JSONArray dead = new JSONArray();
+        dead.addAll(new TreeSet<>(featureModel.getDeadFeatures()));
+        JSONArray equivalent = new JSONArray();
+        for (Map<String, Boolean> equivalenceClass : featureModel.getEquivalentFeatures()) {
+            JSONObject jsonClass = new JSONObject();
+            jsonClass.putAll(equivalenceClass);
+            equivalent.add(jsonClass);
+        }
+        root.put("satisfiable", featureModel.getAnalysis().isSatisfiable());
+        root.put("core", core);
+        root.put("dead", dead);
+        root.put("equivalent", equivalent);
+        return root.toJSONString();
+    }
+
+    /**
+     * Converts an error of a single line of a batch to String in JSON format.
+     *
+     * @param line    Number of the line of the batch, starting at 1
+     * @param message Message describing the error
+     *
+     * @return JSON representation containing the line and the error message as String
+     */
+    @SuppressWarnings("unchecked")
+    public static String parseBatchErrorToJson(long line, String message) {
+        JSONObject root = new JSONObject();
+        root.put("line", line);
+        root.put("error", message);
+        return root.toJSONString();
+    }
+
+    /**
+     * Converts the explanation of conflicting decisions to String in JSON format.
+     *
+     * @param explanation The explanation, empty if the decisions can be extended to a valid configuration
+     *
+     * @return JSON representation containing the validity of the decisions, the conflicting decisions, the conflicting
+     * clauses and whether the explanation is minimal as String
+     */
+    @SuppressWarnings("unchecked")
+    public static String parseExplanationToJson(Optional<ConfigurationExplanation> explanation) {
+        JSONObject root = new JSONObject();
+        JSONObject selections = new JSONObject();
+        JSONArray clauses = new JSONArray();
+        explanation.ifPresent(conflict -> {
+            selections.putAll(conflict.getSelections());
+            for (Map<String, Boolean> clause : conflict.getClauses()) {
+                JSONObject jsonClause = new JSONObject();
+                jsonClause.putAll(clause);
+                clauses.add(jsonClause);
+            }
+        });
+        root.put("valid", explanation.isEmpty());
+        root.put("selections", selections);
+        root.put("clauses", clauses);
+        root.put("minimal", explanation.map(ConfigurationExplanation::isMinimal).orElse(true));
+        return root.toJSONString();
+    }
+
+    /**
+     * Converts the repair of a configuration to String in JSON format.
+     *
+     * @param original The configuration which has been repaired
+     * @param repaired The repaired configuration
+     *
+     * @return JSON representation containing the repaired configuration and the new values of the flipped binary
+     * features as String
+     */
+    @SuppressWarnings("unchecked")
+    public static String parseRepairToJson(FeatureConfiguration original, FeatureConfiguration repaired) {
+        JSONObject root = new JSONObject();
+        JSONObject flipped = new JSONObject();
+        Set<String> originallyActive = original.getActiveFeatures();
+        repaired.getBinaryFeatures().forEach((feature, value) -> {
+            if (value != originallyActive.contains(feature)) {
+                flipped.put(feature, value);
+            }
+        });
+        root.put("configuration", JSONValue.parse(repaired.toString()));
+        root.put("flipped", flipped);
+        return root.toJSONString();
+    }
+
+    /**
+     * Converts the result of a decision propagation to String in JSON format.
+     *
+     * @param forced Forced values of the undecided features, empty if the decisions are contradictory
+     *
+     * @return JSON representation containing whether the decisions are satisfiable and the forced features as String
+     */
+    @SuppressWarnings("unchecked")
+    public static String parsePropagationToJson(Optional<Map<String, Boolean>> forced) {
+        JSONObject root = new JSONObject();
+        JSONObject features = new JSONObject();
+        forced.ifPresent(features::putAll);
+        root.put("satisfiable", forced.isPresent());
+        root.put("forced", features);
+        return root.toJSONString();
+    }
 }
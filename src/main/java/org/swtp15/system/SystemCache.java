@@ -3,12 +3,17 @@ package org.swtp15.system;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.stereotype.Component;
+import org.swtp15.models.ConfigurationExplanation;
 import org.swtp15.models.FeatureConfiguration;
 import org.swtp15.models.FeatureModel;
 import org.swtp15.models.FeatureSystem;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -58,6 +63,33 @@ public class SystemCache {
         return currentlyKnownSystems.get(name);
     }
 
+    /**
+     * Evaluates many configurations at once, batched per {@link FeatureSystem} and looked up in its evaluation cache
+     * first, setting their property values.
+     *
+     * @param configurations The configurations to evaluate, possibly belonging to different systems
+     *
+     * @return For every configuration whether it was evaluated, false if no system with its name is known
+     */
+    public boolean[] evaluateConfigurations(List<FeatureConfiguration> configurations) {
+        boolean[] evaluated = new boolean[configurations.size()];
+        Map<String, List<Integer>> indicesPerSystem = new HashMap<>();
+        for (int i = 0; i < configurations.size(); i++) {
+            indicesPerSystem.computeIfAbsent(configurations.get(i).getFeatureModelName(), name -> new ArrayList<>())
+                    .add(i);
+        }
+        indicesPerSystem.forEach((name, indices) -> {
+            FeatureSystem featureSystem = getFeatureSystemByName(name);
+            if (featureSystem == null) {
+                return;
+            }
+            featureSystem.evaluateFeatureConfigurations(indices.stream().map(configurations::get)
+                                                                .toArray(FeatureConfiguration[]::new));
+            indices.forEach(index -> evaluated[index] = true);
+        });
+        return evaluated;
+    }
+
     /**
      * @param featureConfiguration The configuration that should be checked for validity
      *
@@ -75,6 +107,49 @@ public class SystemCache {
         return featureSystem.configurationIsValid(featureConfiguration);
     }
 
+    /**
+     * Derives the binary features forced by the decisions of a partial configuration.
+     *
+     * @param partialConfiguration The configuration containing only the decided binary features
+     *
+     * @return Forced values of the undecided features, empty if the decisions can not be extended to a valid
+     * configuration
+     *
+     * @throws InterruptedException     If the thread calculating was interrupted before it could finish gracefully
+     * @throws IllegalArgumentException If system not found or the configuration contains unknown features
+     */
+    public Optional<Map<String, Boolean>> propagateDecisions(FeatureConfiguration partialConfiguration)
+    throws InterruptedException, IllegalArgumentException {
+        FeatureSystem featureSystem = getFeatureSystemForConfiguration(partialConfiguration);
+        if (featureSystem == null) {
+            throw SystemExceptions.NO_MATCHING_SYSTEM_FOR_CONFIGURATION;
+        }
+        return featureSystem.getFeatureModel().propagateDecisions(partialConfiguration.getBinaryFeatures());
+    }
+
+    /**
+     * Explains why the decided binary features of a configuration can not be extended to a valid configuration.
+     *
+     * @param partialConfiguration The configuration containing the decided binary features
+     * @param budgetMillis         Time in milliseconds after which the explanation is returned without further
+     *                             minimization
+     *
+     * @return The explanation, empty if the decisions can be extended to a valid configuration
+     *
+     * @throws InterruptedException     If the thread calculating was interrupted before it could finish gracefully
+     * @throws IllegalArgumentException If system not found or the configuration contains unknown features
+     */
+    public Optional<ConfigurationExplanation> explainConfiguration(FeatureConfiguration partialConfiguration,
+                                                                   long budgetMillis)
+    throws InterruptedException, IllegalArgumentException {
+        FeatureSystem featureSystem = getFeatureSystemForConfiguration(partialConfiguration);
+        if (featureSystem == null) {
+            throw SystemExceptions.NO_MATCHING_SYSTEM_FOR_CONFIGURATION;
+        }
+        return featureSystem.getFeatureModel().explainConfiguration(partialConfiguration.getBinaryFeatures(),
+                                                                    budgetMillis);
+    }
+
     /**
      * Looks for corresponding system of given {@link FeatureConfiguration} and finds (local) optimum for a specific
      * property in a given range. Range here describes the features that can be different from the given configuration.
@@ -90,12 +165,33 @@ public class SystemCache {
      */
     public FeatureConfiguration findLocalOptimumForConfiguration(FeatureConfiguration configToOptimize,
                                                                  String propertyName, int maxDifference)
+    throws IllegalArgumentException, InterruptedException {
+        return this.findLocalOptimumForConfiguration(configToOptimize, propertyName, maxDifference, false);
+    }
+
+    /**
+     * Looks for corresponding system of given {@link FeatureConfiguration} and finds (local) optimum for a specific
+     * property in a given range. Range here describes the features that can be different from the given configuration.
+     *
+     * @param configToOptimize {@link FeatureConfiguration} that needs optimization
+     * @param propertyName     name of property that should be optimized
+     * @param maxDifference    number of features that can be different
+     * @param approximate      Whether only the valid configurations found so far should be considered
+     *
+     * @return optimized {@link FeatureConfiguration} for property
+     *
+     * @throws IllegalArgumentException If system not found or configuration can't be or is already optimized
+     * @throws InterruptedException     If the thread calculating was interrupted before it could finish gracefully
+     */
+    public FeatureConfiguration findLocalOptimumForConfiguration(FeatureConfiguration configToOptimize,
+                                                                 String propertyName, int maxDifference,
+                                                                 boolean approximate)
     throws IllegalArgumentException, InterruptedException {
         FeatureSystem system = getFeatureSystemForConfiguration(configToOptimize);
         if (system == null) {
             throw SystemExceptions.NO_MATCHING_SYSTEM_FOR_CONFIGURATION;
         } else {
-            return system.findLocalOptimum(configToOptimize, propertyName, maxDifference);
+            return system.findLocalOptimum(configToOptimize, propertyName, maxDifference, approximate);
         }
     }
 
@@ -113,13 +209,56 @@ public class SystemCache {
      * @throws InterruptedException     If the thread calculating was interrupted before it could finish gracefully
      */
     public FeatureConfiguration getAlternativeConfiguration(FeatureConfiguration featureConfiguration)
+    throws IllegalArgumentException, IllegalStateException, InterruptedException {
+        return this.getAlternativeConfiguration(featureConfiguration, false);
+    }
+
+    /**
+     * Searches for corresponding {@link FeatureSystem} and a valid, alternative and preferable similar
+     * {@link FeatureConfiguration} for a given configuration.
+     *
+     * @param featureConfiguration The configuration, for which the alternative should be searched for
+     * @param approximate          Whether only the valid configurations found so far should be considered
+     *
+     * @return A {@link FeatureConfiguration} near the given configuration
+     *
+     * @throws IllegalArgumentException If system not found
+     * @throws IllegalStateException    If system has no valid configurations
+     * @throws InterruptedException     If the thread calculating was interrupted before it could finish gracefully
+     */
+    public FeatureConfiguration getAlternativeConfiguration(FeatureConfiguration featureConfiguration,
+                                                            boolean approximate)
     throws IllegalArgumentException, IllegalStateException, InterruptedException {
         FeatureSystem system = getFeatureSystemForConfiguration(featureConfiguration);
         if (system == null) {
             throw SystemExceptions.NO_MATCHING_SYSTEM_FOR_CONFIGURATION;
         } else {
-            return system.getAlternativeConfiguration(featureConfiguration);
+            return system.getAlternativeConfiguration(featureConfiguration, approximate);
+        }
+    }
+
+
+    /**
+     * Searches for corresponding {@link FeatureSystem} and repairs a configuration to the valid configuration with the
+     * fewest flipped binary features.
+     *
+     * @param featureConfiguration The configuration to repair
+     * @param pinnedFeatures       Names of the binary features whose value should be kept preferably
+     *
+     * @return The repaired {@link FeatureConfiguration}
+     *
+     * @throws IllegalArgumentException If system not found or the configuration contains unknown features
+     * @throws IllegalStateException    If system has no valid configurations
+     * @throws InterruptedException     If the solver did not find the repair in time
+     */
+    public FeatureConfiguration repairConfiguration(FeatureConfiguration featureConfiguration,
+                                                    Set<String> pinnedFeatures)
+    throws IllegalArgumentException, IllegalStateException, InterruptedException {
+        FeatureSystem system = getFeatureSystemForConfiguration(featureConfiguration);
+        if (system == null) {
+            throw SystemExceptions.NO_MATCHING_SYSTEM_FOR_CONFIGURATION;
         }
+        return system.repairConfiguration(featureConfiguration, pinnedFeatures);
     }
 
 
@@ -6,8 +6,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.swtp15.config.ApplicationProperties;
+import org.swtp15.models.ConfigurationSpaceProbe;
 import org.swtp15.models.FeatureModel;
 import org.swtp15.models.FeatureSystem;
+import org.swtp15.models.ModelBackend;
 import org.swtp15.models.PerformanceInfluenceModel;
 import org.swtp15.parser.FeatureModelParser;
 import org.swtp15.parser.PerformanceModelParser;
@@ -26,6 +29,12 @@ public class SystemCacheUpdater {
     @Setter
     private Set<FeatureSystem> permanentSystems;
 
+    /**
+     * Properties selecting the backend of the feature models, may be {@code null} outside of a Spring context.
+     */
+    @Setter(onMethod_ = @Autowired(required = false))
+    private ApplicationProperties applicationProperties;
+
     /**
      * The constructor.
      *
@@ -98,16 +107,18 @@ public class SystemCacheUpdater {
 
                 for (Map<String, File> systemFileNames : readSystems) {
                     File xmlEntry = systemFileNames.get("xml");
+                    String name = systemFileNames.get("name").getName();
                     try {
                         FeatureModel featureModel = FeatureModelParser
                                 .parseModel(systemFileNames.get("dimacs").getPath(),
                                             xmlEntry == null ? null :
-                                            xmlEntry.getPath(), false);
+                                            xmlEntry.getPath(), false, this.getEnumerationLimit(),
+                                            this.getProbeMillis(), this.isPortfolioEnumeration(name));
                         PerformanceInfluenceModel pIModel = PerformanceModelParser
                                 .parseModel(systemFileNames.get("csv").getPath(), featureModel.getFeatures(), false);
 
-                        FeatureSystem system = new FeatureSystem(systemFileNames.get("name").getName(), featureModel,
-                                                                 pIModel);
+                        FeatureSystem system = new FeatureSystem(name, featureModel, pIModel);
+                        this.applyModelProperties(system);
 
                         systemMap.put(system.getName(), system);
                     } catch (FileNotFoundException e) {
@@ -133,4 +144,57 @@ public class SystemCacheUpdater {
 
         this.systemCache.setCurrentlyKnownSystems(systemMap);
     }
+
+    /**
+     * Returns the configured enumeration limit, which is passed to the feature models before their enumeration starts.
+     *
+     * @return Maximal amount of valid configurations which are enumerated
+     */
+    private int getEnumerationLimit() {
+        return this.applicationProperties == null ? ConfigurationSpaceProbe.DEFAULT_ENUMERATION_LIMIT :
+               this.applicationProperties.getModels().getEnumerationLimit();
+    }
+
+    /**
+     * Returns the configured probe budget, which is passed to the feature models before their enumeration starts.
+     *
+     * @return Time budget of the single solver counting the valid configurations in milliseconds
+     */
+    private long getProbeMillis() {
+        return this.applicationProperties == null ? ConfigurationSpaceProbe.DEFAULT_PROBE_MILLIS :
+               this.applicationProperties.getModels().getProbeMillis();
+    }
+
+    /**
+     * Checks whether the models of a system are configured to be enumerated by a solver portfolio, which is passed to
+     * its feature model before the enumeration starts.
+     *
+     * @param name Name of the system
+     *
+     * @return Whether to race differently configured solvers on every enumeration query
+     */
+    private boolean isPortfolioEnumeration(String name) {
+        return this.applicationProperties != null &&
+               this.applicationProperties.getModels().getPortfolioSystems().contains(name);
+    }
+
+    /**
+     * Applies the configured backend and solver pool size to the feature model of a system, and the configured
+     * evaluation cache size to the system. The enumeration settings are passed to the parser instead.
+     *
+     * @param system The freshly read system
+     */
+    private void applyModelProperties(FeatureSystem system) {
+        if (this.applicationProperties == null) {
+            return;
+        }
+        ApplicationProperties.Models properties = this.applicationProperties.getModels();
+        FeatureModel featureModel = system.getFeatureModel();
+        featureModel.setDiagramNodeLimit(properties.getBddNodeLimit());
+        featureModel.setSolverPoolSize(properties.getSolverPoolSize());
+        if (properties.getCompiledSystems().contains(system.getName())) {
+            featureModel.setBackend(ModelBackend.BDD);
+        }
+        system.setEvaluationCacheSize(properties.getEvaluationCacheSize());
+    }
 }
@@ -60,12 +60,43 @@ export default {
   },
 
   /**
-   * This method sends a POST request to /performance. The request body contains a configuration in request format.
+   * This method sends a POST request to /featuremodel/propagate. The request body contains a configuration in request
+   * format holding only the features decided so far.
+   * @param featureConfiguration Partial configuration that is put into the request body
+   * @returns {Promise<any>} Object with satisfiable true/false and the forced features with their values
+   */
+  propagateDecisions: async function (featureConfiguration) {
+    let response = await instance
+      .post('featuremodel/propagate', { featureConfiguration })
+      .catch(error => console.log(error));
+    return response.data;
+  },
+
+  /**
+   * This method sends a POST request to /featuremodel/explain?budget=${budgetMillis}. The request body contains a
+   * configuration in request format holding only the features decided so far.
+   * @param featureConfiguration Partial configuration that is put into the request body
+   * @param budgetMillis Time in milliseconds after which the explanation is returned without further minimization
+   * @returns {Promise<any>} Object with valid true/false, the conflicting decisions, the conflicting clauses and whether
+   * the explanation is minimal
+   */
+  explainConfig: async function (featureConfiguration, budgetMillis = 1000) {
+    let response = await instance
+      .post('featuremodel/explain', { featureConfiguration }, { params: { budget: budgetMillis } })
+      .catch(error => console.log(error));
+    return response.data;
+  },
+
+  /**
+   * This method sends a POST request to /performance?dissect=true. The request body contains a configuration in request
+   * format.
    * @param featureConfiguration Configuration that is put into the request body
-   * @returns {Promise<any>} Object with property values of sent configuration
+   * @returns {Promise<any>} Object with property values of sent configuration and their breakdown into influences
    */
   getPropValues: async function (featureConfiguration) {
-    let response = await instance.post('performance', { featureConfiguration }).catch(error => console.log(error));
+    let response = await instance
+      .post('performance', { featureConfiguration }, { params: { dissect: true } })
+      .catch(error => console.log(error));
     return response.data;
   },
 
@@ -74,6 +105,20 @@ export default {
     return response.data;
   },
 
+  /**
+   * This method sends a POST request to /featuremodel/repair?pinned=${pinnedFeatures}. The request body contains a
+   * configuration in request format.
+   * @param featureConfiguration Configuration that is put into the request body
+   * @param pinnedFeatures Names of binary features which should only be flipped if no repair keeps them
+   * @returns {Promise<any>} Object with the repaired configuration and the flipped features with their new values
+   */
+  repairConfig: async function (featureConfiguration, pinnedFeatures = []) {
+    let response = await instance
+      .post('featuremodel/repair', { featureConfiguration }, { params: { pinned: pinnedFeatures.join(',') } })
+      .catch(error => console.log(error));
+    return response.data;
+  },
+
   /**
    * This method sends a POST request to /performance/optimum/local?property=${propName}&maxDifference=${maxDifference}.
    * The request body contains a configuration in request format.
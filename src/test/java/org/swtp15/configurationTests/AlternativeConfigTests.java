@@ -12,6 +12,7 @@ import org.swtp15.system.SystemExceptions;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -63,5 +64,17 @@ public class AlternativeConfigTests {
         }
     }
 
+    @Test
+    void repairKeepsPinnedFeatures() throws InterruptedException {
+        FeatureConfiguration invalidConfig = loadConfiguration("src/test/testFiles/jsons/alternativeConfigTests" +
+                                                               "/invalidConfig");
+        FeatureConfiguration alternativeConfig = loadConfiguration("src/test/testFiles/jsons/alternativeConfigTests" +
+                                                                   "/alternativConfig");
+        // feature4 requires feature3, so either flip repairs the configuration
+        assertEquals(alternativeConfig, systemCache.repairConfiguration(invalidConfig, Set.of("feature3")));
 
+        FeatureConfiguration repaired = systemCache.repairConfiguration(invalidConfig, Set.of("feature4"));
+        assertEquals(Set.of("feature3", "feature4"), repaired.getActiveFeatures());
+        assertTrue(systemCache.configIsValid(repaired));
+    }
 }
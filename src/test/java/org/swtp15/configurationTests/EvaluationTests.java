@@ -1,5 +1,9 @@
 package org.swtp15.configurationTests;
 
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
 import org.junit.jupiter.api.Test;
 import org.swtp15.models.*;
 import org.swtp15.parser.FeatureModelParser;
@@ -10,6 +14,9 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 public class EvaluationTests {
 
@@ -56,6 +63,65 @@ public class EvaluationTests {
         assertEquals(result.get(new Property("property3", null, false)), 1.5342245214, 0.00001);
     }
 
+    @Test
+    void dissectConfigurationOnlyOnRequest() throws FileNotFoundException, ParseException {
+        FeatureSystem featureSystem = getExampleFeatureSystem();
+        FeatureConfiguration configuration = getExampleFeatureConfiguration2();
+        featureSystem.evaluateFeatureConfiguration(configuration);
+        JSONParser parser = new JSONParser();
+        JSONObject totals = (JSONObject) parser.parse(configuration.toString());
+        assertFalse(totals.containsKey("dissectedProperties"));
+        assertEquals(3, ((JSONObject) totals.get("properties")).size());
+
+        JSONObject all = (JSONObject) parser.parse(configuration.toDissectedString(0, 0.0));
+        assertEquals(4, ((JSONObject) all.get("dissectedProperties")).size());
+        JSONObject top = (JSONObject) parser.parse(configuration.toDissectedString(1, 0.0));
+        JSONObject strongest = (JSONObject) ((JSONObject) top.get("dissectedProperties")).get("interaction0");
+        assertEquals(1, ((JSONObject) top.get("dissectedProperties")).size());
+        assertEquals(2, ((JSONArray) strongest.get("features")).size());
+        JSONObject aboveThreshold = (JSONObject) parser.parse(configuration.toDissectedString(0, 0.25));
+        assertEquals(3, ((JSONObject) aboveThreshold.get("dissectedProperties")).size());
+    }
+
+    @Test
+    void evaluateConfigurationFromCache() throws FileNotFoundException {
+        FeatureSystem featureSystem = getExampleFeatureSystem();
+        EvaluationResult first = featureSystem.evaluate(getExampleFeatureConfiguration2());
+        assertSame(first, featureSystem.evaluate(getExampleFeatureConfiguration2()));
+        assertNotSame(first, featureSystem.evaluate(getExampleFeatureConfiguration1()));
+        assertEquals(2, featureSystem.getEvaluationCache().size());
+
+        featureSystem.setPerformanceModel(getExampleFeatureSystem().getPerformanceModel());
+        assertEquals(0, featureSystem.getEvaluationCache().size());
+        EvaluationResult reloaded = featureSystem.evaluate(getExampleFeatureConfiguration2());
+        assertNotSame(first, reloaded);
+        first.getPropertyValuesByName().forEach(
+                (property, value) -> assertEquals(value, reloaded.getPropertyValuesByName().get(property), 0.00001));
+    }
+
+    @Test
+    void evaluateConfigurationsThroughCache() throws FileNotFoundException {
+        FeatureSystem featureSystem = getExampleFeatureSystem();
+        EvaluationResult cached = featureSystem.evaluate(getExampleFeatureConfiguration1());
+        FeatureConfiguration first = getExampleFeatureConfiguration1();
+        FeatureConfiguration repeated = getExampleFeatureConfiguration2();
+        var results = featureSystem.evaluateFeatureConfigurations(first, repeated, getExampleFeatureConfiguration2());
+        assertEquals(2, featureSystem.getEvaluationCache().size());
+        assertEquals(cached.getPropertyValues(), results.get(first));
+        assertSame(featureSystem.evaluate(repeated), featureSystem.evaluate(getExampleFeatureConfiguration2()));
+        assertEquals(featureSystem.evaluate(repeated).getPropertyValuesByName(), repeated.getPropertyValueMap());
+    }
+
+    @Test
+    void findLocalOptimumThroughCache() throws FileNotFoundException {
+        FeatureSystem featureSystem = getExampleFeatureSystem();
+        FeatureConfiguration optimum = featureSystem.findLocalOptimum(getExampleFeatureConfiguration2(), "property_1",
+                                                                      1, false);
+        assertEquals(getExampleFeatureConfiguration1().getBinaryFeatures(), optimum.getBinaryFeatures());
+        // the given configuration and its only valid neighbour
+        assertEquals(2, featureSystem.getEvaluationCache().size());
+    }
+
     // Tests with Numeric Features.
 
     private FeatureSystem getExampleNumericFeatureSystem() throws FileNotFoundException {
@@ -91,5 +157,18 @@ public class EvaluationTests {
         assertEquals(result.get(new Property("Preis", null, true)), 7600);
     }
 
+    @Test
+    void evaluateNumericConfigurationsAsBatch() throws FileNotFoundException {
+        FeatureSystem featureSystem = getExampleNumericFeatureSystem();
+        FeatureConfiguration single = getExampleNumericFeatureConfiguration();
+        FeatureConfiguration batched = getExampleNumericFeatureConfiguration();
+        FeatureConfiguration minimal = featureSystem.getMinimalConfiguration();
+        var results = featureSystem.evaluateFeatureConfigurations(batched, minimal);
+        assertEquals(featureSystem.evaluateFeatureConfiguration(single), results.get(batched));
+        assertEquals(single.getPropertyValueMap(), batched.getPropertyValueMap());
+        assertEquals(featureSystem.evaluateFeatureConfiguration(featureSystem.getMinimalConfiguration()),
+                     results.get(minimal));
+    }
+
 
 }
@@ -0,0 +1,120 @@
+package org.swtp15.controllerTests;
+
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.swtp15.controller.PerformanceController;
+import org.swtp15.models.FeatureModel;
+import org.swtp15.models.FeatureSystem;
+import org.swtp15.models.PerformanceInfluenceModel;
+import org.swtp15.parser.FeatureModelParser;
+import org.swtp15.parser.PerformanceModelParser;
+import org.swtp15.system.SystemCache;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class BatchEvaluationTests {
+
+    private static final String CONFIGURATION_1 =
+            "{\"featureConfiguration\": {\"featureModel\": \"test\", \"features\": {\"feature1\": true, " +
+            "\"feature2\": false}}}";
+    private static final String CONFIGURATION_2 =
+            "{\"featureConfiguration\": {\"featureModel\": \"test\", \"features\": {\"feature1\": true, " +
+            "\"feature2\": true}}}";
+    private static final String UNKNOWN_SYSTEM =
+            "{\"featureConfiguration\": {\"featureModel\": \"unknown\", \"features\": {\"feature1\": true}}}";
+
+    // lines of a batch parsed and evaluated together by the controller
+    private static final int LINES_PER_CHUNK = 16384;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() throws FileNotFoundException {
+        FeatureModel fm = FeatureModelParser.parseModel("src/test/testFiles/dimacs/CorrectTest.dimacs", null, false);
+        PerformanceInfluenceModel pm = PerformanceModelParser
+                .parseModel("src/test/testFiles/csv/CorrectTest.csv", fm.getFeatures(), false);
+        SystemCache systemCache = new SystemCache();
+        systemCache.setCurrentlyKnownSystems(Map.of("test", new FeatureSystem("test", fm, pm)));
+        PerformanceController controller = new PerformanceController();
+        ReflectionTestUtils.setField(controller, "systemCache", systemCache);
+        this.mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    private List<JSONObject> postBatch(List<String> lines) throws Exception {
+        String response = this.mockMvc.perform(post("/performance/batch").contentType(PerformanceController.NDJSON)
+                                                       .content(String.join("\n", lines)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(PerformanceController.NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        List<JSONObject> results = new ArrayList<>();
+        for (String line : response.split("\n")) {
+            results.add((JSONObject) JSONValue.parse(line));
+        }
+        return results;
+    }
+
+    private static double property1(JSONObject result) {
+        return (Double) ((JSONObject) result.get("properties")).get("property_1");
+    }
+
+    private static void assertError(long line, JSONObject result) {
+        assertEquals(line, result.get("line"));
+        assertEquals(2, result.size());
+    }
+
+    @Test
+    void evaluateLinesInOrder() throws Exception {
+        List<String> lines = new ArrayList<>();
+        lines.add(CONFIGURATION_2);
+        lines.add("");
+        lines.add("{\"featureConfigurations\": [" + CONFIGURATION_1 + ", " + CONFIGURATION_2 + "]}");
+        lines.add("not json");
+        lines.add(UNKNOWN_SYSTEM);
+        lines.add("   ");
+        lines.add(CONFIGURATION_1);
+
+        List<JSONObject> results = postBatch(lines);
+        assertEquals(6, results.size());
+        assertEquals(1.4, property1(results.get(0)), 0.00001);
+        assertEquals(0.3, property1(results.get(1)), 0.00001);
+        assertEquals(1.4, property1(results.get(2)), 0.00001);
+        assertError(4, results.get(3));
+        assertError(5, results.get(4));
+        assertEquals("Given FeatureConfiguration has non-existing FeatureModelName", results.get(4).get("error"));
+        assertEquals(0.3, property1(results.get(5)), 0.00001);
+    }
+
+    @Test
+    void numberLinesAcrossChunks() throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (int line = 1; line < LINES_PER_CHUNK; line++) {
+            lines.add(CONFIGURATION_1);
+        }
+        lines.add(UNKNOWN_SYSTEM);
+        lines.add("{");
+        lines.add(CONFIGURATION_2);
+        lines.add(UNKNOWN_SYSTEM);
+
+        List<JSONObject> results = postBatch(lines);
+        assertEquals(LINES_PER_CHUNK + 3, results.size());
+        assertEquals(0.3, property1(results.get(LINES_PER_CHUNK - 2)), 0.00001);
+        assertError(LINES_PER_CHUNK, results.get(LINES_PER_CHUNK - 1));
+        assertError(LINES_PER_CHUNK + 1, results.get(LINES_PER_CHUNK));
+        assertEquals("Invalid FeatureConfiguration JSON", results.get(LINES_PER_CHUNK).get("error"));
+        assertEquals(1.4, property1(results.get(LINES_PER_CHUNK + 1)), 0.00001);
+        assertError(LINES_PER_CHUNK + 3, results.get(LINES_PER_CHUNK + 2));
+    }
+}
@@ -0,0 +1,52 @@
+package org.swtp15.modelTests;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Helpers checking small formulas by trying every assignment, where bit {@code v - 1} of an assignment holds the value
+ * of variable {@code v}.
+ */
+final class BruteForceFormulas {
+
+    private BruteForceFormulas() {
+    }
+
+    /**
+     * Generates random clauses of one to three literals.
+     *
+     * @param random            Source of randomness
+     * @param amountOfVariables Amount of variables of the formula
+     * @param clauseBound       Exclusive upper bound of the amount of clauses
+     *
+     * @return Set of clauses, where every clause is a set of literals
+     */
+    static Set<Set<Integer>> randomFormulas(Random random, int amountOfVariables, int clauseBound) {
+        Set<Set<Integer>> formulas = new HashSet<>();
+        for (int i = random.nextInt(clauseBound); i > 0; i--) {
+            Set<Integer> clause = new HashSet<>();
+            for (int j = random.nextInt(3); j >= 0; j--) {
+                int variable = 1 + random.nextInt(amountOfVariables);
+                clause.add(random.nextBoolean() ? variable : -variable);
+            }
+            formulas.add(clause);
+        }
+        return formulas;
+    }
+
+    static boolean satisfies(Set<Set<Integer>> formulas, int assignment) {
+        return formulas.stream().allMatch(clause -> clause.stream().anyMatch(
+                literal -> ((assignment >> (Math.abs(literal) - 1) & 1) == 1) == literal > 0));
+    }
+
+    static Set<Integer> activeVariables(int assignment, int amountOfVariables) {
+        Set<Integer> active = new HashSet<>();
+        for (int variable = 1; variable <= amountOfVariables; variable++) {
+            if ((assignment >> (variable - 1) & 1) == 1) {
+                active.add(variable);
+            }
+        }
+        return active;
+    }
+}
@@ -0,0 +1,71 @@
+package org.swtp15.modelTests;
+
+import org.junit.jupiter.api.Test;
+import org.swtp15.models.CnfPreprocessor;
+import org.swtp15.models.FeatureModelAnalysis;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.swtp15.modelTests.BruteForceFormulas.*;
+
+public class CnfPreprocessorTests {
+
+    @Test
+    void extensionsMatchOriginalModels() {
+        Random random = new Random(7);
+        for (int round = 0; round < 100; round++) {
+            int amountOfVariables = 3 + random.nextInt(8);
+            Set<Set<Integer>> formulas = randomFormulas(random, amountOfVariables, 3 * amountOfVariables);
+            Set<Set<Integer>> expected = new HashSet<>();
+            for (int assignment = 0; assignment < 1 << amountOfVariables; assignment++) {
+                if (satisfies(formulas, assignment)) {
+                    expected.add(activeVariables(assignment, amountOfVariables));
+                }
+            }
+
+            FeatureModelAnalysis analysis = new FeatureModelAnalysis(formulas, amountOfVariables);
+            CnfPreprocessor preprocessor = new CnfPreprocessor(formulas, amountOfVariables, analysis);
+            int reducedVariables = preprocessor.getAmountOfVariables();
+            assertTrue(reducedVariables <= amountOfVariables);
+            List<Set<Integer>> extended = new ArrayList<>();
+            for (int assignment = 0; assignment < 1 << reducedVariables; assignment++) {
+                if (!analysis.isSatisfiable() || !satisfies(preprocessor.getFormulas(), assignment)) {
+                    continue;
+                }
+                int[] reducedModel = new int[reducedVariables];
+                for (int variable = 1; variable <= reducedVariables; variable++) {
+                    reducedModel[variable - 1] = (assignment >> (variable - 1) & 1) == 1 ? variable : -variable;
+                }
+                preprocessor.forEachExtension(reducedModel, model -> {
+                    Set<Integer> active = new HashSet<>();
+                    Arrays.stream(model).filter(literal -> literal > 0).forEach(active::add);
+                    extended.add(active);
+                    return true;
+                });
+            }
+            assertEquals(expected.size(), extended.size());
+            assertEquals(expected, new HashSet<>(extended));
+        }
+    }
+
+    @Test
+    void eliminatesUnconstrainedChain() {
+        // every feature excludes its successor, feature1 is mandatory
+        Set<Set<Integer>> formulas = new HashSet<>();
+        formulas.add(Set.of(1));
+        for (int i = 1; i < 10; i++) {
+            formulas.add(Set.of(-i, -(i + 1)));
+        }
+        FeatureModelAnalysis analysis = new FeatureModelAnalysis(formulas, 10);
+        CnfPreprocessor preprocessor = new CnfPreprocessor(formulas, 10, analysis);
+        assertEquals(0, preprocessor.getAmountOfVariables());
+        assertTrue(preprocessor.getFormulas().isEmpty());
+
+        List<int[]> models = new ArrayList<>();
+        preprocessor.forEachExtension(new int[0], model -> models.add(model) && models.size() < 3);
+        assertEquals(3, models.size());
+        assertTrue(preprocessor.satisfiesEliminatedClauses(Set.of(1, 3, 5)));
+        assertFalse(preprocessor.satisfiesEliminatedClauses(Set.of(1, 3, 4)));
+    }
+}
@@ -0,0 +1,70 @@
+package org.swtp15.modelTests;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.swtp15.models.FeatureConfiguration;
+import org.swtp15.models.FeatureModel;
+import org.swtp15.models.ModelBackend;
+import org.swtp15.parser.FeatureModelParser;
+
+import java.io.FileNotFoundException;
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompiledModelTests {
+
+    private static FeatureModel model;
+
+    @BeforeAll
+    static void compile() throws FileNotFoundException, InterruptedException {
+        model = FeatureModelParser.parseModel("src/test/testFiles/modelsDirectories/system5/Model_Optimize.dimacs",
+                                              null, false);
+        model.getEnumerationJob().awaitCompletion();
+        model.setBackend(ModelBackend.BDD);
+    }
+
+    @Test
+    void countsMatchEnumeration() {
+        assertEquals(ModelBackend.BDD, model.getBackend());
+        assertEquals(BigInteger.valueOf(model.getEnumerationJob().getProgress().getModelsFound()),
+                     model.countValidConfigurations());
+        Map<String, Boolean> fixed = new HashMap<>();
+        fixed.put("feature3", false);
+        // feature4 requires feature3, the remaining 6 features are free
+        assertEquals(BigInteger.valueOf(64), model.countValidConfigurations(fixed));
+    }
+
+    @Test
+    void commonality() {
+        Map<String, Double> commonality = model.getFeatureCommonality();
+        assertEquals(8, commonality.size());
+        assertEquals(0.5, commonality.get("feature1"), 1e-9);
+        assertEquals(2.0 / 3, commonality.get("feature3"), 1e-9);
+        assertEquals(1.0 / 3, commonality.get("feature4"), 1e-9);
+    }
+
+    @Test
+    void cheapestConfiguration() throws InterruptedException {
+        Map<String, Double> costs = new HashMap<>();
+        costs.put("feature4", -5.0);
+        costs.put("feature3", 1.0);
+        costs.put("feature1", 2.0);
+        Map<String, Boolean> cheapest = model.findCheapestConfiguration(costs);
+        assertTrue(cheapest.get("feature4"));
+        assertTrue(cheapest.get("feature3"));
+        assertFalse(cheapest.get("feature1"));
+        assertTrue(model.isValidConfiguration(new FeatureConfiguration("Model_Optimize", cheapest, new HashMap<>())));
+    }
+
+    @Test
+    void validityFromDiagram() throws InterruptedException {
+        Map<String, Boolean> features = new HashMap<>();
+        features.put("feature4", true);
+        assertFalse(model.isValidConfiguration(new FeatureConfiguration("Model_Optimize", features, new HashMap<>())));
+        features.put("feature3", true);
+        assertTrue(model.isValidConfiguration(new FeatureConfiguration("Model_Optimize", features, new HashMap<>())));
+    }
+}
@@ -0,0 +1,221 @@
+package org.swtp15.modelTests;
+
+import org.junit.jupiter.api.Test;
+import org.swtp15.models.*;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompiledPerformanceModelTests {
+
+    private static final Set<Property> PROPERTIES = Set.of(new Property("time", "s", true),
+                                                           new Property("memory", "MB", true));
+
+    private static List<Feature> createFeatures() {
+        List<Feature> features = new ArrayList<>();
+        for (int i = 0; i < 70; i++) {
+            features.add(new Feature("feature" + i));
+        }
+        features.add(new Feature("numeric1", 1, 8, "n + 1"));
+        features.add(new Feature("numeric2", 1, 8, "n + 1"));
+        return features;
+    }
+
+    private static Set<FeatureInfluence> createInfluences(List<Feature> features, Random random) {
+        Set<FeatureInfluence> influences = new HashSet<>();
+        for (int i = 0; i < 200; i++) {
+            Set<Feature> required = new HashSet<>();
+            for (int j = random.nextInt(4) - 1; j >= 0; j--) {
+                required.add(features.get(random.nextInt(features.size())));
+            }
+            Map<Property, Double> influence = new HashMap<>();
+            PROPERTIES.forEach(property -> influence.put(property, random.nextDouble() - 0.5));
+            influences.add(new FeatureInfluence(required, influence));
+        }
+        return influences;
+    }
+
+    private static FeatureConfiguration createConfiguration(List<Feature> features, Random random) {
+        Map<String, Boolean> binaryFeatures = new HashMap<>();
+        features.stream().filter(Feature::isBinary)
+                .forEach(feature -> binaryFeatures.put(feature.getName(), random.nextBoolean()));
+        Map<String, Integer> numericFeatures = new HashMap<>();
+        numericFeatures.put("numeric1", 1 + random.nextInt(8));
+        numericFeatures.put("numeric2", 1 + random.nextInt(8));
+        return new FeatureConfiguration("test", binaryFeatures, numericFeatures);
+    }
+
+    @Test
+    void evaluationMatchesInfluenceSums() {
+        Random random = new Random(5);
+        List<Feature> features = createFeatures();
+        Set<Property> properties = PROPERTIES;
+        Set<FeatureInfluence> influences = createInfluences(features, random);
+        CompiledPerformanceModel compiled = new CompiledPerformanceModel(properties, influences);
+
+        for (int round = 0; round < 20; round++) {
+            FeatureConfiguration configuration = createConfiguration(features, random);
+            Map<String, Boolean> binaryFeatures = configuration.getBinaryFeatures();
+            Map<String, Integer> numericFeatures = configuration.getNumericFeatures();
+
+            Map<Property, Double> expected = new HashMap<>();
+            properties.forEach(property -> expected.put(property, 0.0));
+            for (FeatureInfluence influence : influences) {
+                int factor = 1;
+                boolean applies = true;
+                for (Feature feature : influence.getActiveFeatures()) {
+                    if (numericFeatures.containsKey(feature.getName())) {
+                        factor *= numericFeatures.get(feature.getName());
+                    } else {
+                        applies &= binaryFeatures.get(feature.getName());
+                    }
+                }
+                if (applies) {
+                    int finalFactor = factor;
+                    influence.getPropertyInfluence().forEach(
+                            (property, value) -> expected.merge(property, finalFactor * value, Double::sum));
+                }
+            }
+
+            long[] activeFeatures = new long[compiled.getWordsPerConfiguration()];
+            int[] numericValues = new int[compiled.getAmountOfFeatures()];
+            double[] values = new double[properties.size()];
+            compiled.pack(configuration, activeFeatures, numericValues);
+            compiled.evaluate(activeFeatures, numericValues, values);
+            for (Property property : properties) {
+                assertEquals(expected.get(property), values[compiled.indexOf(property)], 1e-9);
+            }
+
+            int[] counters = new int[influences.size()];
+            int[] applying = new int[influences.size()];
+            int amount = compiled.findApplyingInfluences(activeFeatures, counters, applying);
+            compiled.evaluate(applying, amount, numericValues, values);
+            for (Property property : properties) {
+                assertEquals(expected.get(property), values[compiled.indexOf(property)], 1e-9);
+            }
+            assertTrue(Arrays.stream(counters).allMatch(counter -> counter == 0));
+
+            compiled.evaluateSparse(activeFeatures, numericValues, values);
+            for (Property property : properties) {
+                assertEquals(expected.get(property), values[compiled.indexOf(property)], 1e-9);
+            }
+            assertEquals(amount, compiled.findApplyingInfluences(activeFeatures).length);
+        }
+    }
+
+    @Test
+    void deltaEvaluationMatchesFullEvaluation() {
+        Random random = new Random(8);
+        List<Feature> features = createFeatures();
+        PerformanceInfluenceModel model = new PerformanceInfluenceModel(PROPERTIES,
+                                                                        createInfluences(features, random));
+        FeatureConfiguration configuration = createConfiguration(features, random);
+        EvaluationState state = model.evaluateState(configuration);
+        for (int step = 0; step < 300; step++) {
+            Feature feature = features.get(random.nextInt(features.size()));
+            if (feature.isBinary()) {
+                boolean active = random.nextBoolean();
+                configuration.getBinaryFeatures().put(feature.getName(), active);
+                state = model.evaluateDelta(state, feature.getName(), active);
+            } else {
+                int value = 1 + random.nextInt(8);
+                configuration.getNumericFeatures().put(feature.getName(), value);
+                state = model.evaluateDelta(state, feature.getName(), value);
+            }
+            EvaluationState expected = model.evaluateState(configuration);
+            for (Property property : PROPERTIES) {
+                assertEquals(expected.getValue(property), state.getValue(property), 1e-9);
+            }
+        }
+
+        for (int round = 0; round < 20; round++) {
+            FeatureConfiguration other = createConfiguration(features, random);
+            EvaluationState delta = model.evaluateDelta(state, other);
+            EvaluationState expected = model.evaluateState(other);
+            for (Property property : PROPERTIES) {
+                assertEquals(expected.getValue(property), delta.getValue(property), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void deltaEvaluationRejectsStateOfOtherModel() {
+        Random random = new Random(21);
+        List<Feature> features = createFeatures();
+        PerformanceInfluenceModel model = new PerformanceInfluenceModel(PROPERTIES,
+                                                                        createInfluences(features, random));
+        PerformanceInfluenceModel other = new PerformanceInfluenceModel(PROPERTIES,
+                                                                        createInfluences(features, random));
+        FeatureConfiguration configuration = createConfiguration(features, random);
+        EvaluationState state = other.evaluateState(configuration);
+        Feature feature = features.get(0);
+        assertThrows(IllegalArgumentException.class, () -> model.evaluateDelta(state, feature.getName(), true));
+        assertThrows(IllegalArgumentException.class, () -> model.evaluateDelta(state, feature.getName(), 2));
+        assertThrows(IllegalArgumentException.class, () -> model.evaluateDelta(state, configuration));
+    }
+
+    @Test
+    void batchEvaluationMatchesSingleEvaluation() {
+        Random random = new Random(13);
+        List<Feature> features = createFeatures();
+        CompiledPerformanceModel compiled = new CompiledPerformanceModel(PROPERTIES,
+                                                                         createInfluences(features, random));
+        int size = 5000;
+        ConfigurationBatch batch = new ConfigurationBatch(compiled, size);
+        List<FeatureConfiguration> configurations = new ArrayList<>();
+        for (int c = 0; c < size; c++) {
+            FeatureConfiguration configuration = createConfiguration(features, random);
+            configurations.add(configuration);
+            batch.set(c, configuration);
+        }
+        double[] values = compiled.evaluate(batch);
+
+        long[] activeFeatures = new long[compiled.getWordsPerConfiguration()];
+        int[] numericValues = new int[compiled.getAmountOfFeatures()];
+        double[] expected = new double[PROPERTIES.size()];
+        for (int c = 0; c < size; c++) {
+            compiled.pack(configurations.get(c), activeFeatures, numericValues);
+            compiled.evaluate(activeFeatures, numericValues, expected);
+            for (int p = 0; p < PROPERTIES.size(); p++) {
+                assertEquals(expected[p], values[p * size + c], 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void evaluationLeavesConfigurationsUnchanged() {
+        Random random = new Random(13);
+        List<Feature> features = createFeatures();
+        PerformanceInfluenceModel model = new PerformanceInfluenceModel(PROPERTIES,
+                                                                        createInfluences(features, random));
+        List<FeatureConfiguration> configurations = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            configurations.add(createConfiguration(features, random));
+        }
+
+        List<EvaluationResult> batchResults = model.evaluate(configurations);
+        List<EvaluationResult> results = configurations.parallelStream().map(model::evaluate)
+                .collect(Collectors.toList());
+        for (int i = 0; i < configurations.size(); i++) {
+            FeatureConfiguration configuration = configurations.get(i);
+            assertNull(configuration.getPropertyValueMap());
+            assertNull(configuration.getEvaluation());
+            for (Property property : PROPERTIES) {
+                assertEquals(results.get(i).getValue(property), batchResults.get(i).getValue(property), 1e-9);
+            }
+            assertEquals(results.get(i).getInfluenceBreakdown(), batchResults.get(i).getInfluenceBreakdown());
+
+            // the breakdown is computed lazily from a snapshot of the configuration
+            EvaluationResult result = model.evaluate(configuration);
+            configuration.getNumericFeatures().put("numeric1", 9);
+            assertEquals(results.get(i).getInfluenceBreakdown(), result.getInfluenceBreakdown());
+
+            model.evaluateConfiguration(configuration);
+            assertEquals(model.evaluate(configuration).getPropertyValuesByName(),
+                         configuration.getPropertyValueMap());
+            assertEquals(model.evaluate(configuration).getInfluenceBreakdown(), configuration.getActiveInfluences());
+        }
+    }
+}
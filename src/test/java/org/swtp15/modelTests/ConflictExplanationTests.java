@@ -0,0 +1,61 @@
+package org.swtp15.modelTests;
+
+import org.junit.jupiter.api.Test;
+import org.swtp15.models.ConfigurationExplanation;
+import org.swtp15.models.Feature;
+import org.swtp15.models.FeatureModel;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConflictExplanationTests {
+
+    private FeatureModel createModel() {
+        Map<Integer, Feature> binaryFeatures = new HashMap<>();
+        for (int i = 1; i <= 6; i++) {
+            binaryFeatures.put(i, new Feature("feature" + i));
+        }
+        Set<Set<Integer>> formulas = new HashSet<>();
+        // feature1 is mandatory, feature2 and feature3 are alternatives, feature4 requires feature2
+        formulas.add(Set.of(1));
+        formulas.add(Set.of(2, 3));
+        formulas.add(Set.of(-2, -3));
+        formulas.add(Set.of(-4, 2));
+        // feature5 or feature6 requires both
+        formulas.add(Set.of(-5, 6));
+        formulas.add(Set.of(-6, 5));
+        return new FeatureModel(binaryFeatures, new HashMap<>(), formulas, 6, formulas.size());
+    }
+
+    @Test
+    void validDecisionsAreNotExplained() throws InterruptedException {
+        Map<String, Boolean> decisions = new HashMap<>();
+        decisions.put("feature4", true);
+        decisions.put("feature5", true);
+        assertTrue(createModel().explainConfiguration(decisions, FeatureModel.DEFAULT_EXPLANATION_BUDGET_MILLIS)
+                                .isEmpty());
+    }
+
+    @Test
+    void conflictIsMinimized() throws InterruptedException {
+        Map<String, Boolean> decisions = new HashMap<>();
+        decisions.put("feature1", true);
+        decisions.put("feature3", true);
+        decisions.put("feature4", true);
+        decisions.put("feature5", false);
+        decisions.put("feature6", false);
+        ConfigurationExplanation explanation = createModel().explainConfiguration(
+                decisions, FeatureModel.DEFAULT_EXPLANATION_BUDGET_MILLIS).orElseThrow();
+        assertTrue(explanation.isMinimal());
+        assertEquals(Map.of("feature3", true, "feature4", true), explanation.getSelections());
+        assertEquals(Set.of(Map.of("feature4", false, "feature2", true), Map.of("feature2", false, "feature3", false)),
+                     new HashSet<>(explanation.getClauses()));
+    }
+
+    @Test
+    void unknownFeaturesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> createModel().explainConfiguration(
+                Map.of("feature7", true), FeatureModel.DEFAULT_EXPLANATION_BUDGET_MILLIS));
+    }
+}
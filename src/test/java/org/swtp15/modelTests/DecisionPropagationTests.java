@@ -0,0 +1,53 @@
+package org.swtp15.modelTests;
+
+import org.junit.jupiter.api.Test;
+import org.swtp15.models.Feature;
+import org.swtp15.models.FeatureModel;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DecisionPropagationTests {
+
+    private FeatureModel createModel() {
+        Map<Integer, Feature> binaryFeatures = new HashMap<>();
+        for (int i = 1; i <= 6; i++) {
+            binaryFeatures.put(i, new Feature("feature" + i));
+        }
+        Set<Set<Integer>> formulas = new HashSet<>();
+        // feature1 is mandatory, feature2 and feature3 are alternatives, feature4 requires feature2
+        formulas.add(Set.of(1));
+        formulas.add(Set.of(2, 3));
+        formulas.add(Set.of(-2, -3));
+        formulas.add(Set.of(-4, 2));
+        // feature5 or feature6 requires both
+        formulas.add(Set.of(-5, 6));
+        formulas.add(Set.of(-6, 5));
+        return new FeatureModel(binaryFeatures, new HashMap<>(), formulas, 6, formulas.size());
+    }
+
+    @Test
+    void emptyDecisionsForceCoreFeatures() throws InterruptedException {
+        Map<String, Boolean> forced = createModel().propagateDecisions(new HashMap<>()).orElseThrow();
+        assertEquals(Map.of("feature1", true), forced);
+    }
+
+    @Test
+    void decisionsForceDependentFeatures() throws InterruptedException {
+        FeatureModel model = createModel();
+        Map<String, Boolean> decisions = new HashMap<>();
+        decisions.put("feature4", true);
+        decisions.put("feature5", false);
+        Map<String, Boolean> forced = model.propagateDecisions(decisions).orElseThrow();
+        Map<String, Boolean> expected = new HashMap<>();
+        expected.put("feature1", true);
+        expected.put("feature2", true);
+        expected.put("feature3", false);
+        expected.put("feature6", false);
+        assertEquals(expected, forced);
+
+        decisions.put("feature3", true);
+        assertTrue(model.propagateDecisions(decisions).isEmpty());
+    }
+}
@@ -0,0 +1,87 @@
+package org.swtp15.modelTests;
+
+import org.junit.jupiter.api.Test;
+import org.swtp15.models.Feature;
+import org.swtp15.models.FeatureConfiguration;
+import org.swtp15.models.FeatureModel;
+import org.swtp15.models.FeatureModelAnalysis;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FeatureModelAnalysisTests {
+
+    private Set<Set<Integer>> createFormulas() {
+        Set<Set<Integer>> formulas = new HashSet<>();
+        // feature1 is mandatory, feature2 and feature3 are alternatives, feature4 excludes feature1
+        formulas.add(Set.of(1));
+        formulas.add(Set.of(2, 3));
+        formulas.add(Set.of(-2, -3));
+        formulas.add(Set.of(-4, -1));
+        // feature5, feature6 and feature7 require each other in a cycle, feature8 is independent
+        formulas.add(Set.of(-5, 6));
+        formulas.add(Set.of(-6, 7));
+        formulas.add(Set.of(-7, 5));
+        return formulas;
+    }
+
+    private FeatureModel createModel() {
+        Map<Integer, Feature> binaryFeatures = new HashMap<>();
+        for (int i = 1; i <= 8; i++) {
+            binaryFeatures.put(i, new Feature("feature" + i));
+        }
+        Set<Set<Integer>> formulas = createFormulas();
+        return new FeatureModel(binaryFeatures, new HashMap<>(), formulas, 8, formulas.size());
+    }
+
+    private FeatureConfiguration config(String... activeFeatures) {
+        Map<String, Boolean> binaryFeatures = new HashMap<>();
+        for (int i = 1; i <= 8; i++) {
+            binaryFeatures.put("feature" + i, false);
+        }
+        for (String feature : activeFeatures) {
+            binaryFeatures.put(feature, true);
+        }
+        return new FeatureConfiguration("model", binaryFeatures, new HashMap<>());
+    }
+
+    @Test
+    void findsBackboneAndEquivalences() {
+        FeatureModelAnalysis analysis = new FeatureModelAnalysis(createFormulas(), 8);
+        assertTrue(analysis.isSatisfiable());
+        assertEquals(Set.of(1), analysis.getCoreFeatures());
+        assertEquals(Set.of(4), analysis.getDeadFeatures());
+        assertEquals(List.of(Set.of(2, -3), Set.of(5, 6, 7)), new ArrayList<>(analysis.getEquivalenceClasses()));
+        assertEquals(-2, analysis.getRepresentative(3));
+        assertEquals(8, analysis.getRepresentative(8));
+        assertEquals(0, analysis.minimalDistance(Set.of(1, 2, 5, 6, 7)));
+        assertEquals(4, analysis.minimalDistance(Set.of(2, 3, 4, 5)));
+        assertTrue(analysis.isConsistent(Set.of(1, 3, 8)));
+        assertFalse(analysis.isConsistent(Set.of(1, 3, 5)));
+    }
+
+    @Test
+    void contradictionIsUnsatisfiable() {
+        Set<Set<Integer>> formulas = new HashSet<>();
+        formulas.add(Set.of(1));
+        formulas.add(Set.of(-1));
+        FeatureModelAnalysis analysis = new FeatureModelAnalysis(formulas, 1);
+        assertFalse(analysis.isSatisfiable());
+        assertFalse(analysis.isConsistent(Set.of(1)));
+    }
+
+    @Test
+    void modelUsesAnalysis() throws InterruptedException {
+        FeatureModel model = createModel();
+        assertEquals(Set.of("feature1"), model.getCoreFeatures());
+        assertEquals(Set.of("feature4"), model.getDeadFeatures());
+        assertTrue(model.getEquivalentFeatures().contains(Map.of("feature2", true, "feature3", false)));
+        assertFalse(model.isValidConfiguration(config("feature1", "feature2", "feature4")));
+        assertTrue(model.isValidConfiguration(config("feature1", "feature2", "feature8")));
+
+        FeatureConfiguration far = config("feature2", "feature3", "feature4", "feature5");
+        assertTrue(model.getNearModelsBinary(far, 3).isEmpty());
+        assertFalse(model.getNearModelsBinary(far, 4).isEmpty());
+    }
+}
@@ -0,0 +1,77 @@
+package org.swtp15.modelTests;
+
+import org.junit.jupiter.api.Test;
+import org.swtp15.models.HammingIndex;
+import org.swtp15.models.PackedModelStore;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HammingIndexTests {
+
+    private static final int FEATURES = 20;
+
+    private PackedModelStore getRandomStore(Random rand, int amount) {
+        PackedModelStore store = new PackedModelStore(FEATURES);
+        for (int i = 0; i < amount; i++) {
+            int[] model = new int[FEATURES];
+            for (int feature = 1; feature <= FEATURES; feature++) {
+                model[feature - 1] = rand.nextBoolean() ? feature : -feature;
+            }
+            store.add(model);
+        }
+        return store;
+    }
+
+    private long[] getRandomBits(Random rand) {
+        return new long[]{rand.nextInt(1 << FEATURES) << 1};
+    }
+
+    @Test
+    void withinDistanceMatchesLinearScan() {
+        Random rand = new Random(15);
+        PackedModelStore store = getRandomStore(rand, 500);
+        HammingIndex index = new HammingIndex(store);
+        index.update();
+        assertEquals(500, index.size());
+        for (int query = 0; query < 20; query++) {
+            long[] bits = getRandomBits(rand);
+            int maxDistance = query % 6;
+            int[] expected = IntStream.range(0, store.size()).filter(model -> store.distance(model, bits) <= maxDistance)
+                    .toArray();
+            int[] found = index.withinDistance(bits, maxDistance);
+            Arrays.sort(found);
+            assertArrayEquals(expected, found);
+        }
+    }
+
+    @Test
+    void nearestMatchesLinearScan() {
+        Random rand = new Random(42);
+        PackedModelStore store = getRandomStore(rand, 300);
+        HammingIndex index = new HammingIndex(store);
+        index.update();
+        for (int query = 0; query < 20; query++) {
+            long[] bits = getRandomBits(rand);
+            int[] sortedDistances = IntStream.range(0, store.size()).map(model -> store.distance(model, bits)).sorted()
+                    .toArray();
+            int[] nearest = index.nearest(bits, 5);
+            assertEquals(5, nearest.length);
+            for (int i = 0; i < nearest.length; i++) {
+                assertEquals(sortedDistances[i], store.distance(nearest[i], bits));
+            }
+            assertEquals(sortedDistances[0], index.nearestDistance(bits));
+        }
+    }
+
+    @Test
+    void emptyIndex() {
+        HammingIndex index = new HammingIndex(new PackedModelStore(FEATURES));
+        index.update();
+        assertEquals(0, index.withinDistance(new long[1], 3).length);
+        assertEquals(-1, index.nearestDistance(new long[1]));
+    }
+}
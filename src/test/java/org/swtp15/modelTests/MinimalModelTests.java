@@ -0,0 +1,59 @@
+package org.swtp15.modelTests;
+
+import org.junit.jupiter.api.Test;
+import org.swtp15.models.ConfigurationSpaceProbe;
+import org.swtp15.models.Feature;
+import org.swtp15.models.FeatureModel;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MinimalModelTests {
+
+    private FeatureModel createModel() {
+        return createModel(ConfigurationSpaceProbe.DEFAULT_ENUMERATION_LIMIT);
+    }
+
+    private FeatureModel createModel(int enumerationLimit) {
+        Map<Integer, Feature> binaryFeatures = new HashMap<>();
+        for (int i = 1; i <= 6; i++) {
+            binaryFeatures.put(i, new Feature("feature" + i));
+        }
+        Set<Set<Integer>> formulas = new HashSet<>();
+        formulas.add(Set.of(1, 2));
+        formulas.add(Set.of(3, 4, 5));
+        formulas.add(Set.of(-2, 3));
+        formulas.add(Set.of(-1, 6));
+        return new FeatureModel(binaryFeatures, new HashMap<>(), formulas, 6, formulas.size(), enumerationLimit,
+                                ConfigurationSpaceProbe.DEFAULT_PROBE_MILLIS, false);
+    }
+
+    @Test
+    void minimalModelHasFewestActiveFeatures() {
+        Map<String, Boolean> minimalModel = createModel().getMinimalModel();
+        assertEquals(6, minimalModel.size());
+        // feature2 forces feature3, which also satisfies the second clause
+        assertEquals(2, minimalModel.values().stream().filter(active -> active).count());
+        assertTrue(minimalModel.get("feature2"));
+        assertTrue(minimalModel.get("feature3"));
+    }
+
+    @Test
+    void sameFormulasShareFingerprint() {
+        FeatureModel first = createModel();
+        FeatureModel second = createModel();
+        assertEquals(first.getFingerprint(), second.getFingerprint());
+        assertEquals(first.getMinimalModel(), second.getMinimalModel());
+    }
+
+    @Test
+    void minimalModelDoesNotNeedEnumeration() {
+        // the space exceeds the limit, so scanning the enumerated models would fail
+        Map<String, Boolean> minimalModel = createModel(1).getMinimalModel();
+        assertEquals(2, minimalModel.values().stream().filter(active -> active).count());
+    }
+}
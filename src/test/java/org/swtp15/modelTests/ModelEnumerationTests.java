@@ -0,0 +1,177 @@
+package org.swtp15.modelTests;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.swtp15.models.ConfigurationSpaceProbe;
+import org.swtp15.models.ExecutionMode;
+import org.swtp15.models.Feature;
+import org.swtp15.models.FeatureConfiguration;
+import org.swtp15.models.FeatureModel;
+import org.swtp15.models.ModelEnumerationJob;
+import org.swtp15.parser.FeatureModelParser;
+
+import java.io.FileNotFoundException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModelEnumerationTests {
+
+    private static final String OPTIMIZATION_MODEL =
+            "src/test/testFiles/modelsDirectories/system5/Model_Optimize.dimacs";
+
+    private FeatureModel getOptimizationModel() throws FileNotFoundException {
+        return FeatureModelParser.parseModel(OPTIMIZATION_MODEL, null, false);
+    }
+
+    @Test
+    void progressAfterCompletion() throws FileNotFoundException, InterruptedException {
+        FeatureModel model = getOptimizationModel();
+        model.getEnumerationJob().awaitCompletion();
+        ModelEnumerationJob.Progress progress = model.getEnumerationJob().getProgress();
+        assertTrue(progress.isDone());
+        assertFalse(progress.isFailed());
+        assertFalse(progress.isCancelled());
+        // 8 free features, excluding feature3 = false and feature4 = true
+        assertEquals(192, progress.getModelsFound());
+        assertFalse(model.isModelCalculationFailed());
+    }
+
+    @Test
+    void approximateAnswerUsesKnownModels() throws FileNotFoundException, InterruptedException {
+        FeatureModel model = getOptimizationModel();
+        Map<String, Boolean> features = new HashMap<>();
+        for (int i = 1; i <= 8; i++) {
+            features.put("feature" + i, false);
+        }
+        FeatureConfiguration config = new FeatureConfiguration("Model_Optimize", features, new HashMap<>());
+        Set<Map<String, Boolean>> approximate = model.getNearModelsBinary(config, 1, true);
+        Set<Map<String, Boolean>> exact = model.getNearModelsBinary(config, 1);
+        assertTrue(exact.containsAll(approximate));
+        // the configuration itself and every single flip except activating feature4 without feature3
+        assertEquals(8, exact.size());
+    }
+
+    @Test
+    void cubesEnumerateEveryModelOnce() throws InterruptedException {
+        int amountOfFeatures = 14;
+        Map<Integer, Feature> binaryFeatures = new HashMap<>();
+        for (int i = 1; i <= amountOfFeatures; i++) {
+            binaryFeatures.put(i, new Feature("feature" + i));
+        }
+        // the features of every cyclic window {i, i + 1, i + 3, i + 7} are neither all selected nor all deselected,
+        // so no variable can be eliminated by resolution and the formula is big enough to be split
+        Set<Set<Integer>> formulas = new HashSet<>();
+        for (int i = 0; i < amountOfFeatures; i++) {
+            Set<Integer> window = new HashSet<>();
+            for (int offset : new int[]{0, 1, 3, 7}) {
+                window.add((i + offset) % amountOfFeatures + 1);
+            }
+            formulas.add(window);
+            formulas.add(window.stream().map(literal -> -literal).collect(Collectors.toSet()));
+        }
+        int expected = 0;
+        for (int assignment = 0; assignment < 1 << amountOfFeatures; assignment++) {
+            final int current = assignment;
+            if (formulas.stream().allMatch(clause -> clause.stream().anyMatch(
+                    literal -> ((current >> (Math.abs(literal) - 1) & 1) == 1) == literal > 0))) {
+                expected++;
+            }
+        }
+        // without a probe budget, the models are only enumerated by the cubes
+        FeatureModel model = new FeatureModel(binaryFeatures, new HashMap<>(), formulas, amountOfFeatures,
+                                              formulas.size(), ConfigurationSpaceProbe.DEFAULT_ENUMERATION_LIMIT, 0,
+                                              false);
+        model.getEnumerationJob().awaitCompletion();
+        assertFalse(model.isModelCalculationFailed());
+        assertEquals(expected, model.getEnumerationJob().getProgress().getModelsFound());
+        assertTrue(model.getEnumerationJob().getProgress().getCubes() > 1);
+    }
+
+    @Test
+    void portfolioEnumeratesEveryModel() throws FileNotFoundException, InterruptedException {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        Metrics.addRegistry(registry);
+        try {
+            // the limit differs from the other tests, so the probe is not cached
+            FeatureModel model = FeatureModelParser.parseModel(OPTIMIZATION_MODEL, null, false, 2000,
+                                                               ConfigurationSpaceProbe.DEFAULT_PROBE_MILLIS, true);
+            model.getEnumerationJob().awaitCompletion();
+            assertTrue(model.isPortfolioEnumeration());
+            assertFalse(model.isModelCalculationFailed());
+            assertEquals(192, model.getEnumerationJob().getProgress().getModelsFound());
+            assertTrue(model.getConfigurationSpace().isExhausted());
+            double wins = registry.find("featuremodel.portfolio.wins").counters().stream()
+                    .mapToDouble(Counter::count).sum();
+            assertTrue(wins > 0);
+        } finally {
+            Metrics.removeRegistry(registry);
+        }
+    }
+
+    @Test
+    void smallSpaceIsEnumerated() throws FileNotFoundException, InterruptedException {
+        FeatureModel model = getOptimizationModel();
+        assertEquals(ExecutionMode.ENUMERATED, model.getExecutionMode());
+        assertTrue(model.getConfigurationSpace().isExhausted());
+        assertEquals(192, model.getConfigurationSpace().getConfigurationsFound());
+        model.getEnumerationJob().awaitCompletion();
+        assertEquals(192, model.getEnumerationJob().getProgress().getModelsFound());
+    }
+
+    @Test
+    void limitSwitchesToSolverBackend() throws FileNotFoundException, InterruptedException {
+        FeatureModel model = getOptimizationModel();
+        Map<String, Boolean> features = new HashMap<>();
+        for (int i = 1; i <= 8; i++) {
+            features.put("feature" + i, false);
+        }
+        FeatureConfiguration config = new FeatureConfiguration("Model_Optimize", features, new HashMap<>());
+
+        model.setEnumerationLimit(100);
+        assertEquals(ExecutionMode.SOLVER, model.getExecutionMode());
+        assertFalse(model.getConfigurationSpace().isExhausted());
+        ModelEnumerationJob job = model.getEnumerationJob();
+        job.awaitCompletion();
+        assertTrue(job.getProgress().isLimitExceeded());
+        assertFalse(job.getProgress().isCancelled());
+        assertFalse(model.isModelCalculationFailed());
+        model.restartModelCalculation();
+        assertSame(job, model.getEnumerationJob());
+        assertTrue(model.isValidConfiguration(config));
+        assertEquals(8, model.getNearModelsBinary(config, 1, true).size());
+        assertEquals(1, model.getNearestModelsBinary(config, true).size());
+
+        model.setEnumerationLimit(1000);
+        assertEquals(ExecutionMode.ENUMERATED, model.getExecutionMode());
+        assertEquals(8, model.getNearModelsBinary(config, 1).size());
+    }
+
+    @Test
+    void enumerationContinuesAfterProbeBudget() throws FileNotFoundException, InterruptedException {
+        // the limits differ from the other tests, so the probe is not cached
+        FeatureModel model = FeatureModelParser.parseModel(OPTIMIZATION_MODEL, null, false, 1500, 0, false);
+        assertEquals(ExecutionMode.ENUMERATED, model.getExecutionMode());
+        model.getEnumerationJob().awaitCompletion();
+        assertTrue(model.getEnumerationJob().isComplete());
+        assertTrue(model.getConfigurationSpace().isExhausted());
+        assertEquals(192, model.getConfigurationSpace().getConfigurationsFound());
+    }
+
+    @Test
+    void limitAfterProbeBudgetSwitchesToSolverBackend() throws FileNotFoundException, InterruptedException {
+        FeatureModel model = FeatureModelParser.parseModel(OPTIMIZATION_MODEL, null, false, 150, 0, false);
+        model.getEnumerationJob().awaitCompletion();
+        assertTrue(model.getEnumerationJob().isLimitExceeded());
+        assertFalse(model.isModelCalculationFailed());
+        assertEquals(ExecutionMode.SOLVER, model.getExecutionMode());
+        assertFalse(model.getConfigurationSpace().isExhausted());
+    }
+}
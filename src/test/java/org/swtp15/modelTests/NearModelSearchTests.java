@@ -0,0 +1,63 @@
+package org.swtp15.modelTests;
+
+import org.junit.jupiter.api.Test;
+import org.sat4j.specs.TimeoutException;
+import org.swtp15.models.NearModelSearch;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.swtp15.modelTests.BruteForceFormulas.*;
+
+public class NearModelSearchTests {
+
+    @Test
+    void neighbourhoodsMatchBruteForce() throws TimeoutException, InterruptedException {
+        Random random = new Random(11);
+        for (int round = 0; round < 50; round++) {
+            int amountOfVariables = 3 + random.nextInt(7);
+            Set<Set<Integer>> formulas = randomFormulas(random, amountOfVariables, 2 * amountOfVariables);
+            // the pooled solver answers every query of a round, so the constraints of a query must not leak
+            NearModelSearch search = new NearModelSearch(formulas, amountOfVariables);
+            for (int query = 0; query < 5; query++) {
+                int center = random.nextInt(1 << amountOfVariables);
+                int maxDiff = random.nextInt(amountOfVariables + 1);
+                Set<Set<Integer>> expected = new HashSet<>();
+                int nearest = -1;
+                for (int assignment = 0; assignment < 1 << amountOfVariables; assignment++) {
+                    if (satisfies(formulas, assignment)) {
+                        int distance = Integer.bitCount(assignment ^ center);
+                        nearest = nearest < 0 ? distance : Math.min(nearest, distance);
+                        if (distance <= maxDiff) {
+                            expected.add(activeVariables(assignment, amountOfVariables));
+                        }
+                    }
+                }
+
+                Set<Integer> centerVariables = activeVariables(center, amountOfVariables);
+                Set<Set<Integer>> found = new HashSet<>();
+                search.forEachModelWithin(centerVariables, maxDiff, found::add);
+                assertEquals(expected, found);
+                assertEquals(nearest, search.nearestDistance(centerVariables, 0));
+            }
+        }
+    }
+
+    @Test
+    void solverIsReplacedAfterManyQueries() throws TimeoutException, InterruptedException {
+        Set<Set<Integer>> formulas = Set.of(Set.of(1, 2), Set.of(-1, -2));
+        NearModelSearch search = new NearModelSearch(formulas, 2);
+        // more queries than selectors a pooled solver takes before it is dropped
+        for (int query = 0; query < 2000; query++) {
+            assertEquals(1, search.nearestDistance(Set.of(), 0));
+        }
+    }
+
+    @Test
+    void stopsWhenConsumerDeclines() throws TimeoutException, InterruptedException {
+        NearModelSearch search = new NearModelSearch(new HashSet<>(), 10);
+        List<Set<Integer>> found = new ArrayList<>();
+        search.forEachModelWithin(Set.of(), 10, active -> found.add(active) && found.size() < 5);
+        assertEquals(5, found.size());
+    }
+}
@@ -0,0 +1,55 @@
+package org.swtp15.modelTests;
+
+import org.junit.jupiter.api.Test;
+import org.swtp15.models.PackedModelStore;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PackedModelStoreTests {
+
+    private PackedModelStore getExampleStore() {
+        PackedModelStore store = new PackedModelStore(70);
+        store.add(new int[]{1, -2, 3, -64, -70});
+        store.add(new int[]{-1, 2, -3, 64, 70});
+        return store;
+    }
+
+    @Test
+    void storesModelsAsBits() {
+        PackedModelStore store = getExampleStore();
+        assertEquals(2, store.getWordsPerModel());
+        assertEquals(2, store.size());
+        assertTrue(store.isActive(0, 3));
+        assertFalse(store.isActive(0, 64));
+        assertTrue(store.isActive(1, 70));
+        assertEquals(2, store.cardinality(0));
+        assertEquals(3, store.cardinality(1));
+        assertEquals(Set.of(2, 64, 70), store.getActiveFeatures(1));
+    }
+
+    @Test
+    void distanceAndContains() {
+        PackedModelStore store = getExampleStore();
+        long[] bits = store.toBits(List.of(1, 3, 70));
+        assertEquals(1, store.distance(0, bits));
+        assertEquals(4, store.distance(1, bits));
+        assertFalse(store.contains(bits));
+        assertTrue(store.contains(store.toBits(List.of(2, 64, 70))));
+    }
+
+    @Test
+    void growsBeyondInitialCapacity() {
+        PackedModelStore store = new PackedModelStore(3);
+        for (int i = 0; i < 1000; i++) {
+            store.add(new int[]{i % 2 == 0 ? 1 : -1, 2, -3});
+        }
+        assertEquals(1000, store.size());
+        assertTrue(store.isActive(998, 1));
+        assertFalse(store.isActive(999, 1));
+        store.clear();
+        assertEquals(0, store.size());
+    }
+}
@@ -0,0 +1,72 @@
+package org.swtp15.modelTests;
+
+import org.junit.jupiter.api.Test;
+import org.swtp15.models.BinaryDecisionDiagram;
+import org.swtp15.models.Feature;
+import org.swtp15.models.FeatureConfiguration;
+import org.swtp15.models.FeatureModel;
+import org.swtp15.parser.FeatureModelParser;
+
+import java.io.FileNotFoundException;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SamplingTests {
+
+    @Test
+    void batchFromEnumeratedModels() throws FileNotFoundException, InterruptedException {
+        FeatureModel model = FeatureModelParser.parseModel(
+                "src/test/testFiles/modelsDirectories/system5/Model_Optimize.dimacs", null, false);
+        model.getEnumerationJob().awaitCompletion();
+        List<Set<Feature>> samples = model.getRandomValidConfigs(50, new Random(1));
+        assertEquals(50, samples.size());
+        for (Set<Feature> sample : samples) {
+            assertTrue(model.isValidConfiguration(toConfiguration(sample)));
+        }
+    }
+
+    @Test
+    void batchWithoutEnumeration() throws InterruptedException {
+        int amountOfFeatures = 40;
+        Map<Integer, Feature> binaryFeatures = new HashMap<>();
+        for (int i = 1; i <= amountOfFeatures; i++) {
+            binaryFeatures.put(i, new Feature("feature" + i));
+        }
+        // every feature excludes its successor
+        Set<Set<Integer>> formulas = new HashSet<>();
+        for (int i = 1; i < amountOfFeatures; i++) {
+            formulas.add(Set.of(-i, -(i + 1)));
+        }
+        FeatureModel model = new FeatureModel(binaryFeatures, new HashMap<>(), formulas, amountOfFeatures,
+                                              formulas.size());
+        model.cancelModelCalculation();
+        model.getEnumerationJob().awaitCompletion();
+        assertTrue(model.isModelCalculationFailed());
+
+        List<Set<Feature>> samples = model.getRandomValidConfigs(200, new Random(2));
+        assertEquals(200, samples.size());
+        for (Set<Feature> sample : samples) {
+            assertTrue(model.isValidConfiguration(toConfiguration(sample)));
+        }
+        // hundreds of millions of valid configurations, so a near-uniform sample of 200 hardly repeats
+        assertTrue(new HashSet<>(samples).size() > 150);
+    }
+
+    @Test
+    void diagramCountsModels() throws FileNotFoundException {
+        FeatureModel model = FeatureModelParser.parseModel(
+                "src/test/testFiles/modelsDirectories/system5/Model_Optimize.dimacs", null, false);
+        model.cancelModelCalculation();
+        BinaryDecisionDiagram diagram = new BinaryDecisionDiagram(model.getFormulas(), 8,
+                                                                  BinaryDecisionDiagram.DEFAULT_NODE_LIMIT);
+        assertEquals(BigInteger.valueOf(192), diagram.countModels());
+    }
+
+    private static FeatureConfiguration toConfiguration(Set<Feature> sample) {
+        Map<String, Boolean> features = sample.stream().collect(Collectors.toMap(Feature::getName, feature -> true));
+        return new FeatureConfiguration("sampled", features, new HashMap<>());
+    }
+}
@@ -0,0 +1,65 @@
+package org.swtp15.modelTests;
+
+import org.junit.jupiter.api.Test;
+import org.sat4j.core.VecInt;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.ISolver;
+import org.sat4j.specs.TimeoutException;
+import org.swtp15.models.SolverPool;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SolverPoolTests {
+
+    private SolverPool createPool(int size) {
+        Set<Set<Integer>> formulas = new HashSet<>();
+        formulas.add(Set.of(-1, 2));
+        return new SolverPool(formulas, 2, size, "test", () -> "test");
+    }
+
+    @Test
+    void returnedSolverIsReused() throws Exception {
+        SolverPool pool = createPool(2);
+        ISolver first;
+        try (SolverPool.Lease lease = pool.lease()) {
+            first = lease.getSolver();
+            assertTrue(lease.isSatisfiable(new VecInt(new int[]{1, 2})));
+            assertFalse(lease.isSatisfiable(new VecInt(new int[]{1, -2})));
+        }
+        try (SolverPool.Lease lease = pool.lease()) {
+            assertSame(first, lease.getSolver());
+        }
+    }
+
+    @Test
+    void fullPoolWaitsForReturn() throws Exception {
+        SolverPool pool = createPool(1);
+        SolverPool.Lease lease = pool.lease();
+        CompletableFuture<Boolean> waiting = CompletableFuture.supplyAsync(() -> {
+            try (SolverPool.Lease second = pool.lease()) {
+                return second.isSatisfiable(new VecInt(new int[]{1}));
+            } catch (ContradictionException | InterruptedException | TimeoutException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(300);
+        assertFalse(waiting.isDone());
+        lease.close();
+        assertTrue(waiting.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void contradictoryClausesFailEveryLease() {
+        Set<Set<Integer>> formulas = new HashSet<>();
+        formulas.add(Set.of(1));
+        formulas.add(Set.of(-1));
+        SolverPool pool = new SolverPool(formulas, 1, 1, "test", () -> "test");
+        assertThrows(ContradictionException.class, pool::lease);
+        assertThrows(ContradictionException.class, pool::lease);
+    }
+}